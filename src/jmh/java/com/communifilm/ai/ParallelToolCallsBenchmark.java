@@ -0,0 +1,148 @@
+package com.communifilm.ai;
+
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.agent.tool.ToolSpecifications;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.service.AiServices;
+import dev.langchain4j.service.tool.DefaultToolExecutor;
+import dev.langchain4j.service.tool.ToolExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * One agent turn in which a fake model asks for several tool calls in a single message, as
+ * OpenAI does with parallel tool calls, then answers from the results. Each call blocks like
+ * a TMDB lookup; earlier calls take longer, so results finishing out of order would show.
+ * Compares AiServices' own sequential execution with {@link ParallelToolCalls}. The setup
+ * checks that results reach the model in the order it asked for them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelToolCallsBenchmark {
+
+    private static final Duration TOOL_LATENCY = Duration.ofMillis(20);
+
+    @Param({"1", "3", "5"})
+    public int toolCalls;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    interface Agent {
+        String chat(String message);
+    }
+
+    public static class LookupTool {
+
+        private final int calls;
+
+        LookupTool(int calls) {
+            this.calls = calls;
+        }
+
+        @Tool("Look up a movie")
+        public String lookUp(int index) throws InterruptedException {
+            Thread.sleep(TOOL_LATENCY.multipliedBy(calls - index));
+            return "movie " + index;
+        }
+    }
+
+    private ExecutorService executor;
+    private Agent agent;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        LookupTool tool = new LookupTool(toolCalls);
+        Method method = LookupTool.class.getMethod("lookUp", int.class);
+        ToolSpecification specification = ToolSpecifications.toolSpecificationFrom(method);
+        ToolExecutor lookUp = new DefaultToolExecutor(tool, method);
+
+        executor = Executors.newFixedThreadPool(16);
+        ParallelToolCalls calls = new ParallelToolCalls(executor, name -> Duration.ofSeconds(5), new SimpleMeterRegistry());
+        Map<String, ToolExecutor> byName = new HashMap<>(Map.of(specification.name(), lookUp));
+        Map<ToolSpecification, ToolExecutor> executors = new LinkedHashMap<>();
+        executors.put(specification, parallel ? (request, memoryId) -> calls.execute(request, memoryId, byName) : lookUp);
+
+        ChatLanguageModel model = new FakeModel(toolCalls, specification);
+        agent = AiServices.builder(Agent.class)
+                .chatLanguageModel(parallel ? calls.watch(model) : model)
+                .tools(executors)
+                .build();
+
+        String expected = IntStream.range(0, toolCalls).mapToObj(i -> "movie " + i).collect(Collectors.joining(", "));
+        String answer = turn();
+        if (!answer.equals(expected)) {
+            throw new IllegalStateException("Expected tool results [" + expected + "] but got [" + answer + "]");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public String turn() {
+        return agent.chat("Tell me about these movies");
+    }
+
+    // Asks for every lookup at once in reply to the user, then answers with the results in order
+    private static final class FakeModel implements ChatLanguageModel {
+
+        private final int toolCalls;
+        private final String argument;
+
+        FakeModel(int toolCalls, ToolSpecification specification) {
+            this.toolCalls = toolCalls;
+            this.argument = specification.parameters().properties().keySet().iterator().next();
+        }
+
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages) {
+            return generate(messages, List.of());
+        }
+
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+            if (messages.get(messages.size() - 1) instanceof UserMessage) {
+                List<ToolExecutionRequest> requests = new ArrayList<>();
+                for (int i = 0; i < toolCalls; i++) {
+                    requests.add(ToolExecutionRequest.builder()
+                            .id("call_" + i)
+                            .name(toolSpecifications.get(0).name())
+                            .arguments("{\"" + argument + "\": " + i + "}")
+                            .build());
+                }
+                return Response.from(AiMessage.from(requests));
+            }
+            return Response.from(AiMessage.from(messages.stream()
+                    .filter(message -> message instanceof ToolExecutionResultMessage)
+                    .map(message -> ((ToolExecutionResultMessage) message).text())
+                    .collect(Collectors.joining(", "))));
+        }
+    }
+}
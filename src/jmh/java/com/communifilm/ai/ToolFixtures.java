@@ -0,0 +1,142 @@
+package com.communifilm.ai;
+
+import com.communifilm.benchmarks.TmdbFixtures;
+import com.communifilm.dtos.MovieDetailDto;
+import com.communifilm.dtos.MovieDto;
+import com.communifilm.dtos.MovieRecommendationDto;
+import com.communifilm.models.FavoriteMovie;
+import com.communifilm.models.MovieReview;
+import com.communifilm.models.User;
+import com.communifilm.services.CollaborativeRecommender;
+import com.communifilm.services.MovieOverviewIndex;
+import com.communifilm.services.MovieReviewService;
+import com.communifilm.services.MovieService;
+import com.communifilm.services.UserService;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Services stubbed with the TMDB fixtures, for benchmarking the agent tools without
+ * network or Firestore access.
+ */
+final class ToolFixtures {
+
+    static final String USER_ID = "benchmark-user";
+
+    final MovieService movieService;
+    final UserService userService;
+    final MovieReviewService reviewService;
+    // Empty, so recommendByCriteria takes its TMDB search path
+    final MovieOverviewIndex overviewIndex;
+    // Recommends the trending movies the user has not favorited
+    final CollaborativeRecommender recommender;
+    final int movieId;
+    final int[] comparedMovieIds;
+
+    ToolFixtures() {
+        List<MovieDto> trending = TmdbFixtures.movies(TmdbFixtures.TRENDING);
+        List<MovieDto> search = TmdbFixtures.movies(TmdbFixtures.SEARCH);
+        Map<Integer, MovieDetailDto> details = TmdbFixtures.details(TmdbFixtures.TRENDING).stream()
+                .collect(Collectors.toMap(d -> (int) d.getId(), Function.identity(), (a, b) -> a, LinkedHashMap::new));
+
+        movieId = details.keySet().iterator().next();
+        comparedMovieIds = details.keySet().stream().limit(5).mapToInt(Integer::intValue).toArray();
+
+        movieService = new MovieService(null, null, null) {
+            @Override
+            public List<MovieDto> getTrendy() {
+                return trending;
+            }
+
+            @Override
+            public List<MovieDto> searchMovies(String query) {
+                return search;
+            }
+
+            @Override
+            public MovieDetailDto getMovieDetails(int id) {
+                return details.get(id);
+            }
+
+            @Override
+            public Map<Integer, MovieDetailDto> getMovieDetailsBatch(Collection<Integer> ids) {
+                Map<Integer, MovieDetailDto> batch = new LinkedHashMap<>();
+                ids.forEach(id -> batch.put(id, details.get(id)));
+                return batch;
+            }
+        };
+
+        List<FavoriteMovie> favorites = new ArrayList<>();
+        for (MovieDetailDto d : details.values()) {
+            if (favorites.size() == 3) {
+                break;
+            }
+            favorites.add(FavoriteMovie.builder()
+                    .rank(favorites.size() + 1)
+                    .movieId(d.getId())
+                    .title(d.getTitle())
+                    .releaseDate(d.getReleaseDate())
+                    .voteAverage(d.getVoteAverage())
+                    .overview(d.getOverview())
+                    .build());
+        }
+        User user = User.builder()
+                .uid(USER_ID)
+                .displayName("Benchmark User")
+                .topMovies(favorites)
+                .build();
+        userService = new UserService(null, movieService, null, new SimpleMeterRegistry(), Duration.ofMinutes(5), 1) {
+            @Override
+            public User getUser(String id) {
+                return user;
+            }
+        };
+
+        List<MovieReview> userReviews = details.keySet().stream()
+                .map(id -> MovieReview.builder()
+                        .movieId(id.longValue())
+                        .userId(USER_ID)
+                        .text("Loved the score and the cinematography; the pacing in the second act could be tighter.")
+                        .build())
+                .collect(Collectors.toList());
+        reviewService = new MovieReviewService(null, null, null, new SimpleMeterRegistry()) {
+            @Override
+            public List<MovieReview> getReviewsForUser(String userId) {
+                return userReviews;
+            }
+        };
+
+        recommender = new CollaborativeRecommender(null, null, null, new SimpleMeterRegistry(), 50, 2, 200) {
+            @Override
+            public List<MovieRecommendationDto> recommend(String uid, List<FavoriteMovie> seeds, int limit) {
+                Set<Long> favorited = seeds.stream().map(FavoriteMovie::getMovieId).collect(Collectors.toSet());
+                return trending.stream()
+                        .filter(movie -> !favorited.contains(movie.getId()))
+                        .limit(limit)
+                        .map(movie -> new MovieRecommendationDto(movie.getId(), movie.getTitle(), 1.0))
+                        .collect(Collectors.toList());
+            }
+        };
+
+        try {
+            overviewIndex = new MovieOverviewIndex(
+                    segments -> Response.from(segments.stream().map(segment -> Embedding.from(new float[384])).toList()),
+                    new SimpleMeterRegistry(), Files.createTempDirectory("movie-index"), 1, 0.35, 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static ToolOutputModes modes(ToolOutputMode mode) {
+        return new ToolOutputModes(mode, tool -> null);
+    }
+}
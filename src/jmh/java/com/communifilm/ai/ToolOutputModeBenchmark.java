@@ -0,0 +1,144 @@
+package com.communifilm.ai;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.openai.OpenAiChatModelName;
+import dev.langchain4j.model.openai.OpenAiTokenizer;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency and token cost of an agent turn that calls one tool, in each {@link ToolOutputMode}.
+ * A turn is the tool call followed by the agent's final answer over the tool's result;
+ * in GENERATED mode the tool first makes its own model call.
+ *
+ * The model is simulated. Each call waits a time to first token plus a delay per output
+ * token, at a tenth of gpt-4o-mini's typical figures so an iteration fits enough turns;
+ * the ratio between modes is what matters. Prompt and completion tokens are counted with
+ * the gpt-4o-mini tokenizer and reported as auxiliary counters summed over each iteration,
+ * next to the number of turns: divide by {@code turns} for per-turn figures.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class ToolOutputModeBenchmark {
+
+    private static final Duration FIRST_TOKEN_LATENCY = Duration.ofMillis(30);
+    private static final Duration TOKEN_LATENCY = Duration.ofNanos(1_500_000);
+
+    // Output lengths: the nested prompts ask for multi-part write-ups; the agent's answer is shorter
+    private static final int NESTED_ANSWER_TOKENS = 300;
+    private static final int FINAL_ANSWER_TOKENS = 200;
+
+    @Param({"getMovieDetails", "compareMovies", "recommendBasedOnFavorites", "recommendByCriteria"})
+    public String tool;
+
+    @Param({"GENERATED", "DATA"})
+    public ToolOutputMode mode;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Usage {
+        public long turns;
+        public long modelCalls;
+        public long inputTokens;
+        public long outputTokens;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            turns = 0;
+            modelCalls = 0;
+            inputTokens = 0;
+            outputTokens = 0;
+        }
+    }
+
+    private final OpenAiTokenizer tokenizer = new OpenAiTokenizer(OpenAiChatModelName.GPT_4_O_MINI);
+    private ToolFixtures fixtures;
+
+    @Setup
+    public void setUp() {
+        fixtures = new ToolFixtures();
+    }
+
+    @Benchmark
+    public String agentTurn(Usage usage) {
+        SimulatedModel nested = new SimulatedModel(NESTED_ANSWER_TOKENS, usage);
+        ToolOutputModes modes = ToolFixtures.modes(mode);
+        TmdbTool tmdbTool = new TmdbTool(fixtures.movieService, nested, modes);
+        MovieRecommendationTool recommendationTool =
+                new MovieRecommendationTool(fixtures.userService, fixtures.movieService, nested, modes, fixtures.overviewIndex, fixtures.recommender);
+
+        String question;
+        String result;
+        switch (tool) {
+            case "getMovieDetails" -> {
+                question = "Tell me about movie " + fixtures.movieId;
+                result = tmdbTool.getMovieDetails(fixtures.movieId);
+            }
+            case "compareMovies" -> {
+                question = "Compare these movies for me";
+                result = tmdbTool.compareMovies(fixtures.comparedMovieIds);
+            }
+            case "recommendBasedOnFavorites" -> {
+                question = "[User ID: " + ToolFixtures.USER_ID + "] What should I watch next?";
+                result = recommendationTool.recommendBasedOnFavorites(ToolFixtures.USER_ID);
+            }
+            case "recommendByCriteria" -> {
+                question = "Recommend a desert epic";
+                result = recommendationTool.recommendByCriteria("desert epic");
+            }
+            default -> throw new IllegalArgumentException("Unknown tool: " + tool);
+        }
+
+        // The agent's final answer over the tool result
+        List<ChatMessage> messages = List.of(
+                UserMessage.from(question),
+                ToolExecutionResultMessage.from("call-1", tool, result));
+        String answer = new SimulatedModel(FINAL_ANSWER_TOKENS, usage).generate(messages).content().text();
+        usage.turns++;
+        return answer;
+    }
+
+    /**
+     * Answers with a fixed number of tokens after the configured delays, counting usage.
+     */
+    private class SimulatedModel implements ChatLanguageModel {
+
+        private final int answerTokens;
+        private final Usage usage;
+
+        SimulatedModel(int answerTokens, Usage usage) {
+            this.answerTokens = answerTokens;
+            this.usage = usage;
+        }
+
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages) {
+            int inputTokens = tokenizer.estimateTokenCountInMessages(messages);
+            usage.modelCalls++;
+            usage.inputTokens += inputTokens;
+            usage.outputTokens += answerTokens;
+
+            try {
+                Thread.sleep(FIRST_TOKEN_LATENCY.plus(TOKEN_LATENCY.multipliedBy(answerTokens)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            return Response.from(AiMessage.from(" movie".repeat(answerTokens)),
+                    new TokenUsage(inputTokens, answerTokens));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.communifilm.ai;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * String building inside the agent tools: the prompts sent to the model and the
+ * formatted listings or JSON returned to the agent. The services are stubbed with fixture
+ * data and the model echoes the prompt back, so only the tools' own formatting is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ToolPromptBenchmark {
+
+    @Param({"GENERATED", "DATA"})
+    public ToolOutputMode mode;
+
+    private TmdbTool tmdbTool;
+    private MovieRecommendationTool recommendationTool;
+    private MovieReviewTool reviewTool;
+    private int movieId;
+    private int[] comparedMovieIds;
+
+    @Setup
+    public void setUp() {
+        ToolFixtures fixtures = new ToolFixtures();
+        movieId = fixtures.movieId;
+        comparedMovieIds = fixtures.comparedMovieIds;
+
+        // Echo the prompt so its construction cannot be optimized away
+        ChatLanguageModel echo = messages -> Response.from(
+                AiMessage.from(((UserMessage) messages.get(messages.size() - 1)).singleText()));
+
+        ToolOutputModes modes = ToolFixtures.modes(mode);
+        tmdbTool = new TmdbTool(fixtures.movieService, echo, modes);
+        recommendationTool = new MovieRecommendationTool(fixtures.userService, fixtures.movieService, echo, modes, fixtures.overviewIndex, fixtures.recommender);
+        reviewTool = new MovieReviewTool(fixtures.reviewService, fixtures.movieService, null);
+    }
+
+    @Benchmark
+    public String tmdbMovieDetails() {
+        return tmdbTool.getMovieDetails(movieId);
+    }
+
+    @Benchmark
+    public String tmdbSearchMovies() {
+        return tmdbTool.searchMovies("dune");
+    }
+
+    @Benchmark
+    public String tmdbTrendingMovies() {
+        return tmdbTool.getTrendingMovies();
+    }
+
+    @Benchmark
+    public String tmdbCompareMovies() {
+        return tmdbTool.compareMovies(comparedMovieIds);
+    }
+
+    @Benchmark
+    public String recommendBasedOnFavorites() {
+        return recommendationTool.recommendBasedOnFavorites(ToolFixtures.USER_ID);
+    }
+
+    @Benchmark
+    public String recommendByCriteria() {
+        return recommendationTool.recommendByCriteria("desert epic");
+    }
+
+    @Benchmark
+    public String userReviews() {
+        return reviewTool.getUserReviews(ToolFixtures.USER_ID);
+    }
+}
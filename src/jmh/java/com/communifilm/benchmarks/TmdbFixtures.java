@@ -0,0 +1,82 @@
+package com.communifilm.benchmarks;
+
+import com.communifilm.dtos.MovieDetailDto;
+import com.communifilm.dtos.MovieDto;
+import com.communifilm.dtos.TmdbResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * TMDB payloads shared by the benchmarks, loaded from src/jmh/resources/tmdb.
+ * The files follow the shape of TMDB's /trending/movie/week, /search/movie and
+ * /movie/{id} responses, including the fields our DTOs ignore, so parsing cost is
+ * realistic. Re-record them from the live API when TMDB changes its schema.
+ */
+public final class TmdbFixtures {
+
+    public static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static final String TRENDING = "tmdb/trending-movie-week.json";
+    public static final String SEARCH = "tmdb/search-movie.json";
+    public static final String MOVIE_DETAILS = "tmdb/movie-details.json";
+
+    private TmdbFixtures() {
+    }
+
+    public static byte[] bytes(String resource) {
+        try (InputStream in = TmdbFixtures.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing benchmark fixture: " + resource);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static TmdbResponse response(String resource) {
+        try {
+            return MAPPER.readValue(bytes(resource), TmdbResponse.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static MovieDetailDto movieDetails() {
+        try {
+            return MAPPER.readValue(bytes(MOVIE_DETAILS), MovieDetailDto.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The results of a TMDB list response as the services return them.
+     */
+    public static List<MovieDto> movies(String resource) {
+        return response(resource).getResults().stream()
+                .map(r -> new MovieDto(r.getTitle(), r.getOverview(), r.getPosterPath(), r.getId()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Details for every movie in a TMDB list response.
+     */
+    public static List<MovieDetailDto> details(String resource) {
+        return response(resource).getResults().stream()
+                .map(r -> {
+                    MovieDetailDto details = movieDetails();
+                    details.setId(r.getId());
+                    details.setTitle(r.getTitle());
+                    details.setOverview(r.getOverview());
+                    details.setPosterPath(r.getPosterPath());
+                    return details;
+                })
+                .collect(Collectors.toList());
+    }
+}
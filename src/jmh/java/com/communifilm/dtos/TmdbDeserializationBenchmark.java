@@ -0,0 +1,44 @@
+package com.communifilm.dtos;
+
+import com.communifilm.benchmarks.TmdbFixtures;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson deserialization of TMDB responses, as done by RestTemplate for every
+ * uncached TMDB call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TmdbDeserializationBenchmark {
+
+    private byte[] trending;
+    private byte[] movieDetails;
+    private ObjectReader responseReader;
+    private ObjectReader detailsReader;
+
+    @Setup
+    public void setUp() {
+        trending = TmdbFixtures.bytes(TmdbFixtures.TRENDING);
+        movieDetails = TmdbFixtures.bytes(TmdbFixtures.MOVIE_DETAILS);
+        responseReader = TmdbFixtures.MAPPER.readerFor(TmdbResponse.class);
+        detailsReader = TmdbFixtures.MAPPER.readerFor(MovieDetailDto.class);
+    }
+
+    @Benchmark
+    public TmdbResponse trendingResponse() throws IOException {
+        return responseReader.readValue(trending);
+    }
+
+    @Benchmark
+    public MovieDetailDto movieDetails() throws IOException {
+        return detailsReader.readValue(movieDetails);
+    }
+}
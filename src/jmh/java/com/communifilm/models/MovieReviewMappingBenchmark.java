@@ -0,0 +1,86 @@
+package com.communifilm.models;
+
+import com.google.cloud.firestore.BenchmarkSnapshots;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreOptions;
+import com.google.firestore.v1.Document;
+import com.google.firestore.v1.Value;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Firestore's reflection-based toObject mapping of review documents, which runs for
+ * every review returned by the review listings and the agent's review tools.
+ * The client is never connected; snapshots are built from in-memory documents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovieReviewMappingBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    private Firestore firestore;
+    private DocumentSnapshot review;
+    private List<DocumentSnapshot> page;
+
+    @Setup
+    public void setUp() {
+        firestore = FirestoreOptions.newBuilder()
+                .setProjectId("communifilm-benchmarks")
+                .setEmulatorHost("localhost:8080")
+                .build()
+                .getService();
+
+        page = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            page.add(BenchmarkSnapshots.fromDocument(firestore, reviewDocument("review-" + i)));
+        }
+        review = page.get(0);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        firestore.close();
+    }
+
+    @Benchmark
+    public MovieReview singleReview() {
+        return review.toObject(MovieReview.class);
+    }
+
+    @Benchmark
+    public List<MovieReview> pageOfReviews() {
+        List<MovieReview> reviews = new ArrayList<>(PAGE_SIZE);
+        for (DocumentSnapshot snapshot : page) {
+            reviews.add(snapshot.toObject(MovieReview.class));
+        }
+        return reviews;
+    }
+
+    private static Document reviewDocument(String reviewId) {
+        com.google.protobuf.Timestamp createdAt = com.google.protobuf.Timestamp.newBuilder()
+                .setSeconds(1_717_000_000L)
+                .setNanos(123_000_000)
+                .build();
+
+        return Document.newBuilder()
+                .setName("projects/communifilm-benchmarks/databases/(default)/documents/reviews/" + reviewId)
+                .putFields("reviewId", Value.newBuilder().setStringValue(reviewId).build())
+                .putFields("movieId", Value.newBuilder().setIntegerValue(693134L).build())
+                .putFields("userId", Value.newBuilder().setStringValue("108234567890123456789").build())
+                .putFields("text", Value.newBuilder().setStringValue(
+                        "A sweeping, patient epic that trusts its audience. The final act pulls every thread together.").build())
+                .putFields("replyCount", Value.newBuilder().setIntegerValue(3).build())
+                .putFields("createdAt", Value.newBuilder().setTimestampValue(createdAt).build())
+                .putFields("updatedAt", Value.newBuilder().setTimestampValue(createdAt).build())
+                .build();
+    }
+}
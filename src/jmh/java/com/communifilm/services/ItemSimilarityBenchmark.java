@@ -0,0 +1,67 @@
+package com.communifilm.services;
+
+import com.communifilm.dtos.MovieRecommendationDto;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rebuilding the item-item similarity model, as the recommendation refresh job does when users
+ * or reviews changed, and answering one user's recommendations from it. The community is
+ * synthetic: each user has a taste for one of 100 genres of 50 movies, picks three favorites
+ * and reviews five more, mostly within their genre and skewed towards its popular titles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ItemSimilarityBenchmark {
+
+    private static final int GENRES = 100;
+    private static final int MOVIES_PER_GENRE = 50;
+    private static final int PICKS_PER_USER = 8;
+
+    @Param({"10000", "100000"})
+    public int users;
+
+    private List<int[]> baskets;
+    private ItemSimilarity similarity;
+    private int[] seeds;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        baskets = new ArrayList<>(users);
+        for (int user = 0; user < users; user++) {
+            int genre = random.nextInt(GENRES);
+            int[] basket = new int[PICKS_PER_USER];
+            for (int i = 0; i < basket.length; i++) {
+                int pickGenre = random.nextInt(10) == 0 ? random.nextInt(GENRES) : genre;
+                // Squaring skews picks towards the first, most popular movies of a genre
+                double popularity = random.nextDouble();
+                int movie = (int) (popularity * popularity * MOVIES_PER_GENRE);
+                basket[i] = 1000 + pickGenre * MOVIES_PER_GENRE + movie;
+            }
+            baskets.add(Arrays.stream(basket).distinct().toArray());
+        }
+        similarity = build();
+        seeds = baskets.get(0);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ItemSimilarity build() {
+        return ItemSimilarity.build(baskets, movieId -> null, 50, 2);
+    }
+
+    @Benchmark
+    public List<MovieRecommendationDto> recommend() {
+        return similarity.recommend(seeds, 20);
+    }
+}
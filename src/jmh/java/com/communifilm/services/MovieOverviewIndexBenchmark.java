@@ -0,0 +1,105 @@
+package com.communifilm.services;
+
+import com.communifilm.dtos.MovieDto;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Scanning the movie overview index for a criteria query, and reopening an index from disk
+ * as happens at startup. Vectors are seeded random unit vectors of the embedding model's
+ * dimension, so almost nothing clears the similarity threshold, as for a real query against
+ * a large catalogue; the embedding itself (a few milliseconds per query) is not included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovieOverviewIndexBenchmark {
+
+    private static final int DIMENSION = 384;
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"1000", "10000", "50000"})
+    public int movies;
+
+    private final Random random = new Random(42);
+    private final EmbeddingModel embeddingModel = segments -> Response.from(segments.stream()
+            .map(segment -> Embedding.from(unitVector()))
+            .toList());
+
+    private Path directory;
+    private MovieOverviewIndex index;
+    private float[] query;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("movie-index-benchmark");
+        index = open();
+
+        for (int from = 0; from < movies; from += BATCH_SIZE) {
+            List<MovieDto> batch = new ArrayList<>();
+            List<float[]> vectors = new ArrayList<>();
+            for (int id = from; id < Math.min(from + BATCH_SIZE, movies); id++) {
+                batch.add(new MovieDto("Movie " + id, "An overview of movie " + id + ".", null, id + 1));
+                vectors.add(unitVector());
+            }
+            index.add(batch, vectors);
+        }
+        query = unitVector();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        index.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<MovieOverviewIndex.Match> search() {
+        return index.search(query, 10);
+    }
+
+    @Benchmark
+    public int reopen() throws IOException {
+        MovieOverviewIndex reopened = open();
+        int size = reopened.size();
+        reopened.close();
+        return size;
+    }
+
+    private MovieOverviewIndex open() {
+        return new MovieOverviewIndex(embeddingModel, new SimpleMeterRegistry(), directory, 50_000, 0.35, BATCH_SIZE);
+    }
+
+    private float[] unitVector() {
+        float[] vector = new float[DIMENSION];
+        double norm = 0;
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] /= (float) Math.sqrt(norm);
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,35 @@
+package com.communifilm.services;
+
+import com.communifilm.benchmarks.TmdbFixtures;
+import com.communifilm.dtos.MovieDto;
+import com.communifilm.dtos.TmdbResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping a TMDB list response to the DTOs returned by the trending and search endpoints.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovieServiceBenchmark {
+
+    private MovieService movieService;
+    private TmdbResponse trending;
+
+    @Setup
+    public void setUp() {
+        movieService = new MovieService(null, null, null);
+        trending = TmdbFixtures.response(TmdbFixtures.TRENDING);
+    }
+
+    @Benchmark
+    public List<MovieDto> processTmdbResponse() {
+        return movieService.processTmdbResponse(trending);
+    }
+}
@@ -0,0 +1,118 @@
+package com.communifilm.services;
+
+import com.communifilm.models.MovieReview;
+import com.communifilm.models.ReviewSummary;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.openai.OpenAiChatModelName;
+import dev.langchain4j.model.openai.OpenAiTokenizer;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Preparing review summaries: selecting the token-budgeted corpus, building the
+ * summary and sentiment prompts, and the whole single-call or map-reduce path with a
+ * model that answers instantly and deterministically.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReviewPromptBenchmark {
+
+    private static final String[] SENTENCES = {
+            "A sweeping, patient epic that trusts its audience.",
+            "The sound design alone is worth the ticket.",
+            "The desert battles have a scale I haven't seen since the old roadshow pictures.",
+            "The middle hour drags a little.",
+            "A couple of characters are left with nothing to do.",
+            "The final act pulls every thread together.",
+            "I found the dialogue stiff and the romance unconvincing.",
+            "The score is relentless in the best possible way.",
+            "Visually stunning, emotionally a bit cold.",
+            "It rewards a second viewing on the biggest screen you can find.",
+            "Too long by at least twenty minutes.",
+            "The villain steals every scene he is in.",
+    };
+
+    @Param({"10", "100", "1000"})
+    private int reviewCount;
+
+    private List<MovieReview> reviews;
+    private ReviewCorpusBuilder corpusBuilder;
+    private ReviewCorpus corpus;
+    private ReviewSummaryService summaryService;
+    private ExecutorService llmExecutor;
+
+    @Setup
+    public void setUp() {
+        reviews = new ArrayList<>();
+        Instant now = Instant.parse("2025-01-01T00:00:00Z");
+        for (int i = 0; i < reviewCount; i++) {
+            // Four sentences picked by a seeded Random; every tenth review repeats an earlier one
+            Random random = new Random(i % 10 == 9 ? i - 9 : i);
+            StringBuilder text = new StringBuilder();
+            for (int s = 0; s < 4; s++) {
+                text.append(SENTENCES[random.nextInt(SENTENCES.length)]).append(' ');
+            }
+            reviews.add(MovieReview.builder()
+                    .reviewId("review-" + i)
+                    .movieId(693134L)
+                    .userId("user-" + i)
+                    .text(text.toString())
+                    .replyCount(i % 7)
+                    .createdAt(now.minusSeconds(i * 60L))
+                    .build());
+        }
+
+        corpusBuilder = new ReviewCorpusBuilder(new OpenAiTokenizer(OpenAiChatModelName.GPT_4_O_MINI), 400, 32000, 3);
+        corpus = corpusBuilder.build(reviews);
+
+        // Answers with a fixed-size note derived from the prompt length
+        ChatLanguageModel model = messages -> Response.from(AiMessage.from(
+                "Notes on a prompt of " + ((UserMessage) messages.get(messages.size() - 1)).singleText().length() + " characters."));
+        llmExecutor = Executors.newFixedThreadPool(4);
+        // Small prompt budgets so the 1000-review case takes the map-reduce path
+        summaryService = new ReviewSummaryService(null, null, model, null, corpusBuilder, llmExecutor,
+                new SimpleMeterRegistry(), 2000, 1000, Duration.ofMinutes(10), 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        llmExecutor.shutdown();
+    }
+
+    @Benchmark
+    public ReviewCorpus buildCorpus() {
+        return corpusBuilder.build(reviews);
+    }
+
+    @Benchmark
+    public String summaryPrompt() {
+        return ReviewSummaryService.prompt(ReviewSummary.Kind.SUMMARY, 693134L, "Dune: Part Two", corpus);
+    }
+
+    @Benchmark
+    public String sentimentPrompt() {
+        return ReviewSummaryService.prompt(ReviewSummary.Kind.SENTIMENT, 693134L, "Dune: Part Two", corpus);
+    }
+
+    @Benchmark
+    public String summarize() throws ExecutionException, InterruptedException {
+        return summaryService.summarize(ReviewSummary.Kind.SUMMARY, 693134L, "Dune: Part Two", reviews);
+    }
+}
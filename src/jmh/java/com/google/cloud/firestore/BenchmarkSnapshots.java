@@ -0,0 +1,19 @@
+package com.google.cloud.firestore;
+
+import com.google.cloud.Timestamp;
+import com.google.firestore.v1.Document;
+
+/**
+ * Builds DocumentSnapshots from raw documents without a server round trip, so the
+ * benchmarks can measure snapshot-to-object mapping in isolation. Lives in the
+ * Firestore package because the client only exposes these factories internally.
+ */
+public final class BenchmarkSnapshots {
+
+    private BenchmarkSnapshots() {
+    }
+
+    public static DocumentSnapshot fromDocument(Firestore firestore, Document document) {
+        return DocumentSnapshot.fromDocument((FirestoreRpcContext<?>) firestore, Timestamp.now(), document);
+    }
+}
@@ -0,0 +1,34 @@
+package com.communifilm.loadtest;
+
+import com.communifilm.services.GoogleAuthService;
+import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+
+/**
+ * Accepts bearer tokens of the form "loadtest:<uid>" instead of real Google ID tokens,
+ * so the traffic driver can act as any number of users without signing in.
+ */
+class FakeGoogleAuthService extends GoogleAuthService {
+
+    static final String TOKEN_PREFIX = "loadtest:";
+
+    FakeGoogleAuthService(MeterRegistry meterRegistry) {
+        super(meterRegistry, "loadtest", Duration.ZERO, 0);
+    }
+
+    @Override
+    public GoogleIdToken.Payload verifyToken(String idTokenString) {
+        if (idTokenString == null || !idTokenString.startsWith(TOKEN_PREFIX)) {
+            throw new IllegalArgumentException("Not a load-test token");
+        }
+
+        String uid = idTokenString.substring(TOKEN_PREFIX.length());
+        GoogleIdToken.Payload payload = new GoogleIdToken.Payload();
+        payload.setSubject(uid);
+        payload.setEmail(uid + "@loadtest.communifilm.dev");
+        payload.set("name", "Load Test " + uid);
+        return payload;
+    }
+}
@@ -0,0 +1,75 @@
+package com.communifilm.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latencies and errors recorded for one endpoint. Each driver thread keeps its own
+ * instances and they are merged at the end, so recording never contends.
+ */
+class LatencyStats {
+
+    private long[] latenciesNanos = new long[1024];
+    private int count;
+    private int errors;
+
+    void record(long latencyNanos, boolean success) {
+        if (count == latenciesNanos.length) {
+            latenciesNanos = Arrays.copyOf(latenciesNanos, count * 2);
+        }
+        latenciesNanos[count++] = latencyNanos;
+        if (!success) {
+            errors++;
+        }
+    }
+
+    void merge(LatencyStats other) {
+        for (int i = 0; i < other.count; i++) {
+            record(other.latenciesNanos[i], true);
+        }
+        errors += other.errors;
+    }
+
+    int count() {
+        return count;
+    }
+
+    int errors() {
+        return errors;
+    }
+
+    /**
+     * Summary in milliseconds, with throughput over the measured window.
+     */
+    Map<String, Object> summary(double windowSeconds) {
+        long[] sorted = Arrays.copyOf(latenciesNanos, count);
+        Arrays.sort(sorted);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", count);
+        summary.put("errors", errors);
+        summary.put("throughput", round(count / windowSeconds));
+        summary.put("p50", millis(percentile(sorted, 0.50)));
+        summary.put("p90", millis(percentile(sorted, 0.90)));
+        summary.put("p99", millis(percentile(sorted, 0.99)));
+        summary.put("max", millis(count == 0 ? 0 : sorted[count - 1]));
+        return summary;
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return round(nanos / 1_000_000.0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+}
@@ -0,0 +1,39 @@
+package com.communifilm.loadtest;
+
+import com.communifilm.services.GoogleAuthService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Replaces the beans that call Google and OpenAI with local stand-ins.
+ * TMDB and Firestore need no beans here: the harness points tmdb.base.url at
+ * {@link TmdbStubServer} and firebase.emulator-host at the Firestore emulator.
+ */
+@Configuration
+@Profile("loadtest")
+public class LoadTestConfiguration {
+
+    @Bean
+    @Primary
+    public SimulatedChatModel simulatedChatModel(
+            @Value("${loadtest.model.tools}") List<String> tools,
+            @Value("${loadtest.model.tool-call-latency}") Duration toolCallLatency,
+            @Value("${loadtest.model.first-token-latency}") Duration firstTokenLatency,
+            @Value("${loadtest.model.token-latency}") Duration tokenLatency,
+            @Value("${loadtest.model.answer-tokens}") int answerTokens) {
+        return new SimulatedChatModel(tools, toolCallLatency, firstTokenLatency, tokenLatency, answerTokens);
+    }
+
+    @Bean
+    @Primary
+    public GoogleAuthService fakeGoogleAuthService(MeterRegistry meterRegistry) {
+        return new FakeGoogleAuthService(meterRegistry);
+    }
+}
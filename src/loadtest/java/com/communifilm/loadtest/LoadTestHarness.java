@@ -0,0 +1,161 @@
+package com.communifilm.loadtest;
+
+import com.communifilm.CommuniFilmApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * End-to-end load test of the whole application with no external dependencies.
+ *
+ * Starts a {@link TmdbStubServer}, boots the app in the "loadtest" profile (simulated
+ * OpenAI model, fake Google sign-in, Firestore emulator), seeds users and reviews, then
+ * drives a weighted mix of traffic with {@link TrafficDriver} and reports p50/p90/p99
+ * latency and throughput per endpoint. The report is printed and written as JSON so
+ * runs before and after a change can be compared. The report also counts TMDB calls the
+ * circuit breaker rejected and reads answered from stale cache entries.
+ *
+ * Requires a running Firestore emulator, e.g.
+ *   gcloud emulators firestore start --host-port=localhost:8081
+ * Run with:  mvn -Ploadtest verify -Dloadtest.firestore-emulator=localhost:8081
+ *
+ * System properties (defaults in parentheses):
+ *   loadtest.firestore-emulator  emulator host:port (FIRESTORE_EMULATOR_HOST)
+ *   loadtest.users               concurrent virtual users (32)
+ *   loadtest.warmup              warm-up before measuring (15s)
+ *   loadtest.duration            measured window (60s)
+ *   loadtest.tmdb.latency        stub TMDB response time (80ms), plus/minus loadtest.tmdb.jitter (20ms)
+ *   loadtest.tmdb.stall-rate     share of TMDB responses that stall instead (0)
+ *   loadtest.tmdb.stall-latency  how long a stalled response takes (10s, past the 5s read timeout)
+ *   loadtest.result              JSON report path (target/loadtest-result.json)
+ * Any other property, e.g. spring.threads.virtual.enabled=true or
+ * loadtest.model.first-token-latency=1s, is passed through to the application; with
+ * Maven, put them in -Dloadtest.jvmArgs="-Dspring.threads.virtual.enabled=true".
+ */
+public final class LoadTestHarness {
+
+    private LoadTestHarness() {
+    }
+
+    public static void main(String[] args) {
+        try {
+            run(args);
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    private static void run(String[] args) throws Exception {
+        String emulator = System.getProperty("loadtest.firestore-emulator", "");
+        if (emulator.isBlank()) {
+            emulator = System.getenv("FIRESTORE_EMULATOR_HOST");
+        }
+        if (emulator == null || emulator.isBlank()) {
+            System.err.println("No Firestore emulator configured. Start one with");
+            System.err.println("  gcloud emulators firestore start --host-port=localhost:8081");
+            System.err.println("and pass -Dloadtest.firestore-emulator=localhost:8081 (or set FIRESTORE_EMULATOR_HOST).");
+            System.exit(2);
+        }
+
+        int users = Integer.getInteger("loadtest.users", 32);
+        Duration warmup = duration("loadtest.warmup", "15s");
+        Duration window = duration("loadtest.duration", "60s");
+
+        double stallRate = Double.parseDouble(System.getProperty("loadtest.tmdb.stall-rate", "0"));
+
+        try (TmdbStubServer tmdb = new TmdbStubServer(duration("loadtest.tmdb.latency", "80ms"), duration("loadtest.tmdb.jitter", "20ms"),
+                stallRate, duration("loadtest.tmdb.stall-latency", "10s"))) {
+            // System properties, unlike builder defaults, take precedence over application.properties
+            System.setProperty("tmdb.base.url", tmdb.baseUrl());
+            System.setProperty("firebase.emulator-host", emulator);
+
+            try (ConfigurableApplicationContext app = new SpringApplicationBuilder(CommuniFilmApplication.class)
+                    .profiles("loadtest")
+                    .run(args)) {
+
+                String baseUrl = "http://localhost:" + app.getEnvironment().getProperty("local.server.port");
+                TrafficDriver driver = new TrafficDriver(baseUrl, users);
+
+                System.out.printf("Seeding %d users against %s%n", users, baseUrl);
+                driver.seed();
+
+                System.out.printf("Warming up for %ds, then measuring for %ds%n", warmup.toSeconds(), window.toSeconds());
+                Map<String, LatencyStats> results = driver.run(warmup, window);
+
+                report(results, users, window, app.getEnvironment().getProperty("spring.threads.virtual.enabled", "false"),
+                        resilience(app.getBean(MeterRegistry.class)));
+            }
+        }
+    }
+
+    private static Map<String, Object> resilience(MeterRegistry registry) {
+        Map<String, Object> counts = new LinkedHashMap<>();
+        counts.put("tmdbBreakerRejections", (long) registry.find("circuit.breaker.calls")
+                .tags("name", "tmdb", "outcome", "rejected").counters().stream().mapToDouble(Counter::count).sum());
+        counts.put("tmdbStaleFallbacks", (long) registry.find("tmdb.fallbacks").counters().stream().mapToDouble(Counter::count).sum());
+        counts.put("agentBulkheadRejections", (long) registry.find("bulkhead.rejections")
+                .tags("name", "agent").counters().stream().mapToDouble(Counter::count).sum());
+        return counts;
+    }
+
+    private static void report(Map<String, LatencyStats> results, int users, Duration window, String virtualThreads,
+                               Map<String, Object> resilience) throws Exception {
+        double seconds = window.toMillis() / 1000.0;
+        LatencyStats total = new LatencyStats();
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+
+        System.out.printf("%n%-30s %9s %7s %9s %9s %9s %9s %9s%n", "endpoint", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (Map.Entry<String, LatencyStats> entry : results.entrySet()) {
+            Map<String, Object> summary = entry.getValue().summary(seconds);
+            endpoints.put(entry.getKey(), summary);
+            total.merge(entry.getValue());
+            print(entry.getKey(), summary);
+        }
+        Map<String, Object> overall = total.summary(seconds);
+        print("TOTAL", overall);
+        System.out.println("\n" + resilience);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("users", users);
+        report.put("durationSeconds", seconds);
+        report.put("virtualThreads", Boolean.parseBoolean(virtualThreads));
+        report.put("total", overall);
+        report.put("endpoints", endpoints);
+        report.put("resilience", resilience);
+
+        File output = new File(System.getProperty("loadtest.result", "target/loadtest-result.json"));
+        output.getAbsoluteFile().getParentFile().mkdirs();
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output, report);
+        System.out.println("\nReport written to " + output.getPath());
+    }
+
+    private static void print(String name, Map<String, Object> summary) {
+        System.out.printf("%-30s %9s %7s %9s %9s %9s %9s %9s%n", name,
+                summary.get("requests"), summary.get("errors"), summary.get("throughput"),
+                summary.get("p50"), summary.get("p90"), summary.get("p99"), summary.get("max"));
+    }
+
+    private static Duration duration(String property, String defaultValue) {
+        String value = System.getProperty(property, defaultValue).trim().toLowerCase();
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        return Duration.ofMillis(Long.parseLong(value));
+    }
+}
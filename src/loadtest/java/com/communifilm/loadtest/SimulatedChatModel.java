@@ -0,0 +1,157 @@
+package com.communifilm.loadtest;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Stands in for OpenAI. When the agent sends a user message along with its tools, the
+ * model asks for the configured tools (all in one turn, as OpenAI does with parallel
+ * tool calls). Once the tool results are in, or when called without tools (e.g. by a tool
+ * building its own prompt), it answers with a fixed number of tokens.
+ *
+ * Latencies mimic a hosted model: a delay before a tool call, a delay before the first
+ * token, then a delay per token. The streaming variant delivers the tokens one by one on
+ * its own thread, like the real client.
+ */
+class SimulatedChatModel implements ChatLanguageModel, StreamingChatLanguageModel {
+
+    private final List<String> tools;
+    private final Duration toolCallLatency;
+    private final Duration firstTokenLatency;
+    private final Duration tokenLatency;
+    private final int answerTokens;
+    private final ExecutorService streamExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    SimulatedChatModel(List<String> tools, Duration toolCallLatency, Duration firstTokenLatency,
+                       Duration tokenLatency, int answerTokens) {
+        this.tools = tools;
+        this.toolCallLatency = toolCallLatency;
+        this.firstTokenLatency = firstTokenLatency;
+        this.tokenLatency = tokenLatency;
+        this.answerTokens = answerTokens;
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        return generate(messages, Collections.emptyList());
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+        List<ToolExecutionRequest> toolCalls = toolCalls(messages, toolSpecifications);
+        if (!toolCalls.isEmpty()) {
+            sleep(toolCallLatency);
+            return Response.from(AiMessage.from(toolCalls));
+        }
+
+        sleep(firstTokenLatency.plus(tokenLatency.multipliedBy(answerTokens)));
+        return Response.from(AiMessage.from(answer()));
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+        generate(messages, Collections.emptyList(), handler);
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications,
+                         StreamingResponseHandler<AiMessage> handler) {
+        List<ToolExecutionRequest> toolCalls = toolCalls(messages, toolSpecifications);
+        streamExecutor.execute(() -> {
+            try {
+                if (!toolCalls.isEmpty()) {
+                    sleep(toolCallLatency);
+                    handler.onComplete(Response.from(AiMessage.from(toolCalls)));
+                    return;
+                }
+
+                sleep(firstTokenLatency);
+                for (int i = 0; i < answerTokens; i++) {
+                    if (i > 0) {
+                        sleep(tokenLatency);
+                    }
+                    handler.onNext(token(i));
+                }
+                handler.onComplete(Response.from(AiMessage.from(answer())));
+            } catch (Exception e) {
+                handler.onError(e);
+            }
+        });
+    }
+
+    // Tools are only requested in reply to the user's message, never after tool results
+    private List<ToolExecutionRequest> toolCalls(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+        if (toolSpecifications == null || toolSpecifications.isEmpty()
+                || !(messages.get(messages.size() - 1) instanceof UserMessage)) {
+            return Collections.emptyList();
+        }
+
+        List<ToolExecutionRequest> requests = new ArrayList<>();
+        for (String tool : tools) {
+            toolSpecifications.stream()
+                    .filter(spec -> spec.name().equals(tool))
+                    .findFirst()
+                    .ifPresent(spec -> requests.add(ToolExecutionRequest.builder()
+                            .id("call_" + UUID.randomUUID())
+                            .name(spec.name())
+                            .arguments(arguments(spec))
+                            .build()));
+        }
+        return requests;
+    }
+
+    // Fills every parameter with a plausible value for its JSON type
+    private static String arguments(ToolSpecification spec) {
+        if (spec.parameters() == null) {
+            return "{}";
+        }
+
+        List<String> arguments = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> parameter : spec.parameters().properties().entrySet()) {
+            String value = switch (String.valueOf(parameter.getValue().get("type"))) {
+                case "integer", "number" -> "693134";
+                case "array" -> "[693134, 872585]";
+                case "boolean" -> "true";
+                default -> "\"dune\"";
+            };
+            arguments.add("\"" + parameter.getKey() + "\": " + value);
+        }
+        return "{" + String.join(", ", arguments) + "}";
+    }
+
+    private String answer() {
+        StringBuilder answer = new StringBuilder();
+        for (int i = 0; i < answerTokens; i++) {
+            answer.append(token(i));
+        }
+        return answer.toString();
+    }
+
+    private static String token(int index) {
+        return index % 12 == 11 ? "movie. " : "word ";
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.communifilm.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stands in for the TMDB API. Replays the recorded responses under tmdb/ on the classpath
+ * for the endpoints TmdbGateway calls, after a configurable delay. Movie details are
+ * served for any ID by rewriting the ID in the recorded payload.
+ *
+ * A share of responses (stallRate, 0 to 1) can be made to stall for stallLatency instead,
+ * e.g. past the app's read timeout, to exercise its circuit breaker and stale fallbacks.
+ */
+class TmdbStubServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Duration latency;
+    private final Duration jitter;
+    private final double stallRate;
+    private final Duration stallLatency;
+
+    private final byte[] trending = fixture("tmdb/trending-movie-week.json");
+    private final byte[] search = fixture("tmdb/search-movie.json");
+    private final String movieDetails = new String(fixture("tmdb/movie-details.json"), StandardCharsets.UTF_8);
+
+    TmdbStubServer(Duration latency, Duration jitter) throws IOException {
+        this(latency, jitter, 0, Duration.ZERO);
+    }
+
+    TmdbStubServer(Duration latency, Duration jitter, double stallRate, Duration stallLatency) throws IOException {
+        this.latency = latency;
+        this.jitter = jitter;
+        this.stallRate = stallRate;
+        this.stallLatency = stallLatency;
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/trending/movie/week", exchange -> respond(exchange, trending));
+        server.createContext("/search/movie", exchange -> respond(exchange, search));
+        server.createContext("/movie/", exchange -> {
+            String id = exchange.getRequestURI().getPath().substring("/movie/".length());
+            if (!id.matches("\\d+")) {
+                respond(exchange, 404, "{\"status_code\":34}".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            respond(exchange, movieDetails.replaceFirst("\"id\": \\d+", "\"id\": " + id).getBytes(StandardCharsets.UTF_8));
+        });
+        server.start();
+    }
+
+    /**
+     * The value to use for tmdb.base.url.
+     */
+    String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private void respond(HttpExchange exchange, byte[] body) throws IOException {
+        respond(exchange, 200, body);
+    }
+
+    private void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        try (exchange) {
+            sleep();
+            exchange.getResponseHeaders().set("Content-Type", "application/json;charset=utf-8");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private void sleep() {
+        long delay = latency.toMillis();
+        if (stallRate > 0 && ThreadLocalRandom.current().nextDouble() < stallRate) {
+            delay = stallLatency.toMillis();
+        } else if (!jitter.isZero()) {
+            delay += ThreadLocalRandom.current().nextLong(-jitter.toMillis(), jitter.toMillis() + 1);
+        }
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static byte[] fixture(String resource) {
+        try (InputStream in = TmdbStubServer.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing TMDB fixture: " + resource);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,203 @@
+package com.communifilm.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Closed-loop traffic against a running instance: a fixed number of virtual users each
+ * send one request, wait for the response, and immediately send the next, picking the
+ * endpoint from a weighted mix. Requests completed during warm-up are not recorded.
+ */
+class TrafficDriver {
+
+    // Movie IDs present in the recorded TMDB responses
+    private static final long[] MOVIE_IDS = {693134, 872585, 346698, 1022789, 533535, 823464, 569094, 299534, 157336, 27205};
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpClient http;
+    private final String baseUrl;
+    private final int users;
+
+    private final List<String> reviewIds = new CopyOnWriteArrayList<>();
+    private final List<Scenario> mix = new ArrayList<>();
+    private int totalWeight;
+
+    TrafficDriver(String baseUrl, int users) {
+        this.baseUrl = baseUrl;
+        this.users = users;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        scenario("GET /movies?trending", 8, uid -> get(uid, "/movies?trending=true"));
+        scenario("GET /movies?search", 8, uid -> get(uid, "/movies?search=dune"));
+        scenario("GET /movies/{id}", 8, uid -> get(uid, "/movies/" + ThreadLocalRandom.current().nextInt(1, 2_000)));
+        scenario("GET /reviews/movie/{id}", 12, uid -> get(uid, "/reviews/movie/" + movieId()));
+        scenario("GET /reviews/movie/{id}/page", 8, uid -> get(uid, "/reviews/movie/" + movieId() + "/page?pageSize=20"));
+        scenario("POST /reviews", 4, uid -> createReview(uid, movieId()));
+        scenario("GET /replies/review/{id}", 10, uid -> get(uid, "/replies/review/" + reviewId()));
+        scenario("POST /replies", 4, this::createReply);
+        scenario("GET /users/{uid}", 10, uid -> get(uid, "/users/" + randomUser()));
+        scenario("GET /users?uids", 4, uid -> get(uid, "/users?uids=" + randomUser() + "," + randomUser() + "," + randomUser()));
+        scenario("POST /agent/chat", 6, uid -> post(uid, "/agent/chat", Map.of("message", "Find me something like Dune")));
+    }
+
+    /**
+     * Creates the users and a few reviews per movie so reads have data to return.
+     */
+    void seed() throws IOException, InterruptedException {
+        for (int i = 0; i < users; i++) {
+            check(post(uid(i), "/users/login", null), "login " + uid(i));
+        }
+        for (long movieId : MOVIE_IDS) {
+            for (int i = 0; i < 3; i++) {
+                check(createReview(uid(i % users), movieId), "seed review for movie " + movieId);
+            }
+        }
+    }
+
+    /**
+     * Runs the mix for warm-up plus duration and returns the stats per scenario.
+     */
+    Map<String, LatencyStats> run(Duration warmup, Duration duration) throws InterruptedException {
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long deadline = measureFrom + duration.toNanos();
+        Map<String, LatencyStats> merged = new ConcurrentHashMap<>();
+
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < users; i++) {
+                String uid = uid(i);
+                workers.execute(() -> {
+                    Map<String, LatencyStats> local = new HashMap<>();
+                    while (System.nanoTime() < deadline) {
+                        Scenario scenario = pick();
+                        long start = System.nanoTime();
+                        boolean success;
+                        try {
+                            HttpResponse<String> response = scenario.request().send(uid);
+                            success = response.statusCode() < 400;
+                        } catch (Exception e) {
+                            success = false;
+                        }
+                        long end = System.nanoTime();
+                        if (start >= measureFrom && end <= deadline) {
+                            local.computeIfAbsent(scenario.name(), k -> new LatencyStats()).record(end - start, success);
+                        }
+                    }
+                    local.forEach((name, stats) -> merged.merge(name, stats, (a, b) -> {
+                        synchronized (a) {
+                            a.merge(b);
+                        }
+                        return a;
+                    }));
+                });
+            }
+        }
+
+        Map<String, LatencyStats> ordered = new LinkedHashMap<>();
+        mix.forEach(scenario -> ordered.put(scenario.name(), merged.getOrDefault(scenario.name(), new LatencyStats())));
+        return ordered;
+    }
+
+    private HttpResponse<String> createReview(String uid, long movieId) throws IOException, InterruptedException {
+        HttpResponse<String> response = post(uid, "/reviews", Map.of(
+                "movieId", movieId,
+                "userId", uid,
+                "text", "Load-test review: gorgeous to look at, a little long in the middle."));
+        if (response.statusCode() == 200) {
+            JsonNode review = mapper.readTree(response.body());
+            reviewIds.add(review.path("reviewId").asText());
+        }
+        return response;
+    }
+
+    private HttpResponse<String> createReply(String uid) throws IOException, InterruptedException {
+        return post(uid, "/replies", Map.of(
+                "parentReviewId", reviewId(),
+                "movieId", movieId(),
+                "userId", uid,
+                "username", "Load Test " + uid,
+                "text", "Agreed, the score carries it."));
+    }
+
+    private HttpResponse<String> get(String uid, String path) throws IOException, InterruptedException {
+        return http.send(request(uid, path).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String uid, String path, Object body) throws IOException, InterruptedException {
+        HttpRequest.BodyPublisher publisher = body == null
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(body));
+        return http.send(request(uid, path)
+                .header("Content-Type", "application/json")
+                .POST(publisher)
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest.Builder request(String uid, String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(60))
+                .header("Authorization", "Bearer " + FakeGoogleAuthService.TOKEN_PREFIX + uid);
+    }
+
+    private void scenario(String name, int weight, Request request) {
+        mix.add(new Scenario(name, weight, request));
+        totalWeight += weight;
+    }
+
+    private Scenario pick() {
+        int roll = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Scenario scenario : mix) {
+            roll -= scenario.weight();
+            if (roll < 0) {
+                return scenario;
+            }
+        }
+        return mix.get(mix.size() - 1);
+    }
+
+    private static long movieId() {
+        return MOVIE_IDS[ThreadLocalRandom.current().nextInt(MOVIE_IDS.length)];
+    }
+
+    private String reviewId() {
+        return reviewIds.get(ThreadLocalRandom.current().nextInt(reviewIds.size()));
+    }
+
+    private String randomUser() {
+        return uid(ThreadLocalRandom.current().nextInt(users));
+    }
+
+    private static String uid(int index) {
+        return "loadtest-user-" + index;
+    }
+
+    private static void check(HttpResponse<String> response, String step) {
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException("Seeding failed at " + step + ": HTTP " + response.statusCode() + " " + response.body());
+        }
+    }
+
+    @FunctionalInterface
+    interface Request {
+        HttpResponse<String> send(String uid) throws IOException, InterruptedException;
+    }
+
+    record Scenario(String name, int weight, Request request) {
+    }
+}
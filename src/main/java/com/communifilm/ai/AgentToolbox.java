@@ -0,0 +1,177 @@
+package com.communifilm.ai;
+
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.agent.tool.ToolSpecifications;
+import dev.langchain4j.service.tool.DefaultToolExecutor;
+import dev.langchain4j.service.tool.ToolExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects the @Tool methods of every agent tool and exposes them as
+ * LangChain4j tool executors.
+ * Building the executors here, rather than handing the tool beans straight to
+ * AiServices, gives one place to observe each tool invocation: streaming
+ * sessions subscribe to be told when a tool starts running, and every call is
+ * timed as {@code agent.tool.invocations}, tagged by tool and outcome.
+ * Listeners, turn spans and recordings are keyed by the {@link AgentTurn} the agent was
+ * called with, never by conversation, so concurrent turns of one conversation stay apart.
+ *
+ * Every call is also traced as an "agent.tool &lt;name&gt;" span carrying its arguments.
+ * Streaming models run tools on their HTTP client's threads, where the agent turn's
+ * span is not current, so turns register their span in {@link TurnSpans} to parent tool
+ * spans and the model calls that send tool results back.
+ *
+ * A turn can also {@link #record} the tools it calls, to learn whether its answer is built
+ * only from {@link SharedResult} data and may be cached for other users.
+ *
+ * The tool calls of one assistant message run concurrently; see {@link ParallelToolCalls}.
+ */
+@Component
+public class AgentToolbox {
+
+    // Tool arguments are recorded on spans up to this many characters
+    private static final int MAX_ARGUMENTS_LENGTH = 1024;
+
+    private final List<AgentTool> tools;
+    private final MeterRegistry meterRegistry;
+    private final Tracer tracer;
+    private final Map<Object, ChatStreamListener> listeners = new ConcurrentHashMap<>();
+    private final Map<Object, TurnToolCalls> recordings = new ConcurrentHashMap<>();
+    private final Environment environment;
+    private final ParallelToolCalls parallelCalls;
+    private final TurnSpans turnSpans;
+
+    public AgentToolbox(MovieReviewTool reviewTool,
+                        MovieRecommendationTool recommendationTool,
+                        TmdbTool tmdbTool,
+                        MeterRegistry meterRegistry,
+                        Tracer tracer,
+                        Environment environment,
+                        ParallelToolCalls parallelCalls,
+                        TurnSpans turnSpans) {
+        this.tools = List.of(reviewTool, recommendationTool, tmdbTool);
+        this.meterRegistry = meterRegistry;
+        this.tracer = tracer;
+        this.environment = environment;
+        this.parallelCalls = parallelCalls;
+        this.turnSpans = turnSpans;
+    }
+
+    /**
+     * Builds the tool executors for the agent.
+     * Progress events are routed by the memory ID the tool was called with, an {@link AgentTurn}.
+     *
+     * @return tool specifications mapped to their executors, in declaration order
+     */
+    public Map<ToolSpecification, ToolExecutor> executors() {
+        Map<ToolSpecification, ToolExecutor> executors = new LinkedHashMap<>();
+        Map<String, ToolExecutor> byName = new HashMap<>();
+        for (AgentTool tool : tools) {
+            for (Method method : ClassUtils.getUserClass(tool).getDeclaredMethods()) {
+                if (!method.isAnnotationPresent(Tool.class)) {
+                    continue;
+                }
+                ToolSpecification specification = ToolSpecifications.toolSpecificationFrom(method);
+                ToolExecutor delegate = new DefaultToolExecutor(tool, method);
+                String progress = tool.getName() + ": " + specification.name();
+                Duration sharedFor = sharedFor(method);
+
+                byName.put(specification.name(), (request, memoryId) -> {
+                    ChatStreamListener listener = listeners.get(memoryId);
+                    if (listener != null) {
+                        listener.onToolCall(request.name(), progress);
+                    }
+                    TurnToolCalls recording = recordings.get(memoryId);
+                    if (recording != null) {
+                        recording.add(specification.name(), sharedFor);
+                    }
+                    Timer.Sample sample = Timer.start(meterRegistry);
+                    Span span = startToolSpan(memoryId, specification.name(), request.arguments());
+                    String outcome = "error";
+                    try (Tracer.SpanInScope ignored = tracer.withSpan(span)) {
+                        String result = delegate.execute(request, memoryId);
+                        outcome = "success";
+                        return result;
+                    } catch (RuntimeException e) {
+                        span.error(e);
+                        throw e;
+                    } finally {
+                        span.end();
+                        sample.stop(Timer.builder("agent.tool.invocations")
+                                .description("Agent tool calls")
+                                .tag("tool", specification.name())
+                                .tag("outcome", outcome)
+                                .register(meterRegistry));
+                    }
+                });
+                executors.put(specification, (request, memoryId) -> {
+                    turnSpans.toolCalled(request.id(), memoryId);
+                    return parallelCalls.execute(request, memoryId, byName);
+                });
+            }
+        }
+        return executors;
+    }
+
+    // Null for tools whose result depends on the user
+    private Duration sharedFor(Method method) {
+        SharedResult shared = method.getAnnotation(SharedResult.class);
+        return shared != null ? DurationStyle.detectAndParse(environment.resolveRequiredPlaceholders(shared.ttl())) : null;
+    }
+
+    /**
+     * Records the tools a turn calls until the returned recording is closed.
+     */
+    public TurnToolCalls record(AgentTurn turn) {
+        TurnToolCalls recording = new TurnToolCalls(closed -> recordings.remove(turn, closed));
+        recordings.put(turn, recording);
+        return recording;
+    }
+
+    /**
+     * Makes a turn's span the parent of tool and model call spans started on threads where
+     * no span is current, until the returned handle is run.
+     *
+     * @return a handle that removes the registration
+     */
+    public Runnable trace(AgentTurn turn, Span span) {
+        return turnSpans.register(turn, span);
+    }
+
+    private Span startToolSpan(Object memoryId, String toolName, String arguments) {
+        Span parent = tracer.currentSpan() != null ? tracer.currentSpan() : turnSpans.of(memoryId);
+        Span span = parent != null ? tracer.nextSpan(parent) : tracer.nextSpan();
+        return span.name("agent.tool " + toolName)
+                .tag("agent.tool.name", toolName)
+                .tag("agent.tool.arguments", arguments == null || arguments.length() <= MAX_ARGUMENTS_LENGTH
+                        ? String.valueOf(arguments)
+                        : arguments.substring(0, MAX_ARGUMENTS_LENGTH) + "...")
+                .start();
+    }
+
+    /**
+     * Routes the tool-call events of a turn to its streaming listener until unsubscribed.
+     *
+     * @return a handle that removes the subscription
+     */
+    public Runnable subscribe(AgentTurn turn, ChatStreamListener listener) {
+        listeners.put(turn, listener);
+        return () -> listeners.remove(turn, listener);
+    }
+}
@@ -0,0 +1,20 @@
+package com.communifilm.ai;
+
+import java.util.UUID;
+
+/**
+ * The memory ID the agent is called with for one turn: the conversation whose history the
+ * turn reads and extends, plus an ID of the turn's own.
+ * Tool executors receive it with every call, so tool events, spans and recordings reach the
+ * turn that made the call even when several turns of one conversation run at once, as every
+ * anonymous user's do in the shared "default" conversation.
+ *
+ * @param sessionKey the conversation, keying its history in the ChatMemoryStore
+ * @param id unique to this turn
+ */
+public record AgentTurn(String sessionKey, String id) {
+
+    public static AgentTurn start(String sessionKey) {
+        return new AgentTurn(sessionKey, UUID.randomUUID().toString());
+    }
+}
@@ -0,0 +1,28 @@
+package com.communifilm.ai;
+
+/**
+ * Receives the events of a single streamed agent turn, in order:
+ * zero or more tool calls and tokens, then exactly one of complete or error.
+ */
+public interface ChatStreamListener {
+
+    /**
+     * Called right before the agent runs a tool, so the client can show progress.
+     *
+     * @param toolName the tool method being invoked (e.g. "searchMovies")
+     * @param message a human-readable progress line (e.g. "Using TMDB Tool: searchMovies")
+     */
+    void onToolCall(String toolName, String message);
+
+    /**
+     * @param token the next chunk of the answer as produced by the model
+     */
+    void onToken(String token);
+
+    /**
+     * @param response the full answer
+     */
+    void onComplete(String response);
+
+    void onError(Throwable error);
+}
@@ -0,0 +1,106 @@
+package com.communifilm.ai;
+
+import dev.langchain4j.model.chat.listener.ChatModelErrorContext;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
+import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records every call the chat models make to the LLM provider.
+ * Calls are timed as {@code llm.requests}, tagged by model, outcome and finish reason,
+ * and the token usage reported in each response is counted as {@code llm.tokens},
+ * tagged by model and type (input or output).
+ * Each call is also traced as an "llm &lt;model&gt;" span, a child of the span current on
+ * the calling thread, so a model call made inside a tool nests under that tool's span.
+ * Streaming models send tool results back from their HTTP client's threads, where no span
+ * is current; those calls nest under the turn that ran the tools, found in {@link TurnSpans}.
+ *
+ * Streaming calls are timed until the last token arrives.
+ */
+public class MicrometerChatModelListener implements ChatModelListener {
+
+    private static final String START_NANOS = MicrometerChatModelListener.class.getName() + ".start";
+    private static final String SPAN = MicrometerChatModelListener.class.getName() + ".span";
+
+    private final MeterRegistry meterRegistry;
+    private final Tracer tracer;
+    private final TurnSpans turnSpans;
+
+    public MicrometerChatModelListener(MeterRegistry meterRegistry, Tracer tracer, TurnSpans turnSpans) {
+        this.meterRegistry = meterRegistry;
+        this.tracer = tracer;
+        this.turnSpans = turnSpans;
+    }
+
+    @Override
+    public void onRequest(ChatModelRequestContext context) {
+        context.attributes().put(START_NANOS, System.nanoTime());
+        Span parent = tracer.currentSpan() != null
+                ? tracer.currentSpan()
+                : turnSpans.ofToolResults(context.request().messages());
+        Span span = parent != null ? tracer.nextSpan(parent) : tracer.nextSpan();
+        context.attributes().put(SPAN, span
+                .name("llm " + context.request().model())
+                .tag("gen_ai.request.model", String.valueOf(context.request().model()))
+                .tag("gen_ai.request.messages", context.request().messages().size())
+                .remoteServiceName("openai")
+                .start());
+    }
+
+    @Override
+    public void onResponse(ChatModelResponseContext context) {
+        String model = context.request().model();
+        String finishReason = context.response().finishReason() != null ? context.response().finishReason().name() : "UNKNOWN";
+        record(context.attributes().get(START_NANOS), model, "success", finishReason);
+
+        TokenUsage usage = context.response().tokenUsage();
+        if (usage != null) {
+            count(model, "input", usage.inputTokenCount());
+            count(model, "output", usage.outputTokenCount());
+        }
+
+        if (context.attributes().get(SPAN) instanceof Span span) {
+            span.tag("gen_ai.response.finish_reason", finishReason);
+            if (usage != null && usage.inputTokenCount() != null && usage.outputTokenCount() != null) {
+                span.tag("gen_ai.usage.input_tokens", usage.inputTokenCount())
+                        .tag("gen_ai.usage.output_tokens", usage.outputTokenCount());
+            }
+            span.end();
+        }
+    }
+
+    @Override
+    public void onError(ChatModelErrorContext context) {
+        record(context.attributes().get(START_NANOS), context.request().model(), "error", "NONE");
+        if (context.attributes().get(SPAN) instanceof Span span) {
+            span.error(context.error()).end();
+        }
+    }
+
+    private void record(Object startNanos, String model, String outcome, String finishReason) {
+        if (!(startNanos instanceof Long start)) {
+            return;
+        }
+        Timer.builder("llm.requests")
+                .description("Calls to the LLM provider")
+                .tag("model", String.valueOf(model))
+                .tag("outcome", outcome)
+                .tag("finish_reason", finishReason)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void count(String model, String type, Integer tokens) {
+        if (tokens == null) {
+            return;
+        }
+        meterRegistry.counter("llm.tokens", "model", String.valueOf(model), "type", type).increment(tokens);
+    }
+}
@@ -1,18 +1,23 @@
 package com.communifilm.ai;
 
+import dev.langchain4j.service.MemoryId;
 import dev.langchain4j.service.SystemMessage;
+import dev.langchain4j.service.TokenStream;
 import dev.langchain4j.service.UserMessage;
 
 /**
  * Defines the interface for the AI-powered movie agent.
  * This agent uses a large language model (LLM) together with tools to
  * answer user queries about movies, reviews, and recommendations.
- * The chat method is the single entry point for user input: the agent interprets the message,
- * invokes the appropriate tools, and returns a response.
+ * The chat method is the entry point for user input: the agent interprets the message,
+ * invokes the appropriate tools, and returns a response. chatStream does the same but
+ * emits the response token by token as the model produces it.
+ * A single agent serves every user; the memory ID, an {@link AgentTurn}, selects whose
+ * conversation history is loaded for the turn.
  */
 public interface MovieAgent {
 
-    @SystemMessage("""
+    String SYSTEM_PROMPT = """
     You are CommuniFilm's AI movie assistant with access to tools for:
     - Analyzing movie reviews from our community
     - Recommending movies based on user preferences
@@ -39,6 +44,11 @@ public interface MovieAgent {
 
     Never make up movie information or reviews from general knowledge; always use the available tools.
     Be helpful, accurate, and engaging in your responses.
-    """)
-    String chat(@UserMessage String userMessage);
+    """;
+
+    @SystemMessage(SYSTEM_PROMPT)
+    String chat(@MemoryId AgentTurn turn, @UserMessage String userMessage);
+
+    @SystemMessage(SYSTEM_PROMPT)
+    TokenStream chatStream(@MemoryId AgentTurn turn, @UserMessage String userMessage);
 }
@@ -4,12 +4,16 @@ import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.model.chat.ChatLanguageModel;
 import com.communifilm.services.UserService;
 import com.communifilm.services.MovieService;
+import com.communifilm.services.MovieOverviewIndex;
+import com.communifilm.services.CollaborativeRecommender;
 import com.communifilm.models.User;
 import com.communifilm.models.FavoriteMovie;
 import com.communifilm.dtos.MovieDto;
+import com.communifilm.dtos.MovieRecommendationDto;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -19,6 +23,17 @@ import java.util.stream.Collectors;
  * - Recommend movies based on a user's favorite movies
  * - Suggest movies matching specific criteria or keywords
  * - Provide personalized recommendations
+ *
+ * By default the data behind a recommendation is returned to the agent, which writes the
+ * recommendation itself; see {@link ToolOutputModes}.
+ *
+ * Criteria are matched against the local {@link MovieOverviewIndex} first. Its matches are
+ * already ranked by relevance, so they are returned as data without asking the model to pick
+ * the best ones; TMDB's title search is only the fallback.
+ *
+ * Recommendations from favorites come with what other users picked alongside them, ranked by
+ * the {@link CollaborativeRecommender}, so the agent chooses from community candidates rather
+ * than inventing titles.
  */
 @Component
 @RequiredArgsConstructor
@@ -27,6 +42,9 @@ public class MovieRecommendationTool implements AgentTool {
     private final UserService userService;
     private final MovieService movieService;
     private final ChatLanguageModel model;
+    private final ToolOutputModes outputModes;
+    private final MovieOverviewIndex overviewIndex;
+    private final CollaborativeRecommender recommender;
 
     @Tool("Recommend movies based on a user's top favorite movies. Requires the user's UID.")
     public String recommendBasedOnFavorites(String userId) {
@@ -45,6 +63,19 @@ public class MovieRecommendationTool implements AgentTool {
                     user.getDisplayName() != null ? user.getDisplayName() : user.getEmail());
             }
 
+            List<MovieRecommendationDto> alsoPicked = recommender.recommend(userId, favorites, 10);
+
+            if (outputModes.forTool("recommendBasedOnFavorites") == ToolOutputMode.DATA) {
+                List<ToolData.Movie> ranked = new ArrayList<>();
+                for (MovieRecommendationDto recommendation : alsoPicked) {
+                    ranked.add(ToolData.recommendation(ranked.size() + 1, recommendation));
+                }
+                return ToolData.json(new ToolData.Favorites(
+                    user.getDisplayName(),
+                    favorites.stream().map(ToolData::favorite).collect(Collectors.toList()),
+                    ranked.isEmpty() ? null : ranked));
+            }
+
             // Build information about favorite movies
             StringBuilder favoritesInfo = new StringBuilder();
             favoritesInfo.append("User's top favorite movies:\n");
@@ -59,6 +90,15 @@ public class MovieRecommendationTool implements AgentTool {
                     fav.getOverview()
                 ));
             }
+            if (!alsoPicked.isEmpty()) {
+                favoritesInfo.append("Movies other users with these favorites also picked, most popular first:\n");
+                for (MovieRecommendationDto recommendation : alsoPicked) {
+                    favoritesInfo.append(String.format("- %s (ID: %d)\n",
+                        recommendation.getTitle() != null ? recommendation.getTitle() : "Untitled",
+                        recommendation.getMovieId()));
+                }
+                favoritesInfo.append("\nPrefer these when they fit.\n\n");
+            }
 
             String prompt = String.format(
                 "Based on these favorite movies, recommend 5 similar movies that the user might enjoy.\n\n" +
@@ -79,8 +119,18 @@ public class MovieRecommendationTool implements AgentTool {
     }
 
     @Tool("Search and recommend movies matching specific criteria or keywords (e.g., 'action movies', 'romantic comedy', 'sci-fi thriller')")
+    @SharedResult(ttl = "${tmdb.cache.search.ttl:2m}")
     public String recommendByCriteria(String criteria) {
         try {
+            List<MovieOverviewIndex.Match> matches = overviewIndex.search(criteria, 10);
+            if (!matches.isEmpty()) {
+                List<ToolData.Movie> ranked = new ArrayList<>();
+                for (MovieOverviewIndex.Match match : matches) {
+                    ranked.add(ToolData.movie(ranked.size() + 1, match.movie()));
+                }
+                return ToolData.json(new ToolData.Candidates(criteria, ranked));
+            }
+
             // Search TMDB for movies matching the criteria
             List<MovieDto> searchResults = movieService.searchMovies(criteria);
 
@@ -99,6 +149,12 @@ public class MovieRecommendationTool implements AgentTool {
                 .limit(10)
                 .collect(Collectors.toList());
 
+            if (outputModes.forTool("recommendByCriteria") == ToolOutputMode.DATA) {
+                return ToolData.json(new ToolData.Candidates(
+                    criteria,
+                    topResults.stream().map(ToolData::movie).collect(Collectors.toList())));
+            }
+
             String moviesList = topResults.stream()
                 .map(m -> String.format("- %s (ID: %d)\n  %s",
                     m.getTitle(),
@@ -121,6 +177,7 @@ public class MovieRecommendationTool implements AgentTool {
     }
 
     @Tool("Get a list of currently trending movies")
+    @SharedResult(ttl = "${tmdb.cache.trending.ttl:15m}")
     public String getTrendingMovies() {
         try {
             List<MovieDto> trendingMovies = movieService.getTrendy();
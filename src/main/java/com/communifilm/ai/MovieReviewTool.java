@@ -1,15 +1,17 @@
 package com.communifilm.ai;
 
 import dev.langchain4j.agent.tool.Tool;
-import dev.langchain4j.model.chat.ChatLanguageModel;
 import com.communifilm.services.MovieReviewService;
 import com.communifilm.services.MovieService;
+import com.communifilm.services.ReviewSummaryService;
 import com.communifilm.models.MovieReview;
+import com.communifilm.models.ReviewSummary;
 import com.communifilm.dtos.MovieDetailDto;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -25,40 +27,20 @@ public class MovieReviewTool implements AgentTool {
 
     private final MovieReviewService reviewService;
     private final MovieService movieService;
-    private final ChatLanguageModel model;
+    private final ReviewSummaryService summaryService;
 
     @Tool("Summarize and analyze reviews for a specific movie by movie ID. Returns a summary of pros, cons, and overall sentiment.")
+    @SharedResult(ttl = "${reviews.summary.cache.ttl:10m}")
     public String summarizeMovieReviews(Long movieId) {
         try {
-            // Fetch reviews from Firestore
-            List<MovieReview> reviews = reviewService.getReviewsForMovie(movieId);
+            // Served from the precomputed summary; regenerated in the background when new reviews arrive
+            String summary = summaryService.getSummary(movieId, ReviewSummary.Kind.SUMMARY);
 
-            if (reviews.isEmpty()) {
+            if (summary == null) {
                 return "No reviews found for movie ID: " + movieId + ". This movie hasn't been reviewed by the CommuniFilm community yet.";
             }
 
-            // Get movie details for context
-            MovieDetailDto movieDetails = movieService.getMovieDetails(movieId.intValue());
-            String movieTitle = movieDetails != null ? movieDetails.getTitle() : "Unknown Movie";
-
-            // Combine all review texts
-            String reviewTexts = reviews.stream()
-                .map(MovieReview::getText)
-                .collect(Collectors.joining("\n\n---\n\n"));
-
-            // Create prompt for the LLM
-            String prompt = String.format(
-                "Summarize the following %d reviews for the movie '%s' (ID: %d).\n\n" +
-                "Provide:\n" +
-                "1. Overall sentiment (positive/mixed/negative)\n" +
-                "2. Top 3 pros mentioned by reviewers\n" +
-                "3. Top 3 cons mentioned by reviewers\n" +
-                "4. A brief overall summary\n\n" +
-                "Reviews:\n%s",
-                reviews.size(), movieTitle, movieId, reviewTexts
-            );
-
-            return model.generate(prompt);
+            return summary;
 
         } catch (Exception e) {
             return "Error fetching reviews for movie ID " + movieId + ": " + e.getMessage();
@@ -66,34 +48,16 @@ public class MovieReviewTool implements AgentTool {
     }
 
     @Tool("Analyze the sentiment and common themes in reviews for a specific movie by movie ID")
+    @SharedResult(ttl = "${reviews.summary.cache.ttl:10m}")
     public String analyzeReviewSentiment(Long movieId) {
         try {
-            List<MovieReview> reviews = reviewService.getReviewsForMovie(movieId);
+            String analysis = summaryService.getSummary(movieId, ReviewSummary.Kind.SENTIMENT);
 
-            if (reviews.isEmpty()) {
+            if (analysis == null) {
                 return "No reviews found for movie ID: " + movieId;
             }
 
-            // Get movie details for context
-            MovieDetailDto movieDetails = movieService.getMovieDetails(movieId.intValue());
-            String movieTitle = movieDetails != null ? movieDetails.getTitle() : "Unknown Movie";
-
-            String reviewTexts = reviews.stream()
-                .map(MovieReview::getText)
-                .collect(Collectors.joining("\n\n---\n\n"));
-
-            String prompt = String.format(
-                "Analyze the sentiment and common themes in these %d reviews for '%s'.\n\n" +
-                "Identify:\n" +
-                "1. The overall sentiment distribution (what %% are positive, neutral, negative)\n" +
-                "2. The most frequently mentioned themes or topics\n" +
-                "3. Any recurring praise or complaints\n" +
-                "4. The general tone of the community's response\n\n" +
-                "Reviews:\n%s",
-                reviews.size(), movieTitle, reviewTexts
-            );
-
-            return model.generate(prompt);
+            return analysis;
 
         } catch (Exception e) {
             return "Error analyzing reviews for movie ID " + movieId + ": " + e.getMessage();
@@ -101,6 +65,7 @@ public class MovieReviewTool implements AgentTool {
     }
 
     @Tool("Count the number of reviews for a specific movie by movie ID")
+    @SharedResult(ttl = "${reviews.summary.cache.ttl:10m}")
     public String getReviewCount(Long movieId) {
         try {
             List<MovieReview> reviews = reviewService.getReviewsForMovie(movieId);
@@ -124,20 +89,23 @@ public class MovieReviewTool implements AgentTool {
                 return "This user hasn't posted any reviews yet on CommuniFilm.";
             }
 
+            // Look up every distinct movie at once instead of one request per review
+            Map<Integer, MovieDetailDto> movies = movieService.getMovieDetailsBatch(
+                reviews.stream()
+                    .map(review -> review.getMovieId().intValue())
+                    .collect(Collectors.toList()));
+
             StringBuilder result = new StringBuilder();
             result.append(String.format("User has posted %d review(s):\n\n", reviews.size()));
 
             for (MovieReview review : reviews) {
-                try {
-                    MovieDetailDto movieDetails = movieService.getMovieDetails(review.getMovieId().intValue());
-                    String movieTitle = movieDetails != null ? movieDetails.getTitle() : "Unknown Movie";
-
-                    result.append(String.format("Movie: %s (ID: %d)\n", movieTitle, review.getMovieId()));
-                    result.append(String.format("Review: %s\n\n", review.getText()));
-                } catch (Exception e) {
+                MovieDetailDto movieDetails = movies.get(review.getMovieId().intValue());
+                if (movieDetails != null) {
+                    result.append(String.format("Movie: %s (ID: %d)\n", movieDetails.getTitle(), review.getMovieId()));
+                } else {
                     result.append(String.format("Movie ID: %d\n", review.getMovieId()));
-                    result.append(String.format("Review: %s\n\n", review.getText()));
                 }
+                result.append(String.format("Review: %s\n\n", review.getText()));
             }
 
             return result.toString();
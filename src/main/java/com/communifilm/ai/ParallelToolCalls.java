@@ -0,0 +1,227 @@
+package com.communifilm.ai;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.service.tool.ToolExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Runs the tool calls of one assistant message concurrently.
+ * LangChain4j's AiServices executes the calls a model asks for in one message one after
+ * another, each blocking on TMDB, Firestore or a nested model call. The agent's models are
+ * wrapped by {@link #watch}, which notes the calls of every message asking for more than one
+ * tool. When AiServices executes the first of them, all of them are submitted to the agent
+ * tool executor; each execution then waits for its own result, so results still reach the
+ * conversation in the order the model asked for them.
+ *
+ * A concurrent call waits at most its tool's timeout, counted from when the message's calls
+ * were submitted: agent.tools.timeout.default, or agent.tools.timeout.&lt;toolName&gt; for one
+ * tool. A call that runs out of time is cancelled and the model is told it timed out.
+ * Messages with a single tool call run it on the calling thread, as before.
+ */
+@Component
+public class ParallelToolCalls {
+
+    private static final String PREFIX = "agent.tools.timeout.";
+
+    private final ExecutorService executor;
+    private final Function<String, Duration> timeouts;
+    private final MeterRegistry meterRegistry;
+
+    // Calls of multi-tool messages by request ID, until executed or abandoned
+    private final Cache<String, Batch> batches = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+
+    @Autowired
+    public ParallelToolCalls(@Qualifier("agentToolExecutor") ExecutorService executor,
+                             Environment environment,
+                             MeterRegistry meterRegistry) {
+        this(executor,
+                tool -> DurationStyle.detectAndParse(environment.getProperty(PREFIX + tool,
+                        environment.getProperty(PREFIX + "default", "30s"))),
+                meterRegistry);
+    }
+
+    ParallelToolCalls(ExecutorService executor, Function<String, Duration> timeouts, MeterRegistry meterRegistry) {
+        this.executor = executor;
+        this.timeouts = timeouts;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Executes a tool call, concurrently with the other calls of its message if there are any.
+     *
+     * @param tools every tool's executor by name, used to start the other calls of the message
+     */
+    public String execute(ToolExecutionRequest request, Object memoryId, Map<String, ToolExecutor> tools) {
+        Batch batch = request.id() != null ? batches.getIfPresent(request.id()) : null;
+        if (batch == null) {
+            return tools.get(request.name()).execute(request, memoryId);
+        }
+        batches.invalidate(request.id());
+
+        Future<String> result = batch.start(memoryId, tools).get(request.id());
+        Duration timeout = timeouts.apply(request.name());
+        long remaining = batch.startedAt + timeout.toNanos() - System.nanoTime();
+        try {
+            return result.get(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            meterRegistry.counter("agent.tool.timeouts", "tool", request.name()).increment();
+            return "The " + request.name() + " tool timed out after " + timeout.toSeconds()
+                    + " seconds. Answer without it, or suggest trying again later.";
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Tool " + request.name() + " failed", e.getCause());
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for tool " + request.name(), e);
+        }
+    }
+
+    /**
+     * Wraps a model so that the tool calls it asks for together are executed concurrently.
+     */
+    public ChatLanguageModel watch(ChatLanguageModel model) {
+        return new ChatLanguageModel() {
+            @Override
+            public Response<AiMessage> generate(List<ChatMessage> messages) {
+                return model.generate(messages);
+            }
+
+            @Override
+            public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+                return noted(model.generate(messages, toolSpecifications));
+            }
+
+            @Override
+            public Response<AiMessage> generate(List<ChatMessage> messages, ToolSpecification toolSpecification) {
+                return noted(model.generate(messages, toolSpecification));
+            }
+
+            @Override
+            public Set<Capability> supportedCapabilities() {
+                return model.supportedCapabilities();
+            }
+        };
+    }
+
+    /**
+     * Streaming variant of {@link #watch(ChatLanguageModel)}; calls are noted before the
+     * handler is told the response is complete.
+     */
+    public StreamingChatLanguageModel watch(StreamingChatLanguageModel model) {
+        return new StreamingChatLanguageModel() {
+            @Override
+            public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+                model.generate(messages, handler);
+            }
+
+            @Override
+            public void generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications,
+                                 StreamingResponseHandler<AiMessage> handler) {
+                model.generate(messages, toolSpecifications, noting(handler));
+            }
+
+            @Override
+            public void generate(List<ChatMessage> messages, ToolSpecification toolSpecification,
+                                 StreamingResponseHandler<AiMessage> handler) {
+                model.generate(messages, toolSpecification, noting(handler));
+            }
+        };
+    }
+
+    private StreamingResponseHandler<AiMessage> noting(StreamingResponseHandler<AiMessage> handler) {
+        return new StreamingResponseHandler<>() {
+            @Override
+            public void onNext(String token) {
+                handler.onNext(token);
+            }
+
+            @Override
+            public void onComplete(Response<AiMessage> response) {
+                handler.onComplete(noted(response));
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                handler.onError(error);
+            }
+        };
+    }
+
+    private Response<AiMessage> noted(Response<AiMessage> response) {
+        AiMessage message = response != null ? response.content() : null;
+        if (message == null || !message.hasToolExecutionRequests()) {
+            return response;
+        }
+        List<ToolExecutionRequest> requests = message.toolExecutionRequests();
+        if (requests.size() < 2 || requests.stream().anyMatch(request -> request.id() == null)) {
+            return response;
+        }
+        Batch batch = new Batch(requests);
+        for (ToolExecutionRequest request : requests) {
+            batches.put(request.id(), batch);
+        }
+        return response;
+    }
+
+    private final class Batch {
+
+        private final List<ToolExecutionRequest> requests;
+        private Map<String, Future<String>> results;
+        private long startedAt;
+
+        Batch(List<ToolExecutionRequest> requests) {
+            this.requests = requests;
+        }
+
+        // Submits every call on first use; later calls of the message find them running
+        synchronized Map<String, Future<String>> start(Object memoryId, Map<String, ToolExecutor> tools) {
+            if (results == null) {
+                startedAt = System.nanoTime();
+                results = new HashMap<>();
+                for (ToolExecutionRequest request : requests) {
+                    ToolExecutor tool = tools.get(request.name());
+                    if (tool != null) {
+                        results.put(request.id(), executor.submit(() -> tool.execute(request, memoryId)));
+                    }
+                }
+            }
+            return results;
+        }
+    }
+}
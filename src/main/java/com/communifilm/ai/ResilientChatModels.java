@@ -0,0 +1,121 @@
+package com.communifilm.ai;
+
+import com.communifilm.utils.Bulkhead;
+import com.communifilm.utils.CircuitBreaker;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Puts a chat model behind a {@link Bulkhead} and a {@link CircuitBreaker}: calls wait for a
+ * free slot, and fail at once while the breaker is open instead of waiting out the client's
+ * timeout. A streaming call holds its slot, and reports its outcome to the breaker, when the
+ * response completes or fails; a rejected streaming call is reported to its handler's onError.
+ */
+public final class ResilientChatModels {
+
+    private ResilientChatModels() {
+    }
+
+    public static ChatLanguageModel guard(ChatLanguageModel model, CircuitBreaker circuitBreaker, Bulkhead bulkhead) {
+        return new ChatLanguageModel() {
+            @Override
+            public Response<AiMessage> generate(List<ChatMessage> messages) {
+                return bulkhead.execute(() -> circuitBreaker.execute(() -> model.generate(messages)));
+            }
+
+            @Override
+            public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+                return bulkhead.execute(() -> circuitBreaker.execute(() -> model.generate(messages, toolSpecifications)));
+            }
+
+            @Override
+            public Response<AiMessage> generate(List<ChatMessage> messages, ToolSpecification toolSpecification) {
+                return bulkhead.execute(() -> circuitBreaker.execute(() -> model.generate(messages, toolSpecification)));
+            }
+
+            @Override
+            public Set<Capability> supportedCapabilities() {
+                return model.supportedCapabilities();
+            }
+        };
+    }
+
+    public static StreamingChatLanguageModel guard(StreamingChatLanguageModel model, CircuitBreaker circuitBreaker,
+                                                   Bulkhead bulkhead) {
+        return new StreamingChatLanguageModel() {
+            @Override
+            public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+                guarded(handler, guardedHandler -> model.generate(messages, guardedHandler));
+            }
+
+            @Override
+            public void generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications,
+                                 StreamingResponseHandler<AiMessage> handler) {
+                guarded(handler, guardedHandler -> model.generate(messages, toolSpecifications, guardedHandler));
+            }
+
+            @Override
+            public void generate(List<ChatMessage> messages, ToolSpecification toolSpecification,
+                                 StreamingResponseHandler<AiMessage> handler) {
+                guarded(handler, guardedHandler -> model.generate(messages, toolSpecification, guardedHandler));
+            }
+
+            private void guarded(StreamingResponseHandler<AiMessage> handler,
+                                 Consumer<StreamingResponseHandler<AiMessage>> call) {
+                try {
+                    bulkhead.acquire();
+                } catch (Bulkhead.FullException e) {
+                    handler.onError(e);
+                    return;
+                }
+                if (!circuitBreaker.tryAcquire()) {
+                    bulkhead.release();
+                    handler.onError(new CircuitBreaker.OpenException("openai"));
+                    return;
+                }
+
+                AtomicBoolean finished = new AtomicBoolean();
+                StreamingResponseHandler<AiMessage> guardedHandler = new StreamingResponseHandler<>() {
+                    @Override
+                    public void onNext(String token) {
+                        handler.onNext(token);
+                    }
+
+                    @Override
+                    public void onComplete(Response<AiMessage> response) {
+                        if (finished.compareAndSet(false, true)) {
+                            circuitBreaker.onSuccess();
+                            bulkhead.release();
+                        }
+                        handler.onComplete(response);
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        if (finished.compareAndSet(false, true)) {
+                            circuitBreaker.onError(error);
+                            bulkhead.release();
+                        }
+                        handler.onError(error);
+                    }
+                };
+                try {
+                    call.accept(guardedHandler);
+                } catch (RuntimeException e) {
+                    guardedHandler.onError(e);
+                }
+            }
+        };
+    }
+}
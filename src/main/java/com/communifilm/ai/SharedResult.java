@@ -0,0 +1,26 @@
+package com.communifilm.ai;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a @Tool method whose result is the same whoever asks, so an answer built from it
+ * may be served to other users until the data behind it goes stale.
+ * Tools without this annotation (anything reading a user's favorites, reviews or other
+ * per-user data) make the answer of the turn that called them uncacheable.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SharedResult {
+
+    /**
+     * How long the result stays valid, as a duration such as "15m". Property placeholders
+     * are resolved, so the lifetime can follow the cache of the data source the tool reads,
+     * e.g. "${tmdb.cache.trending.ttl:15m}".
+     */
+    String ttl();
+}
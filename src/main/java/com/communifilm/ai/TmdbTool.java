@@ -8,7 +8,10 @@ import com.communifilm.dtos.MovieDto;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
@@ -17,6 +20,8 @@ import java.util.stream.Collectors;
  * - Get detailed information about specific movies
  * - Search for movies by title or keywords
  * - Retrieve currently trending movies
+ *
+ * Details and comparisons are returned as compact data by default; see {@link ToolOutputModes}.
  */
 @Component
 @RequiredArgsConstructor
@@ -24,8 +29,10 @@ public class TmdbTool implements AgentTool {
 
     private final MovieService movieService;
     private final ChatLanguageModel model;
+    private final ToolOutputModes outputModes;
 
     @Tool("Get detailed information about a specific movie by its TMDB ID")
+    @SharedResult(ttl = "${tmdb.cache.details.ttl:6h}")
     public String getMovieDetails(int movieId) {
         try {
             MovieDetailDto details = movieService.getMovieDetails(movieId);
@@ -34,6 +41,10 @@ public class TmdbTool implements AgentTool {
                 return "Movie not found with ID: " + movieId;
             }
 
+            if (outputModes.forTool("getMovieDetails") == ToolOutputMode.DATA) {
+                return ToolData.json(ToolData.movie(details));
+            }
+
             String prompt = String.format(
                 "Present this movie information in a friendly, conversational way:\n\n" +
                 "Title: %s\n" +
@@ -55,6 +66,7 @@ public class TmdbTool implements AgentTool {
     }
 
     @Tool("Search for movies by title or keywords in the TMDB database")
+    @SharedResult(ttl = "${tmdb.cache.search.ttl:2m}")
     public String searchMovies(String query) {
         try {
             List<MovieDto> results = movieService.searchMovies(query);
@@ -97,6 +109,7 @@ public class TmdbTool implements AgentTool {
     }
 
     @Tool("Get a list of currently trending movies this week")
+    @SharedResult(ttl = "${tmdb.cache.trending.ttl:15m}")
     public String getTrendingMovies() {
         try {
             List<MovieDto> trendingMovies = movieService.getTrendy();
@@ -134,6 +147,7 @@ public class TmdbTool implements AgentTool {
     }
 
     @Tool("Provide a quick summary comparing multiple movies by their IDs")
+    @SharedResult(ttl = "${tmdb.cache.details.ttl:6h}")
     public String compareMovies(int[] movieIds) {
         try {
             if (movieIds.length < 2) {
@@ -144,11 +158,23 @@ public class TmdbTool implements AgentTool {
                 return "Please provide no more than 5 movie IDs to compare.";
             }
 
+            Map<Integer, MovieDetailDto> movies = movieService.getMovieDetailsBatch(
+                Arrays.stream(movieIds).boxed().collect(Collectors.toList()));
+
+            if (outputModes.forTool("compareMovies") == ToolOutputMode.DATA) {
+                // The agent does the comparing itself
+                return ToolData.json(Arrays.stream(movieIds)
+                    .mapToObj(movies::get)
+                    .filter(Objects::nonNull)
+                    .map(ToolData::movie)
+                    .collect(Collectors.toList()));
+            }
+
             StringBuilder moviesInfo = new StringBuilder();
             moviesInfo.append("Movies to compare:\n\n");
 
             for (int movieId : movieIds) {
-                MovieDetailDto details = movieService.getMovieDetails(movieId);
+                MovieDetailDto details = movies.get(movieId);
                 if (details != null) {
                     moviesInfo.append(String.format(
                         "- **%s** (ID: %d)\n" +
@@ -0,0 +1,76 @@
+package com.communifilm.ai;
+
+import com.communifilm.dtos.MovieDetailDto;
+import com.communifilm.dtos.MovieDto;
+import com.communifilm.dtos.MovieRecommendationDto;
+import com.communifilm.models.FavoriteMovie;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.List;
+
+/**
+ * Compact JSON renderings of movie data for tools running in {@link ToolOutputMode#DATA}.
+ * Only the fields the agent needs are kept, missing values are omitted and overviews are
+ * capped, so a result costs the agent as few input tokens as possible.
+ */
+final class ToolData {
+
+    private static final int MAX_OVERVIEW_LENGTH = 300;
+    private static final ObjectMapper JSON = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    private ToolData() {
+    }
+
+    record Movie(Integer rank, long id, String title, String released, Double rating, String overview) {
+    }
+
+    record Favorites(String user, List<Movie> favorites, List<Movie> alsoPicked) {
+    }
+
+    record Candidates(String criteria, List<Movie> candidates) {
+    }
+
+    static Movie movie(MovieDto movie) {
+        return movie(null, movie);
+    }
+
+    static Movie movie(Integer rank, MovieDto movie) {
+        return new Movie(rank, movie.getId(), movie.getTitle(), null, null, overview(movie.getOverview()));
+    }
+
+    static Movie movie(MovieDetailDto details) {
+        return new Movie(null, details.getId(), details.getTitle(), details.getReleaseDate(),
+                rating(details.getVoteAverage()), overview(details.getOverview()));
+    }
+
+    static Movie favorite(FavoriteMovie favorite) {
+        return new Movie(favorite.getRank(), favorite.getMovieId(), favorite.getTitle(), favorite.getReleaseDate(),
+                rating(favorite.getVoteAverage()), overview(favorite.getOverview()));
+    }
+
+    static Movie recommendation(int rank, MovieRecommendationDto recommendation) {
+        return new Movie(rank, recommendation.getMovieId(), recommendation.getTitle(), null, null, null);
+    }
+
+    static String json(Object value) {
+        try {
+            return JSON.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize tool result", e);
+        }
+    }
+
+    private static Double rating(double voteAverage) {
+        return Math.round(voteAverage * 10) / 10.0;
+    }
+
+    private static String overview(String overview) {
+        if (overview == null || overview.isEmpty()) {
+            return null;
+        }
+        return overview.length() <= MAX_OVERVIEW_LENGTH ? overview : overview.substring(0, MAX_OVERVIEW_LENGTH) + "...";
+    }
+}
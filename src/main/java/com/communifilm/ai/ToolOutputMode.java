@@ -0,0 +1,18 @@
+package com.communifilm.ai;
+
+/**
+ * How an agent tool hands its result back to the agent.
+ */
+public enum ToolOutputMode {
+    /**
+     * Compact JSON that the agent phrases for the user itself.
+     * The agent turn then costs one LLM round trip for the answer.
+     */
+    DATA,
+
+    /**
+     * The tool asks the model to write prose from the data first and returns that text.
+     * This costs an extra, serial LLM round trip per tool call.
+     */
+    GENERATED
+}
@@ -0,0 +1,46 @@
+package com.communifilm.ai;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Per-tool choice of {@link ToolOutputMode}.
+ * agent.tools.output-mode.default sets the mode for every tool. A tool can be overridden
+ * by its method name, e.g. agent.tools.output-mode.compareMovies=generated.
+ */
+@Component
+public class ToolOutputModes {
+
+    private static final String PREFIX = "agent.tools.output-mode.";
+
+    private final ToolOutputMode defaultMode;
+    private final Function<String, String> overrides;
+
+    @Autowired
+    public ToolOutputModes(Environment environment) {
+        this(parse(environment.getProperty(PREFIX + "default", "data")),
+                tool -> environment.getProperty(PREFIX + tool));
+    }
+
+    ToolOutputModes(ToolOutputMode defaultMode, Function<String, String> overrides) {
+        this.defaultMode = defaultMode;
+        this.overrides = overrides;
+    }
+
+    /**
+     * @param toolName the tool's method name, as exposed to the model
+     * @return the mode configured for the tool, or the default
+     */
+    public ToolOutputMode forTool(String toolName) {
+        String override = overrides.apply(toolName);
+        return override != null ? parse(override) : defaultMode;
+    }
+
+    private static ToolOutputMode parse(String value) {
+        return ToolOutputMode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,68 @@
+package com.communifilm.ai;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import io.micrometer.tracing.Span;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The spans of agent turns in progress, for parenting the spans of work a turn causes on
+ * threads where its span is not current.
+ * Streaming models run tools, and send the model call that follows them, on their HTTP
+ * client's threads. Tool spans find their turn by the memory ID the tool is called with;
+ * model calls by the tool results they carry, whose IDs are noted as the tools run.
+ */
+@Component
+public class TurnSpans {
+
+    private final Map<Object, Span> turns = new ConcurrentHashMap<>();
+    // Turn that ran each tool call, by tool execution request ID
+    private final Map<String, Object> toolCalls = new ConcurrentHashMap<>();
+
+    /**
+     * Registers a turn's span until the returned handle is run.
+     *
+     * @return a handle that removes the registration
+     */
+    public Runnable register(AgentTurn turn, Span span) {
+        turns.put(turn, span);
+        return () -> {
+            turns.remove(turn, span);
+            toolCalls.values().removeIf(turn::equals);
+        };
+    }
+
+    /**
+     * The span of the turn a tool is called with, or null if the turn is not registered.
+     */
+    public Span of(Object memoryId) {
+        return turns.get(memoryId);
+    }
+
+    /**
+     * Notes that a registered turn is running a tool call, so the model call sending its
+     * result back can be parented on the turn.
+     */
+    public void toolCalled(String requestId, Object memoryId) {
+        if (requestId != null && turns.containsKey(memoryId)) {
+            toolCalls.put(requestId, memoryId);
+        }
+    }
+
+    /**
+     * The span of the turn whose tool results end these messages, or null if they do not end
+     * with the result of a tool call a registered turn ran.
+     */
+    public Span ofToolResults(List<ChatMessage> messages) {
+        if (messages.isEmpty() || !(messages.get(messages.size() - 1) instanceof ToolExecutionResultMessage result)
+                || result.id() == null) {
+            return null;
+        }
+        Object turn = toolCalls.get(result.id());
+        return turn != null ? turns.get(turn) : null;
+    }
+}
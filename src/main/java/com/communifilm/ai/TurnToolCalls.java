@@ -0,0 +1,57 @@
+package com.communifilm.ai;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * The tools called during one agent turn, recorded by {@link AgentToolbox#record}.
+ * Tells whether the turn's answer depends only on data that is the same for every user,
+ * and for how long that data stays valid.
+ */
+public final class TurnToolCalls implements AutoCloseable {
+
+    private final Consumer<TurnToolCalls> onClose;
+    private final List<String> tools = new ArrayList<>();
+    private Duration sharedFor;
+    private boolean userSpecific;
+
+    TurnToolCalls(Consumer<TurnToolCalls> onClose) {
+        this.onClose = onClose;
+    }
+
+    synchronized void add(String tool, Duration ttl) {
+        tools.add(tool);
+        if (ttl == null) {
+            userSpecific = true;
+        } else if (sharedFor == null || ttl.compareTo(sharedFor) < 0) {
+            sharedFor = ttl;
+        }
+    }
+
+    public synchronized List<String> tools() {
+        return List.copyOf(tools);
+    }
+
+    /**
+     * @param withoutTools lifetime of an answer for which no tool was called
+     * @return how long the answer may be shared across users: the shortest lifetime of
+     *         the tools called, or empty if any of them returned user-specific data
+     */
+    public synchronized Optional<Duration> sharedFor(Duration withoutTools) {
+        if (userSpecific) {
+            return Optional.empty();
+        }
+        return Optional.of(sharedFor != null ? sharedFor : withoutTools);
+    }
+
+    /**
+     * Stops recording.
+     */
+    @Override
+    public void close() {
+        onClose.accept(this);
+    }
+}
@@ -1,15 +1,48 @@
 package com.communifilm.configs;
 
+import com.communifilm.ai.MicrometerChatModelListener;
+import com.communifilm.ai.ResilientChatModels;
+import com.communifilm.ai.TurnSpans;
+import com.communifilm.services.AgentSessionStore;
+import com.communifilm.services.FirestoreChatMemoryStore;
+import com.communifilm.services.SessionChatMemoryStore;
+import com.communifilm.utils.Bulkhead;
+import com.communifilm.utils.CircuitBreaker;
+import com.google.cloud.firestore.Firestore;
+import dev.langchain4j.model.Tokenizer;
 import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.allminilml6v2q.AllMiniLmL6V2QuantizedEmbeddingModel;
 import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.openai.OpenAiChatModelName;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import dev.langchain4j.model.openai.OpenAiTokenizer;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.List;
+
 /**
  * Configuration class for AI-related beans.
  * This class sets up the ChatLanguageModel (OpenAI) that will be used
- * by all AI tools in the application.
+ * by all AI tools in the application, plus a streaming variant used by the
+ * agent's token-by-token chat endpoint, and the store that holds the
+ * agent's conversation history. Both models report each call to
+ * {@link MicrometerChatModelListener}.
+ *
+ * Each OpenAI request gives up after openai.timeout and is retried at most
+ * openai.max-retries times. Both models sit behind the "openai" circuit breaker and bulkhead
+ * (see {@link ResilienceConfig}), so a struggling OpenAI is failed fast rather than
+ * holding every caller for the full timeout.
  */
 @Configuration
 public class AiConfigs {
@@ -17,6 +50,12 @@ public class AiConfigs {
     @Value("${openai.api.key:}")
     private String openaiApiKey;
 
+    @Value("${openai.timeout:30s}")
+    private Duration timeout;
+
+    @Value("${openai.max-retries:1}")
+    private int maxRetries;
+
     /**
      * Creates a ChatLanguageModel bean using OpenAI's GPT model.
      * This model is injected into all AI tools for generating responses.
@@ -24,7 +63,103 @@ public class AiConfigs {
      * @return ChatLanguageModel instance configured for OpenAI
      */
     @Bean
-    public ChatLanguageModel chatLanguageModel() {
+    public ChatLanguageModel chatLanguageModel(ChatModelListener chatModelListener,
+                                               @Qualifier("openAiCircuitBreaker") CircuitBreaker circuitBreaker,
+                                               @Qualifier("openAiBulkhead") Bulkhead bulkhead) {
+        requireApiKey();
+
+        return ResilientChatModels.guard(OpenAiChatModel.builder()
+            .apiKey(openaiApiKey)
+            .modelName("gpt-4o-mini")  // Using cost-effective mini model
+            .temperature(0.7)           // Balanced creativity/consistency
+            .maxTokens(1000)            // Limit response length
+            .timeout(timeout)
+            .maxRetries(maxRetries)
+            .listeners(List.of(chatModelListener))
+            .build(), circuitBreaker, bulkhead);
+    }
+
+    /**
+     * Creates a StreamingChatLanguageModel bean with the same settings as
+     * {@link #chatLanguageModel()}. Tokens are pushed to a handler as they arrive,
+     * which lets the agent start answering before the whole completion is ready.
+     *
+     * @return StreamingChatLanguageModel instance configured for OpenAI
+     */
+    @Bean
+    public StreamingChatLanguageModel streamingChatLanguageModel(ChatModelListener chatModelListener,
+                                                                 @Qualifier("openAiCircuitBreaker") CircuitBreaker circuitBreaker,
+                                                                 @Qualifier("openAiBulkhead") Bulkhead bulkhead) {
+        requireApiKey();
+
+        // The streaming client does not retry; the timeout covers the whole stream
+        return ResilientChatModels.guard(OpenAiStreamingChatModel.builder()
+            .apiKey(openaiApiKey)
+            .modelName("gpt-4o-mini")
+            .temperature(0.7)
+            .maxTokens(1000)
+            .timeout(timeout)
+            .listeners(List.of(chatModelListener))
+            .build(), circuitBreaker, bulkhead);
+    }
+
+    /**
+     * Times and traces LLM calls and counts the tokens they use.
+     *
+     * @return ChatModelListener publishing llm.* metrics and spans
+     */
+    @Bean
+    public ChatModelListener chatModelListener(MeterRegistry meterRegistry, Tracer tracer, TurnSpans turnSpans) {
+        return new MicrometerChatModelListener(meterRegistry, tracer, turnSpans);
+    }
+
+    /**
+     * Estimates token counts with the chat model's own encoding, for sizing prompts.
+     *
+     * @return Tokenizer matching gpt-4o-mini
+     */
+    @Bean
+    public Tokenizer tokenizer() {
+        return new OpenAiTokenizer(OpenAiChatModelName.GPT_4_O_MINI);
+    }
+
+    /**
+     * Embeds short texts in-process with a quantized all-MiniLM-L6-v2 (384 dimensions),
+     * so similarity lookups cost a few milliseconds of CPU instead of a provider round trip.
+     *
+     * @return EmbeddingModel running on ONNX Runtime
+     */
+    @Bean
+    public EmbeddingModel embeddingModel() {
+        return new AllMiniLmL6V2QuantizedEmbeddingModel();
+    }
+
+    /**
+     * Persists agent conversations in Firestore so they survive restarts and are
+     * shared by every instance behind the load balancer. This is the default.
+     *
+     * @return ChatMemoryStore backed by Firestore with write-behind, conditional writes
+     */
+    @Bean
+    @ConditionalOnProperty(name = "agent.memory.store", havingValue = "firestore", matchIfMissing = true)
+    public ChatMemoryStore firestoreChatMemoryStore(Firestore firestore, AgentSessionStore sessionStore,
+                                                    MeterRegistry meterRegistry,
+                                                    @Value("${agent.memory.max-staleness:1s}") Duration maxStaleness) {
+        return new FirestoreChatMemoryStore(firestore, sessionStore, maxStaleness, meterRegistry);
+    }
+
+    /**
+     * Keeps agent conversations in this JVM only.
+     *
+     * @return ChatMemoryStore backed by the in-process session store
+     */
+    @Bean
+    @ConditionalOnProperty(name = "agent.memory.store", havingValue = "in-memory")
+    public ChatMemoryStore inMemoryChatMemoryStore(AgentSessionStore sessionStore) {
+        return new SessionChatMemoryStore(sessionStore);
+    }
+
+    private void requireApiKey() {
         // Check if API key is configured
         if (openaiApiKey == null || openaiApiKey.isEmpty()) {
             throw new IllegalStateException(
@@ -33,12 +168,5 @@ public class AiConfigs {
                 "add openai.api.key to application.properties"
             );
         }
-
-        return OpenAiChatModel.builder()
-            .apiKey(openaiApiKey)
-            .modelName("gpt-4o-mini")  // Using cost-effective mini model
-            .temperature(0.7)           // Balanced creativity/consistency
-            .maxTokens(1000)            // Limit response length
-            .build();
     }
 }
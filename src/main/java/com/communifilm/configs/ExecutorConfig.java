@@ -0,0 +1,105 @@
+package com.communifilm.configs;
+
+import io.micrometer.tracing.Tracer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executors for fanning out blocking I/O.
+ * Each upstream gets its own pool so its concurrency is bounded independently
+ * and a slow dependency cannot starve the others.
+ *
+ * With spring.threads.virtual.enabled=true, Spring Boot runs Tomcat, @Async and
+ * @Scheduled work on virtual threads, and the executors here follow suit: each task
+ * gets its own virtual thread and a semaphore takes over the pool's job of capping
+ * how many requests are in flight against the upstream.
+ *
+ * Tasks run in the trace context of the thread that submitted them, so spans they
+ * start (e.g. TMDB calls) stay children of the request that fanned out.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    @Value("${tmdb.fanout.max-concurrency:8}")
+    private int tmdbMaxConcurrency;
+
+    @Value("${llm.fanout.max-concurrency:4}")
+    private int llmMaxConcurrency;
+
+    @Value("${agent.tools.max-concurrency:16}")
+    private int agentToolMaxConcurrency;
+
+    /**
+     * Runs concurrent TMDB lookups (e.g. details for every movie a user reviewed).
+     * The pool size caps how many requests a single caller can have in flight.
+     */
+    @Bean(name = "tmdbExecutor", destroyMethod = "shutdown")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ExecutorService tmdbExecutor(Tracer tracer) {
+        return tracer.currentTraceContext().wrap(
+                Executors.newFixedThreadPool(tmdbMaxConcurrency, new CustomizableThreadFactory("tmdb-")));
+    }
+
+    /**
+     * Virtual-thread variant of {@link #tmdbExecutor(Tracer)} with the same concurrency cap.
+     */
+    @Bean(name = "tmdbExecutor", destroyMethod = "shutdown")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public ExecutorService virtualTmdbExecutor(Tracer tracer) {
+        return tracer.currentTraceContext().wrap(new ConcurrencyLimitedExecutorService(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("tmdb-", 0).factory()),
+                tmdbMaxConcurrency));
+    }
+
+    /**
+     * Runs concurrent LLM calls (e.g. the map phase of a large review summary).
+     * The pool size caps how many completions one caller can have in flight.
+     */
+    @Bean(name = "llmExecutor", destroyMethod = "shutdown")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ExecutorService llmExecutor(Tracer tracer) {
+        return tracer.currentTraceContext().wrap(
+                Executors.newFixedThreadPool(llmMaxConcurrency, new CustomizableThreadFactory("llm-")));
+    }
+
+    /**
+     * Virtual-thread variant of {@link #llmExecutor(Tracer)} with the same concurrency cap.
+     */
+    @Bean(name = "llmExecutor", destroyMethod = "shutdown")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public ExecutorService virtualLlmExecutor(Tracer tracer) {
+        return tracer.currentTraceContext().wrap(new ConcurrencyLimitedExecutorService(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("llm-", 0).factory()),
+                llmMaxConcurrency));
+    }
+
+    /**
+     * Runs the tool calls an agent message asks for together, across all conversations.
+     * The pool size caps how many tool calls are in flight at once; calls beyond it queue
+     * and count against their tool's timeout.
+     */
+    @Bean(name = "agentToolExecutor", destroyMethod = "shutdown")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ExecutorService agentToolExecutor(Tracer tracer) {
+        return tracer.currentTraceContext().wrap(
+                Executors.newFixedThreadPool(agentToolMaxConcurrency, new CustomizableThreadFactory("agent-tool-")));
+    }
+
+    /**
+     * Virtual-thread variant of {@link #agentToolExecutor(Tracer)} with the same concurrency cap.
+     */
+    @Bean(name = "agentToolExecutor", destroyMethod = "shutdown")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public ExecutorService virtualAgentToolExecutor(Tracer tracer) {
+        return tracer.currentTraceContext().wrap(new ConcurrencyLimitedExecutorService(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("agent-tool-", 0).factory()),
+                agentToolMaxConcurrency));
+    }
+}
@@ -1,6 +1,7 @@
 package com.communifilm.configs;
 
 import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.firestore.FirestoreOptions;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 import com.google.firebase.cloud.FirestoreClient;
@@ -21,8 +22,22 @@ public class FirestoreConfig {
     @Value("${firebase.project-id}")
     private String firebaseProjectId;
 
+    // host:port of a local Firestore emulator; when set, no credentials are needed
+    @Value("${firebase.emulator-host:}")
+    private String emulatorHost;
+
     @Bean
     public Firestore firestore() throws IOException {
+        if (!emulatorHost.isBlank()) {
+            System.out.println("🧪 Connected to Firestore EMULATOR at " + emulatorHost + " for project: " + firebaseProjectId);
+
+            return FirestoreOptions.newBuilder()
+                    .setProjectId(firebaseProjectId)
+                    .setEmulatorHost(emulatorHost)
+                    .build()
+                    .getService();
+        }
+
         // Load service account key
         FileInputStream serviceAccount = new FileInputStream(firebaseCredentialsPath);
 
@@ -0,0 +1,80 @@
+package com.communifilm.configs;
+
+import com.communifilm.services.TmdbGateway;
+import com.communifilm.utils.Bulkhead;
+import com.communifilm.utils.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Circuit breakers and bulkheads guarding the upstreams.
+ * Each upstream gets its own breaker, so TMDB failing fast does not affect OpenAI and
+ * the other way round, and its own bulkhead, so a slow upstream can only hold a bounded
+ * number of request threads. Agent turns have a bulkhead of their own, which keeps enough
+ * Tomcat threads free for the review, user and movie endpoints however busy the agent gets.
+ */
+@Configuration
+public class ResilienceConfig {
+
+    /**
+     * Opens when TMDB keeps timing out or failing. Client errors such as a 404 for an
+     * unknown movie are TMDB working as intended and do not count; 429s and 5xx do.
+     */
+    @Bean
+    public CircuitBreaker tmdbCircuitBreaker(MeterRegistry meterRegistry,
+                                             @Value("${tmdb.circuit-breaker.window-size:50}") int windowSize,
+                                             @Value("${tmdb.circuit-breaker.minimum-calls:10}") int minimumCalls,
+                                             @Value("${tmdb.circuit-breaker.failure-rate:0.5}") double failureRate,
+                                             @Value("${tmdb.circuit-breaker.open-duration:30s}") Duration openDuration) {
+        return new CircuitBreaker("tmdb", windowSize, minimumCalls, failureRate, openDuration,
+                TmdbGateway::isUpstreamFailure, meterRegistry);
+    }
+
+    /**
+     * Caps TMDB calls in flight across request threads and fan-out executors.
+     */
+    @Bean
+    public Bulkhead tmdbBulkhead(MeterRegistry meterRegistry,
+                                 @Value("${tmdb.bulkhead.max-concurrent:32}") int maxConcurrent,
+                                 @Value("${tmdb.bulkhead.max-wait:250ms}") Duration maxWait) {
+        return new Bulkhead("tmdb", maxConcurrent, maxWait, meterRegistry);
+    }
+
+    /**
+     * Opens when OpenAI keeps timing out or failing; every error counts.
+     */
+    @Bean
+    public CircuitBreaker openAiCircuitBreaker(MeterRegistry meterRegistry,
+                                               @Value("${openai.circuit-breaker.window-size:20}") int windowSize,
+                                               @Value("${openai.circuit-breaker.minimum-calls:5}") int minimumCalls,
+                                               @Value("${openai.circuit-breaker.failure-rate:0.5}") double failureRate,
+                                               @Value("${openai.circuit-breaker.open-duration:30s}") Duration openDuration) {
+        return new CircuitBreaker("openai", windowSize, minimumCalls, failureRate, openDuration,
+                error -> true, meterRegistry);
+    }
+
+    /**
+     * Caps OpenAI calls in flight, including the ones tools and review summaries make on
+     * request threads. Streaming calls hold their slot until the last token arrives.
+     */
+    @Bean
+    public Bulkhead openAiBulkhead(MeterRegistry meterRegistry,
+                                   @Value("${openai.bulkhead.max-concurrent:64}") int maxConcurrent,
+                                   @Value("${openai.bulkhead.max-wait:1s}") Duration maxWait) {
+        return new Bulkhead("openai", maxConcurrent, maxWait, meterRegistry);
+    }
+
+    /**
+     * Caps concurrent agent turns, streaming or not. A turn that finds it full is turned
+     * away at once rather than queued behind minutes of model calls.
+     */
+    @Bean
+    public Bulkhead agentBulkhead(MeterRegistry meterRegistry,
+                                  @Value("${agent.bulkhead.max-concurrent:32}") int maxConcurrent) {
+        return new Bulkhead("agent", maxConcurrent, Duration.ZERO, meterRegistry);
+    }
+}
@@ -1,13 +1,16 @@
 package com.communifilm.configs;
 
 import com.communifilm.services.GoogleAuthService;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 
 import java.util.List;
@@ -17,7 +20,8 @@ import java.util.List;
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http, GoogleAuthService googleAuthService) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, GoogleAuthService googleAuthService,
+                                                   Environment environment) throws Exception {
         http.cors(cors -> cors.configurationSource(request -> {
                     CorsConfiguration configuration = new CorsConfiguration();
                     configuration.setAllowedOrigins(List.of("http://localhost:3000"));
@@ -29,11 +33,33 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // Endpoints returning a future or an SseEmitter write their response on an ASYNC
+                        // dispatch, and errors are rendered on an ERROR dispatch. The token was checked on the
+                        // original request, and GoogleAuthFilter does not run again for these, so they have no
+                        // authentication of their own
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                         .requestMatchers("/users/login").permitAll() // Allow anyone to access the signup endpoint
+                        .requestMatchers("/actuator/health").permitAll() // Liveness and readiness probes
+                        .requestMatchers(managementPort(environment)).permitAll() // Metric scrapes, off the public network
                         .anyRequest().authenticated()   // All other endpoints require authentication
                 )
                 .addFilterBefore(new GoogleAuthFilter(googleAuthService), UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
     }
+
+    /**
+     * Matches requests that came in on management.server.port, when it differs from the
+     * application's port. Actuator endpoints such as /actuator/prometheus are served only
+     * there, so they are reachable from inside the network and nowhere else; on a shared
+     * port they need a signed-in user like any other endpoint.
+     */
+    private static RequestMatcher managementPort(Environment environment) {
+        return request -> {
+            Integer managementPort = environment.getProperty("local.management.port", Integer.class);
+            Integer serverPort = environment.getProperty("local.server.port", Integer.class);
+            return managementPort != null && !managementPort.equals(serverPort)
+                    && request.getLocalPort() == managementPort;
+        };
+    }
 }
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.communifilm.configs;
+
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Where finished spans go.
+ * Spans are exported over OTLP when management.otlp.tracing.endpoint is set (configured
+ * by Spring Boot), and/or appended to a local JSON-lines file when tracing.file.path
+ * is set. Every exporter bean receives every sampled span.
+ */
+@Configuration
+public class TracingConfig {
+
+    /**
+     * Writes spans to a local file, for offline inspection and tests.
+     *
+     * @return SpanExporter appending one JSON object per span
+     */
+    @Bean
+    @ConditionalOnProperty(name = "tracing.file.path")
+    public SpanExporter fileSpanExporter(@Value("${tracing.file.path}") Path path) throws IOException {
+        return new FileSpanExporter(path);
+    }
+}
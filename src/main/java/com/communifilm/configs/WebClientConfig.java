@@ -1,18 +1,69 @@
 package com.communifilm.configs;
 
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+
 @Configuration
 public class WebClientConfig {
 
+    @Value("${http.client.max-connections:100}")
+    private int maxConnections;
+
+    @Value("${http.client.max-connections-per-route:50}")
+    private int maxConnectionsPerRoute;
+
+    @Value("${http.client.connect-timeout:2s}")
+    private Duration connectTimeout;
+
+    @Value("${http.client.read-timeout:5s}")
+    private Duration readTimeout;
+
+    @Value("${http.client.pool-timeout:1s}")
+    private Duration poolTimeout;
+
     /**
      * Creates a RestTemplate bean for making synchronous HTTP requests.
-     * @return A new RestTemplate instance.
+     * Connections are pooled and kept alive so repeated TMDB calls skip the TCP/TLS handshake,
+     * and every phase of a request is bounded by a timeout.
+     * @return A RestTemplate backed by a pooled Apache HttpClient.
      */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(CloseableHttpClient httpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient httpClient() {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(readTimeout))
+                        .build())
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(poolTimeout))
+                        .setResponseTimeout(Timeout.of(readTimeout))
+                        .build())
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                .evictExpiredConnections()
+                .build();
     }
-}
\ No newline at end of file
+}
@@ -1,11 +1,20 @@
 package com.communifilm.controllers;
 
+import com.communifilm.ai.ChatStreamListener;
 import com.communifilm.services.MovieAgentService;
+import com.communifilm.utils.Bulkhead;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
 
 /**
  * REST controller for the AI movie agent.
@@ -18,6 +27,10 @@ import org.springframework.web.bind.annotation.*;
 @Slf4j
 public class AgentController {
 
+    private static final long STREAM_TIMEOUT_MS = Duration.ofMinutes(2).toMillis();
+    private static final String BUSY_RETRY_AFTER_SECONDS = "5";
+    private static final String BUSY_MESSAGE = "The assistant is busy right now. Please try again in a few seconds.";
+
     private final MovieAgentService agentService;
 
     /**
@@ -27,14 +40,15 @@ public class AgentController {
      *
      * @param request The chat request containing the user's message
      * @param authentication The authentication object (optional)
-     * @return ChatResponse containing the agent's reply
+     * @return ChatResponse containing the agent's reply, or 503 with Retry-After when too many
+     *         agent turns are already running
      */
     @PostMapping("/chat")
     public ResponseEntity<ChatResponse> chat(
             @RequestBody ChatRequest request,
             Authentication authentication) {
 
-        log.info("Received chat request: {}", request.message());
+        log.debug("Received chat request ({} chars)", request.message() != null ? request.message().length() : 0);
 
         if (request.message() == null || request.message().trim().isEmpty()) {
             return ResponseEntity.badRequest()
@@ -57,6 +71,11 @@ public class AgentController {
 
             return ResponseEntity.ok(new ChatResponse(response));
 
+        } catch (Bulkhead.FullException e) {
+            log.warn("Refusing chat request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, BUSY_RETRY_AFTER_SECONDS)
+                .body(new ChatResponse(BUSY_MESSAGE));
         } catch (Exception e) {
             log.error("Error processing chat request", e);
             return ResponseEntity.internalServerError()
@@ -64,6 +83,76 @@ public class AgentController {
         }
     }
 
+    /**
+     * Streaming variant of {@link #chat}. Responds with Server-Sent Events instead of
+     * waiting for the full answer, and releases the request thread immediately.
+     * Events:
+     * - "tool": a tool the agent started running, e.g. {"tool":"searchMovies","message":"Using TMDB Tool: searchMovies"}
+     * - "token": the next chunk of the answer
+     * - "done": the full answer, sent last
+     * - "error": sent instead of "done" if the turn fails, or is refused because too many
+     *   agent turns are already running
+     *
+     * @param request The chat request containing the user's message
+     * @param authentication The authentication object (optional)
+     * @return an SSE stream of the agent's reply
+     */
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter chatStream(
+            @RequestBody ChatRequest request,
+            Authentication authentication) {
+
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+
+        if (request.message() == null || request.message().trim().isEmpty()) {
+            send(emitter, "error", new ChatResponse("Please provide a message."));
+            emitter.complete();
+            return emitter;
+        }
+
+        String userId = authentication != null && authentication.isAuthenticated()
+            ? authentication.getName()
+            : null;
+
+        agentService.chatStream(userId, request.message(), new ChatStreamListener() {
+            @Override
+            public void onToolCall(String toolName, String message) {
+                send(emitter, "tool", new ToolEvent(toolName, message));
+            }
+
+            @Override
+            public void onToken(String token) {
+                send(emitter, "token", token);
+            }
+
+            @Override
+            public void onComplete(String response) {
+                send(emitter, "done", new ChatResponse(response));
+                emitter.complete();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                String message = error instanceof Bulkhead.FullException
+                    ? BUSY_MESSAGE
+                    : "An error occurred while processing your request.";
+                send(emitter, "error", new ChatResponse(message));
+                emitter.complete();
+            }
+        });
+
+        return emitter;
+    }
+
+    private void send(SseEmitter emitter, String event, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data));
+        } catch (IOException | IllegalStateException e) {
+            // Client went away or the emitter already completed; nothing left to deliver to
+            log.debug("Dropping '{}' event for closed stream", event);
+        }
+    }
+
     /**
      * Clears the conversation history for the current user.
      * If not authenticated, clears the default agent's memory.
@@ -128,6 +217,8 @@ public class AgentController {
 
     public record ChatResponse(String response) {}
 
+    public record ToolEvent(String tool, String message) {}
+
     public record MessageResponse(String message) {}
 
     public record StatusResponse(
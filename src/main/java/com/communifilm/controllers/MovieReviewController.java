@@ -1,12 +1,14 @@
 package com.communifilm.controllers;
 
 import com.communifilm.dtos.CreateReviewDto;
+import com.communifilm.dtos.PageDto;
 import com.communifilm.models.MovieReview;
 import com.communifilm.services.MovieReviewService;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/reviews")
@@ -18,14 +20,33 @@ public class MovieReviewController {
         this.movieReviewService = movieReviewService;
     }
 
+    // Returns a future so the request thread is released while the write is in flight
     @PostMapping
-    public MovieReview createReview(@RequestBody CreateReviewDto reviewDto) throws ExecutionException, InterruptedException {
-        return movieReviewService.createReview(reviewDto);
+    public CompletableFuture<MovieReview> createReview(@RequestBody CreateReviewDto reviewDto) {
+        return movieReviewService.createReviewAsync(reviewDto);
     }
 
     @GetMapping("/movie/{movieId}")
-    public List<MovieReview> getReviewsForMovie(@PathVariable Long movieId) throws ExecutionException, InterruptedException {
-        return movieReviewService.getReviewsForMovie(movieId);
+    public CompletableFuture<List<MovieReview>> getReviewsForMovie(@PathVariable Long movieId) {
+        return movieReviewService.getReviewsForMovieAsync(movieId);
+    }
+
+    /**
+     * Paged variant of {@link #getReviewsForMovie(Long)}, newest reviews first.
+     * Optional "fields" limits each review to the listed fields for lightweight list views.
+     */
+    @GetMapping("/movie/{movieId}/page")
+    public CompletableFuture<ResponseEntity<PageDto<MovieReview>>> getReviewsForMoviePage(
+            @PathVariable Long movieId,
+            @RequestParam(required = false) Integer pageSize,
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(required = false) List<String> fields) {
+        try {
+            return movieReviewService.getReviewsForMovieAsync(movieId, pageSize, pageToken, fields)
+                    .thenApply(ResponseEntity::ok);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
     }
 
 }
\ No newline at end of file
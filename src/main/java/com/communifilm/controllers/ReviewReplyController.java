@@ -1,14 +1,16 @@
 package com.communifilm.controllers;
 
 import com.communifilm.dtos.CreateReviewReplyDto;
+import com.communifilm.dtos.PageDto;
 import com.communifilm.dtos.ReviewReplyResponseDto;
 import com.communifilm.models.ReviewReply;
 import com.communifilm.services.ReviewReplyService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/replies")
@@ -20,14 +22,33 @@ public class ReviewReplyController {
     }
 
 
+    // Returns a future so the request thread is released while the write is in flight
     @PostMapping
-    public ReviewReply createReply(@RequestBody CreateReviewReplyDto replyDto) throws ExecutionException, InterruptedException {
-        return reviewReplyService.createReply(replyDto);
+    public CompletableFuture<ReviewReply> createReply(@RequestBody CreateReviewReplyDto replyDto) {
+        return reviewReplyService.createReplyAsync(replyDto);
     }
 
     @GetMapping("/review/{reviewId}")
-    public List<ReviewReplyResponseDto> getRepliesForReview(@PathVariable String reviewId) throws ExecutionException, InterruptedException{
-        return reviewReplyService.getRepliesForReview(reviewId);
+    public CompletableFuture<List<ReviewReplyResponseDto>> getRepliesForReview(@PathVariable String reviewId) {
+        return reviewReplyService.getRepliesForReviewAsync(reviewId);
+    }
+
+    /**
+     * Paged variant of {@link #getRepliesForReview(String)}, oldest replies first.
+     * Optional "fields" limits each reply to the listed fields for lightweight list views.
+     */
+    @GetMapping("/review/{reviewId}/page")
+    public CompletableFuture<ResponseEntity<PageDto<ReviewReplyResponseDto>>> getRepliesForReviewPage(
+            @PathVariable String reviewId,
+            @RequestParam(required = false) Integer pageSize,
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(required = false) List<String> fields) {
+        try {
+            return reviewReplyService.getRepliesForReviewAsync(reviewId, pageSize, pageToken, fields)
+                    .thenApply(ResponseEntity::ok);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
     }
 
 }
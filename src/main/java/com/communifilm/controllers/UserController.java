@@ -1,17 +1,18 @@
 package com.communifilm.controllers;
 
 import com.communifilm.dtos.LoginResponseDto;
+import com.communifilm.dtos.MovieRecommendationDto;
 import com.communifilm.dtos.UpdateUserDto;
 import com.communifilm.models.User;
+import com.communifilm.services.CollaborativeRecommender;
 import com.communifilm.services.UserService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import com.communifilm.services.GoogleAuthService;
 import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/users")
@@ -19,10 +20,12 @@ public class UserController {
 
     private final GoogleAuthService googleAuthService;
     private final UserService userService;
+    private final CollaborativeRecommender recommender;
 
-    public UserController(GoogleAuthService googleAuthService, UserService userService) {
+    public UserController(GoogleAuthService googleAuthService, UserService userService, CollaborativeRecommender recommender) {
         this.googleAuthService = googleAuthService;
         this.userService = userService;
+        this.recommender = recommender;
     }
 
     /**
@@ -33,47 +36,52 @@ public class UserController {
      * @return LoginResponseDto
      */
     @PostMapping("/login")
-    public ResponseEntity<LoginResponseDto> login(@RequestHeader("Authorization") String authorizationHeader) throws Exception {
+    public CompletableFuture<ResponseEntity<LoginResponseDto>> login(@RequestHeader("Authorization") String authorizationHeader) throws Exception {
         String idToken = authorizationHeader.substring(7);
         GoogleIdToken.Payload payload = googleAuthService.verifyToken(idToken);
 
-        boolean isNewUser = userService.processUserLogin(payload);
-        User user = userService.getUser(payload.getSubject());
-
-        return ResponseEntity.ok(new LoginResponseDto(isNewUser, user));
+        return userService.processUserLoginAsync(payload)
+                .thenCompose(isNewUser -> userService.getUserAsync(payload.getSubject())
+                        .thenApply(user -> ResponseEntity.ok(new LoginResponseDto(isNewUser, user))));
     }
 
+    // Reads return futures so request threads are released while Firestore calls are in flight.
+    // That pays off once more requests are in flight than there are request threads; below that,
+    // the second dispatch makes each request a little slower than a blocking read would be.
     @GetMapping
-    public ResponseEntity<List<User>> getUsers(@RequestParam List<String> uids) {
-        try {
-            List<User> users = new ArrayList<>();
-            for (String uid : uids) {
-                User user = userService.getUser(uid);
-                if (user != null) {
-                    users.add(user);
-                }
-            }
-            return ResponseEntity.ok(users);
-        } catch (Exception e) {
-            return ResponseEntity.status(500).build();
-        }
+    public CompletableFuture<ResponseEntity<List<User>>> getUsers(@RequestParam List<String> uids) {
+        return userService.getUsersAsync(uids)
+                .thenApply(ResponseEntity::ok)
+                .exceptionally(e -> ResponseEntity.status(500).build());
     }
 
     @GetMapping("/{uid}")
-    public ResponseEntity<User> getUser(@PathVariable String uid) {
-        try {
-            User user = userService.getUser(uid);
-            if (user == null) return ResponseEntity.notFound().build();
-            return ResponseEntity.ok(user);
-        } catch (Exception e) {
-            return ResponseEntity.status(500).build();
-        }
+    public CompletableFuture<ResponseEntity<User>> getUser(@PathVariable String uid) {
+        return userService.getUserAsync(uid)
+                .thenApply(user -> user == null
+                        ? ResponseEntity.notFound().<User>build()
+                        : ResponseEntity.ok(user))
+                .exceptionally(e -> ResponseEntity.status(500).build());
+    }
+
+    /**
+     * Movies other users pick alongside this user's favorites and reviews, best first.
+     * Served from an in-memory model, without a model call.
+     */
+    @GetMapping("/{uid}/recommendations")
+    public CompletableFuture<ResponseEntity<List<MovieRecommendationDto>>> getRecommendations(
+            @PathVariable String uid,
+            @RequestParam(defaultValue = "20") int limit) {
+        return recommender.recommendAsync(uid, Math.min(Math.max(limit, 1), 100))
+                .thenApply(recommendations -> recommendations == null
+                        ? ResponseEntity.notFound().<List<MovieRecommendationDto>>build()
+                        : ResponseEntity.ok(recommendations))
+                .exceptionally(e -> ResponseEntity.status(500).build());
     }
 
     @PutMapping("/{uid}")
-    public ResponseEntity<Void> updateUser(@PathVariable String uid, @RequestBody UpdateUserDto userDto) throws ExecutionException, InterruptedException {
-        userService.updateUser(uid, userDto);
-        return ResponseEntity.ok().build();
+    public CompletableFuture<ResponseEntity<Void>> updateUser(@PathVariable String uid, @RequestBody UpdateUserDto userDto) {
+        return userService.updateUserAsync(uid, userDto)
+                .thenApply(done -> ResponseEntity.ok().<Void>build());
     }
 }
-
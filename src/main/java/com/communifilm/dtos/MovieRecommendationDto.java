@@ -0,0 +1,18 @@
+package com.communifilm.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A movie recommended from what other users pick alongside someone's favorites.
+ * The title is only known for movies someone has favorited; score is relative, higher is better.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieRecommendationDto {
+    private long movieId;
+    private String title;
+    private double score;
+}
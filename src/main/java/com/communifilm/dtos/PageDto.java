@@ -0,0 +1,19 @@
+package com.communifilm.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a listing. Pass nextPageToken back as pageToken to get the following page;
+ * it is null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageDto<T> {
+    private List<T> items;
+    private String nextPageToken;
+}
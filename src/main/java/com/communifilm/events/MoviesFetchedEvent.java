@@ -0,0 +1,12 @@
+package com.communifilm.events;
+
+import com.communifilm.dtos.MovieDto;
+
+import java.util.List;
+
+/**
+ * Published whenever movies are read from TMDB (or its caches), so their overviews can be indexed.
+ *
+ * @param movies the movies as returned to the caller
+ */
+public record MoviesFetchedEvent(List<MovieDto> movies) {}
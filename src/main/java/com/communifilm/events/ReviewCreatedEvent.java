@@ -0,0 +1,9 @@
+package com.communifilm.events;
+
+/**
+ * Published after a new review has been written.
+ *
+ * @param movieId the TMDB ID of the reviewed movie
+ * @param reviewId the ID of the new review document
+ */
+public record ReviewCreatedEvent(Long movieId, String reviewId) {}
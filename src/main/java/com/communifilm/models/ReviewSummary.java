@@ -0,0 +1,26 @@
+package com.communifilm.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewSummary {
+    private Long movieId;
+    private Kind kind;
+    private String text;
+    private Integer reviewCount;   // Version key: number of reviews the text was generated from
+    private Instant generatedAt;
+    private boolean stale;         // Set when a newer review arrived; text is still served until refreshed
+
+    public enum Kind {
+        SUMMARY,
+        SENTIMENT
+    }
+}
@@ -0,0 +1,113 @@
+package com.communifilm.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import dev.langchain4j.data.message.ChatMessage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Bounded, in-process store of the conversations currently being held by this node.
+ * Sessions are dropped after sitting idle, and the store as a whole is capped by the
+ * total number of chat messages it holds, so a burst of chatty users evicts the least
+ * recently used conversations instead of growing the heap without limit.
+ * It backs every {@link dev.langchain4j.store.memory.chat.ChatMemoryStore} implementation:
+ * on its own for the in-memory store, or as a read cache in front of Firestore.
+ * Size, hits, misses and evictions are published as {@code cache.*} metrics under
+ * the name "agent.sessions".
+ *
+ * Each {@link Session} also records the copy of the conversation last read from or written to
+ * a persistent store, and that store's version of it, so the store can detect when another
+ * node has changed the conversation since.
+ */
+@Component
+@Slf4j
+public class AgentSessionStore {
+
+    /**
+     * A conversation held by this node.
+     *
+     * @param messages the conversation as this node sees it, including changes not yet persisted
+     * @param stored the conversation as last read from or written to the persistent store
+     * @param version the store's version of {@code stored}, or null if it has none
+     * @param syncedAt {@link System#nanoTime} when {@code stored} was last known to be current
+     */
+    public record Session(List<ChatMessage> messages, List<ChatMessage> stored, Object version, long syncedAt) {
+
+        public Session {
+            messages = List.copyOf(messages);
+            stored = List.copyOf(stored);
+        }
+
+        /**
+         * A session that is not backed by a persistent store.
+         */
+        public static Session of(List<ChatMessage> messages) {
+            return new Session(messages, List.of(), null, 0);
+        }
+
+        public Session withMessages(List<ChatMessage> messages) {
+            return new Session(messages, stored, version, syncedAt);
+        }
+    }
+
+    private final Cache<String, Session> sessions;
+
+    public AgentSessionStore(MeterRegistry meterRegistry,
+                             @Value("${agent.sessions.idle-timeout:30m}") Duration idleTimeout,
+                             @Value("${agent.sessions.max-messages:100000}") long maxMessages) {
+        this.sessions = CaffeineCacheMetrics.monitor(meterRegistry,
+                Caffeine.newBuilder()
+                        .expireAfterAccess(idleTimeout)
+                        .maximumWeight(maxMessages)
+                        .weigher(AgentSessionStore::weigh)
+                        .removalListener((String memoryId, Session session, RemovalCause cause) -> {
+                            if (cause.wasEvicted()) {
+                                log.debug("Evicted agent session {} ({})", memoryId, cause);
+                            }
+                        })
+                        .recordStats()
+                        .<String, Session>build(),
+                "agent.sessions");
+    }
+
+    /**
+     * Returns the session's messages, loading them with the loader if the session is not held.
+     */
+    public Session get(String memoryId, Function<String, Session> loader) {
+        return sessions.get(memoryId, loader);
+    }
+
+    /**
+     * Returns the session if it is held, without loading it.
+     */
+    public Session getIfPresent(String memoryId) {
+        return sessions.getIfPresent(memoryId);
+    }
+
+    public void put(String memoryId, Session session) {
+        sessions.put(memoryId, session);
+    }
+
+    public void remove(String memoryId) {
+        sessions.invalidate(memoryId);
+    }
+
+    public int size() {
+        sessions.cleanUp();
+        return (int) sessions.estimatedSize();
+    }
+
+    // One unit per stored message, plus one for the session itself
+    private static int weigh(String memoryId, Session session) {
+        return 1 + session.messages().size();
+    }
+}
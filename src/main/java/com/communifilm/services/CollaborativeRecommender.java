@@ -0,0 +1,260 @@
+package com.communifilm.services;
+
+import com.communifilm.dtos.MovieRecommendationDto;
+import com.communifilm.models.FavoriteMovie;
+import com.communifilm.models.User;
+import com.communifilm.utils.IntIntHashMap;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * "People who picked this also picked" recommendations, computed from every user's top movies
+ * and the movies they reviewed, without a model call.
+ *
+ * A background job reads only the users and reviews written since its last run, folds them into
+ * per-user baskets of movie IDs, and, when anything changed, rebuilds an {@link ItemSimilarity}
+ * model from all baskets in memory. Requests are answered from the latest model: a user's own
+ * basket, plus their current favorites in case they changed since the last run, is scored
+ * against it. Users and movies the model has not seen yet simply get fewer recommendations.
+ */
+@Service
+@Slf4j
+public class CollaborativeRecommender {
+
+    // Firestore returns query results in pages of at most this many documents
+    private static final int PAGE_SIZE = 500;
+
+    private final Firestore firestore;
+    private final FirestoreMetrics metrics;
+    private final UserService userService;
+    private final Timer builds;
+    private final int maxNeighbors;
+    private final int minCoOccurrence;
+    private final int maxBasketSize;
+
+    // Ingested state, only touched by the refresh job
+    private final Map<String, int[]> favorites = new HashMap<>();
+    private final Map<String, int[]> reviewed = new HashMap<>();
+    private final Map<Integer, String> titles = new HashMap<>();
+    private Timestamp usersSyncedTo;
+    private Timestamp reviewsSyncedTo;
+
+    private volatile Model model = new Model(ItemSimilarity.EMPTY, Map.of());
+
+    private record Model(ItemSimilarity similarity, Map<String, int[]> baskets) {
+    }
+
+    public CollaborativeRecommender(Firestore firestore,
+                                    FirestoreMetrics metrics,
+                                    UserService userService,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${recommendations.max-neighbors:50}") int maxNeighbors,
+                                    @Value("${recommendations.min-co-occurrence:2}") int minCoOccurrence,
+                                    @Value("${recommendations.max-basket-size:200}") int maxBasketSize) {
+        if (maxNeighbors <= 0) {
+            // The model is rebuilt in the background, where this would only be logged
+            throw new IllegalArgumentException("recommendations.max-neighbors must be positive");
+        }
+        this.firestore = firestore;
+        this.metrics = metrics;
+        this.userService = userService;
+        this.maxNeighbors = maxNeighbors;
+        this.minCoOccurrence = minCoOccurrence;
+        this.maxBasketSize = maxBasketSize;
+        this.builds = Timer.builder("recommendations.model.builds")
+                .description("Time to rebuild the item-item similarity model from all users' baskets")
+                .register(meterRegistry);
+        Gauge.builder("recommendations.model.movies", this, recommender -> recommender.model.similarity().movieCount())
+                .description("Movies in the item-item similarity model")
+                .register(meterRegistry);
+        Gauge.builder("recommendations.model.users", this, recommender -> recommender.model.baskets().size())
+                .description("Users whose picks are in the item-item similarity model")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ranks movies for a user from their stored picks and the given favorites.
+     *
+     * @param favorites the user's current top movies; may be empty
+     * @return up to limit movies, best first; empty if nothing is known about the user's picks
+     */
+    public List<MovieRecommendationDto> recommend(String uid, List<FavoriteMovie> favorites, int limit) {
+        Model current = model;
+        int[] basket = current.baskets().getOrDefault(uid, new int[0]);
+
+        int[] seeds = Arrays.copyOf(basket, basket.length + favorites.size());
+        for (int i = 0; i < favorites.size(); i++) {
+            seeds[basket.length + i] = (int) favorites.get(i).getMovieId();
+        }
+        return current.similarity().recommend(distinct(seeds), limit);
+    }
+
+    /**
+     * Async variant of {@link #recommend} that looks up the user's favorites itself.
+     * Completes with null if the user does not exist.
+     */
+    public CompletableFuture<List<MovieRecommendationDto>> recommendAsync(String uid, int limit) {
+        return userService.getUserAsync(uid)
+                .thenApply(user -> user == null
+                        ? null
+                        : recommend(uid, user.getTopMovies() != null ? user.getTopMovies() : List.of(), limit));
+    }
+
+    /**
+     * Reads what changed since the last run and rebuilds the model if anything did.
+     * The first run reads everything.
+     */
+    @Scheduled(fixedDelayString = "${recommendations.refresh-interval:10m}")
+    public void refresh() {
+        try {
+            int users = syncUsers();
+            int reviews = syncReviews();
+            if (users + reviews > 0) {
+                rebuild();
+                log.info("Rebuilt recommendation model after {} user and {} review changes: {} movies, {} users",
+                        users, reviews, model.similarity().movieCount(), model.baskets().size());
+            }
+        } catch (Exception e) {
+            // Watermarks only advance past pages that were read, so the next run picks up from there
+            log.warn("Failed to refresh recommendation model", e);
+        }
+    }
+
+    private int syncUsers() throws ExecutionException, InterruptedException {
+        Query query = firestore.collection("users").select("topMovies", "updatedAt");
+        return readSince(query, "users", "updatedAt", usersSyncedTo, "syncFavorites", document -> {
+            User user = document.toObject(User.class);
+            List<FavoriteMovie> topMovies = user.getTopMovies() != null ? user.getTopMovies() : List.of();
+            int[] movieIds = new int[topMovies.size()];
+            for (int i = 0; i < movieIds.length; i++) {
+                FavoriteMovie favorite = topMovies.get(i);
+                movieIds[i] = (int) favorite.getMovieId();
+                if (favorite.getTitle() != null) {
+                    titles.put(movieIds[i], favorite.getTitle());
+                }
+            }
+            return !Arrays.equals(favorites.put(document.getId(), movieIds), movieIds);
+        }, watermark -> usersSyncedTo = watermark);
+    }
+
+    private int syncReviews() throws ExecutionException, InterruptedException {
+        Query query = firestore.collection("reviews").select("userId", "movieId", "createdAt");
+        return readSince(query, "reviews", "createdAt", reviewsSyncedTo, "syncReviewers", document -> {
+            String userId = document.getString("userId");
+            Long movieId = document.getLong("movieId");
+            if (userId == null || movieId == null) {
+                return false;
+            }
+            int[] movieIds = reviewed.getOrDefault(userId, new int[0]);
+            for (int existing : movieIds) {
+                if (existing == movieId.intValue()) {
+                    return false; // The boundary document of the previous run, or a second review of the movie
+                }
+            }
+            // Keep the most recent reviews when a prolific reviewer exceeds the basket size
+            int[] updated = movieIds.length < maxBasketSize
+                    ? Arrays.copyOf(movieIds, movieIds.length + 1)
+                    : Arrays.copyOfRange(movieIds, 1, movieIds.length + 1);
+            updated[updated.length - 1] = movieId.intValue();
+            reviewed.put(userId, updated);
+            return true;
+        }, watermark -> reviewsSyncedTo = watermark);
+    }
+
+    /**
+     * Pages through the documents whose timestamp field is at or after the watermark, oldest
+     * first. The watermark is moved to the newest timestamp read after every page. Documents at
+     * exactly the old watermark are read again, so the handler must tolerate repeats.
+     *
+     * @param handler applies a document, returning whether it changed anything
+     * @return how many documents changed something
+     */
+    private int readSince(Query query, String collection, String field, Timestamp since, String operation,
+                          Predicate<QueryDocumentSnapshot> handler, Consumer<Timestamp> watermark)
+            throws ExecutionException, InterruptedException {
+        Query ordered = (since != null ? query.whereGreaterThanOrEqualTo(field, since) : query)
+                .orderBy(field)
+                .limit(PAGE_SIZE);
+
+        int changed = 0;
+        DocumentSnapshot last = null;
+        while (true) {
+            Query page = last != null ? ordered.startAfter(last) : ordered;
+            List<QueryDocumentSnapshot> documents = metrics.time(collection, operation, page.get())
+                    .get()
+                    .getDocuments();
+            if (documents.isEmpty()) {
+                return changed;
+            }
+            for (QueryDocumentSnapshot document : documents) {
+                if (handler.test(document)) {
+                    changed++;
+                }
+            }
+            last = documents.get(documents.size() - 1);
+            watermark.accept(last.getTimestamp(field));
+        }
+    }
+
+    private void rebuild() {
+        Map<String, int[]> baskets = new HashMap<>();
+        List<int[]> basketList = new ArrayList<>();
+        for (String userId : union(favorites, reviewed)) {
+            int[] picked = favorites.getOrDefault(userId, new int[0]);
+            int[] wrote = reviewed.getOrDefault(userId, new int[0]);
+            int[] both = Arrays.copyOf(picked, picked.length + wrote.length);
+            System.arraycopy(wrote, 0, both, picked.length, wrote.length);
+            int[] basket = distinct(both);
+            baskets.put(userId, basket);
+            basketList.add(basket);
+        }
+
+        ItemSimilarity similarity = builds.record(() -> ItemSimilarity.build(
+                basketList, titles::get, maxNeighbors, minCoOccurrence));
+        model = new Model(similarity, baskets);
+    }
+
+    // Drops repeated movie IDs, keeping the first occurrence of each
+    private static int[] distinct(int[] movieIds) {
+        IntIntHashMap seen = new IntIntHashMap(movieIds.length);
+        int[] unique = new int[movieIds.length];
+        int count = 0;
+        for (int movieId : movieIds) {
+            if (seen.get(movieId, -1) < 0) {
+                seen.put(movieId, count);
+                unique[count++] = movieId;
+            }
+        }
+        return count == unique.length ? unique : Arrays.copyOf(unique, count);
+    }
+
+    private static List<String> union(Map<String, int[]> first, Map<String, int[]> second) {
+        List<String> keys = new ArrayList<>(first.keySet());
+        for (String key : second.keySet()) {
+            if (!first.containsKey(key)) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+}
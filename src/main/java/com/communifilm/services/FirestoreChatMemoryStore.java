@@ -0,0 +1,266 @@
+package com.communifilm.services;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.BulkWriter;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Precondition;
+import com.google.cloud.firestore.WriteResult;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import static dev.langchain4j.data.message.ChatMessageDeserializer.messagesFromJson;
+import static dev.langchain4j.data.message.ChatMessageSerializer.messagesToJson;
+
+/**
+ * Chat memory persisted in the "chatMemories" Firestore collection, one document per
+ * conversation, so history survives restarts and is visible to every node.
+ *
+ * Reads are served from the local {@link AgentSessionStore} while the local copy is younger
+ * than {@code agent.memory.max-staleness}; after that the document is read again, so a user
+ * whose requests move between nodes sees the turns the other nodes added.
+ * Writes are write-behind: a turn only updates the local copy and marks it dirty, and
+ * dirty conversations are flushed together through a {@link BulkWriter} every
+ * {@code agent.memory.flush-interval}, so the agent never blocks on Firestore.
+ * Anything still dirty is flushed on shutdown.
+ *
+ * Each write is conditional on the document's update time being the one this node last read
+ * or wrote. If another node wrote in between, the write fails; the document is read again,
+ * the messages this node added are appended to it, and the result is written on the next
+ * flush. Neither node's turns are lost. Such conflicts are counted as
+ * {@code agent.memory.conflicts}.
+ *
+ * Selected with {@code agent.memory.store=firestore} (the default).
+ */
+@Slf4j
+public class FirestoreChatMemoryStore implements ChatMemoryStore {
+
+    private static final String COLLECTION = "chatMemories";
+
+    private final Firestore firestore;
+    private final AgentSessionStore sessionStore;
+    private final long maxStalenessNanos;
+    private final Counter conflicts;
+    // Sessions changed locally and not yet written, by memory ID
+    private final Map<String, AgentSessionStore.Session> dirty = new ConcurrentHashMap<>();
+
+    public FirestoreChatMemoryStore(Firestore firestore, AgentSessionStore sessionStore,
+                                    Duration maxStaleness, MeterRegistry meterRegistry) {
+        this.firestore = firestore;
+        this.sessionStore = sessionStore;
+        this.maxStalenessNanos = maxStaleness.toNanos();
+        this.conflicts = Counter.builder("agent.memory.conflicts")
+                .description("Chat memory writes that found the conversation changed by another node")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        String id = memoryId.toString();
+        AgentSessionStore.Session pending = dirty.get(id);
+        if (pending != null) {
+            return pending.messages();
+        }
+        return session(id, maxStalenessNanos).messages();
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        String id = memoryId.toString();
+        // Usually already held; a pending change, if any, takes precedence below
+        AgentSessionStore.Session base = session(id, Long.MAX_VALUE);
+        dirty.compute(id, (key, pending) -> {
+            AgentSessionStore.Session updated = (pending != null ? pending : base).withMessages(messages);
+            sessionStore.put(key, updated);
+            return updated;
+        });
+    }
+
+    /**
+     * The local copy of a conversation, read again if it is older than maxStalenessNanos.
+     * Reads happen outside any map's lock: a thread waiting on Firestore while holding one
+     * would block other conversations, and a virtual thread would also pin its carrier.
+     */
+    private AgentSessionStore.Session session(String id, long maxStalenessNanos) {
+        AgentSessionStore.Session session = sessionStore.getIfPresent(id);
+        if (session == null || System.nanoTime() - session.syncedAt() > maxStalenessNanos) {
+            session = load(id);
+            sessionStore.put(id, session);
+        }
+        return session;
+    }
+
+    /**
+     * Deletes the conversation's document right away rather than on the next flush, so a
+     * write already queued for it cannot bring the history back.
+     */
+    @Override
+    public void deleteMessages(Object memoryId) {
+        String id = memoryId.toString();
+        dirty.remove(id);
+        sessionStore.remove(id);
+        try {
+            document(id).delete().get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to delete chat memory " + id, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while deleting chat memory " + id, e);
+        }
+    }
+
+    /**
+     * Writes every dirty conversation to Firestore.
+     * An entry stays dirty if it changed again while being written or if its write failed,
+     * so it is retried on the next flush.
+     */
+    @Scheduled(fixedDelayString = "${agent.memory.flush-interval:2s}")
+    public void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+
+        Map<String, AgentSessionStore.Session> pending = new HashMap<>(dirty);
+        Map<String, ApiFuture<WriteResult>> writes = new HashMap<>();
+        BulkWriter writer = firestore.bulkWriter();
+        pending.forEach((id, session) -> writes.put(id, write(writer, id, session)));
+        try {
+            // Waits for every write; failed writes are reported by their own futures below
+            writer.close();
+        } catch (ExecutionException e) {
+            log.debug("Chat memory flush finished with errors", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        writes.forEach((id, write) -> {
+            AgentSessionStore.Session written = pending.get(id);
+            try {
+                written(id, written, write.get().getUpdateTime());
+            } catch (ExecutionException e) {
+                reconcile(id, written, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    // Creates the document if this node has never seen it, otherwise updates it only if nobody else has
+    private ApiFuture<WriteResult> write(BulkWriter writer, String id, AgentSessionStore.Session session) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("messages", messagesToJson(session.messages()));
+        data.put("updatedAt", FieldValue.serverTimestamp());
+        return session.version() == null
+                ? writer.create(document(id), data)
+                : writer.update(document(id), data, Precondition.updatedAt((Timestamp) session.version()));
+    }
+
+    // The written messages are now what Firestore holds; a turn that changed them since is rebased onto that
+    private void written(String id, AgentSessionStore.Session written, Timestamp version) {
+        long now = System.nanoTime();
+        dirty.compute(id, (key, current) -> {
+            if (current == null) {
+                return null;
+            }
+            AgentSessionStore.Session synced = new AgentSessionStore.Session(
+                    current.messages(), written.messages(), version, now);
+            sessionStore.put(key, synced);
+            return current == written ? null : synced;
+        });
+    }
+
+    // The write failed, most likely because another node changed the document; adopt its version
+    private void reconcile(String id, AgentSessionStore.Session written, Throwable error) {
+        AgentSessionStore.Session remote;
+        try {
+            remote = load(id);
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush chat memory {}, will retry", id, error);
+            return;
+        }
+        if (remote.version() == null ? written.version() != null : !remote.version().equals(written.version())) {
+            conflicts.increment();
+            log.debug("Chat memory {} was changed by another node, merging", id);
+        } else {
+            log.warn("Failed to flush chat memory {}, will retry", id, error);
+        }
+        dirty.computeIfPresent(id, (key, current) -> {
+            AgentSessionStore.Session rebased = rebase(current, remote);
+            sessionStore.put(key, rebased);
+            return rebased;
+        });
+    }
+
+    /**
+     * Appends the messages a session added since it was last synced to a newer stored copy.
+     * Messages the session already had are the stored copy's own instances, so anything else
+     * in it was added locally. A new system message replaces the stored one.
+     */
+    static AgentSessionStore.Session rebase(AgentSessionStore.Session local, AgentSessionStore.Session remote) {
+        Set<ChatMessage> known = Collections.newSetFromMap(new IdentityHashMap<>());
+        known.addAll(local.stored());
+        List<ChatMessage> added = local.messages().stream().filter(message -> !known.contains(message)).toList();
+        ChatMessage system = added.stream().filter(SystemMessage.class::isInstance).findFirst().orElse(null);
+
+        List<ChatMessage> merged = new ArrayList<>(remote.messages().size() + added.size());
+        if (system != null) {
+            merged.add(system);
+        }
+        for (ChatMessage message : remote.messages()) {
+            if (system == null || !(message instanceof SystemMessage)) {
+                merged.add(message);
+            }
+        }
+        for (ChatMessage message : added) {
+            if (message != system) {
+                merged.add(message);
+            }
+        }
+        return new AgentSessionStore.Session(merged, remote.stored(), remote.version(), remote.syncedAt());
+    }
+
+    private AgentSessionStore.Session load(String memoryId) {
+        try {
+            DocumentSnapshot snapshot = document(memoryId).get().get();
+            String json = snapshot.exists() ? snapshot.getString("messages") : null;
+            List<ChatMessage> messages = json != null ? messagesFromJson(json) : List.of();
+            return new AgentSessionStore.Session(messages, messages,
+                    snapshot.exists() ? snapshot.getUpdateTime() : null, System.nanoTime());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to load chat memory " + memoryId, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading chat memory " + memoryId, e);
+        }
+    }
+
+    private DocumentReference document(String memoryId) {
+        return firestore.collection(COLLECTION).document(memoryId);
+    }
+}
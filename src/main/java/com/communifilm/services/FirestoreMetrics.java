@@ -0,0 +1,59 @@
+package com.communifilm.services;
+
+import com.communifilm.utils.ApiFutureAdapter;
+import com.google.api.core.ApiFuture;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Times Firestore calls from submission until the server responds, published as
+ * {@code firestore.operations} tagged by collection, operation and outcome.
+ * Each call is also traced as a "firestore &lt;collection&gt;.&lt;operation&gt;" span,
+ * a child of whatever span is current when the call is made.
+ */
+@Component
+public class FirestoreMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Tracer tracer;
+
+    public FirestoreMetrics(MeterRegistry meterRegistry, Tracer tracer) {
+        this.meterRegistry = meterRegistry;
+        this.tracer = tracer;
+    }
+
+    /**
+     * Adapts a Firestore future like {@link ApiFutureAdapter#toCompletableFuture}, recording
+     * its latency and ending its span when it completes.
+     *
+     * @param collection the collection being read or written, e.g. "reviews"
+     * @param operation a short, fixed name for the call, e.g. "listByMovie"
+     */
+    public <T> CompletableFuture<T> time(String collection, String operation, ApiFuture<T> future) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Span span = tracer.nextSpan()
+                .name("firestore " + collection + "." + operation)
+                .tag("db.system", "firestore")
+                .tag("db.collection.name", collection)
+                .remoteServiceName("firestore")
+                .start();
+        return ApiFutureAdapter.toCompletableFuture(future)
+                .whenComplete((result, error) -> {
+                    if (error != null) {
+                        span.error(error);
+                    }
+                    span.end();
+                    sample.stop(Timer.builder("firestore.operations")
+                            .description("Firestore calls made by the review, reply and user services")
+                            .tag("collection", collection)
+                            .tag("operation", operation)
+                            .tag("outcome", error == null ? "success" : "error")
+                            .register(meterRegistry));
+                });
+    }
+}
@@ -1,30 +1,133 @@
 package com.communifilm.services;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
 import com.google.api.client.googleapis.auth.oauth2.GoogleIdTokenVerifier;
+import com.google.api.client.googleapis.auth.oauth2.GooglePublicKeysManager;
 import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.api.client.json.gson.GsonFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.Collections;
+import java.util.HexFormat;
 
+/**
+ * Verifies Google ID tokens.
+ * A single verifier is shared across requests; its public key manager keeps Google's
+ * signing certificates until the Cache-Control max-age sent with them expires.
+ * Successfully verified payloads are cached for a short time, keyed by a SHA-256 of the
+ * token (never the token itself), so a client re-sending the same bearer token skips the
+ * signature check. An entry never outlives the token's own expiry.
+ * Each call is timed as {@code auth.google.verifications}, tagged with its result:
+ * cached, valid, invalid or error.
+ */
 @Service
 public class GoogleAuthService {
 
-    @Value("${google.client.id}")
-    private String googleClientId;
+    private final GoogleIdTokenVerifier verifier;
+    private final Cache<String, GoogleIdToken.Payload> verifiedTokens;
 
-    public GoogleIdToken.Payload verifyToken(String idTokenString) throws Exception {
-        GoogleIdTokenVerifier verifier = new GoogleIdTokenVerifier.Builder(new NetHttpTransport(), new GsonFactory())
+    private final MeterRegistry meterRegistry;
+
+    public GoogleAuthService(MeterRegistry meterRegistry,
+                             @Value("${google.client.id}") String googleClientId,
+                             @Value("${google.auth.token-cache.ttl:5m}") Duration tokenCacheTtl,
+                             @Value("${google.auth.token-cache.max-size:10000}") long tokenCacheMaxSize) {
+        Counter keyRefreshes = meterRegistry.counter("auth.google.key.refreshes");
+        GooglePublicKeysManager publicKeys = new GooglePublicKeysManager(new NetHttpTransport(), GsonFactory.getDefaultInstance()) {
+            @Override
+            public GooglePublicKeysManager refresh() throws GeneralSecurityException, IOException {
+                keyRefreshes.increment();
+                return super.refresh();
+            }
+        };
+
+        this.verifier = new GoogleIdTokenVerifier.Builder(publicKeys)
                 .setAudience(Collections.singletonList(googleClientId))
                 .build();
 
-        GoogleIdToken idToken = verifier.verify(idTokenString);
-        if (idToken != null) {
-            return idToken.getPayload();
-        } else {
-            throw new SecurityException("Invalid Google ID token.");
+        this.verifiedTokens = CaffeineCacheMetrics.monitor(meterRegistry,
+                Caffeine.newBuilder()
+                        .maximumSize(tokenCacheMaxSize)
+                        .expireAfter(new TokenExpiry(tokenCacheTtl))
+                        .recordStats()
+                        .<String, GoogleIdToken.Payload>build(),
+                "auth.google.tokens");
+
+        this.meterRegistry = meterRegistry;
+    }
+
+    public GoogleIdToken.Payload verifyToken(String idTokenString) throws Exception {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String result = "error";
+        try {
+            String cacheKey = sha256(idTokenString);
+            GoogleIdToken.Payload cached = verifiedTokens.getIfPresent(cacheKey);
+            if (cached != null) {
+                result = "cached";
+                return cached;
+            }
+
+            GoogleIdToken idToken = verifier.verify(idTokenString);
+            if (idToken != null) {
+                result = "valid";
+                verifiedTokens.put(cacheKey, idToken.getPayload());
+                return idToken.getPayload();
+            } else {
+                result = "invalid";
+                throw new SecurityException("Invalid Google ID token.");
+            }
+        } finally {
+            sample.stop(Timer.builder("auth.google.verifications")
+                    .description("Google ID token verifications")
+                    .tag("result", result)
+                    .register(meterRegistry));
+        }
+    }
+
+    private static String sha256(String value) throws NoSuchAlgorithmException {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest);
+    }
+
+    /**
+     * Keeps a payload for the configured TTL or until the token's own "exp" claim,
+     * whichever comes first.
+     */
+    private record TokenExpiry(Duration ttl) implements Expiry<String, GoogleIdToken.Payload> {
+
+        @Override
+        public long expireAfterCreate(String key, GoogleIdToken.Payload payload, long currentTime) {
+            long ttlNanos = ttl.toNanos();
+            Long exp = payload.getExpirationTimeSeconds();
+            if (exp == null) {
+                return ttlNanos;
+            }
+            long untilExpiry = Duration.ofSeconds(exp).toMillis() - System.currentTimeMillis();
+            return Math.max(0, Math.min(ttlNanos, Duration.ofMillis(untilExpiry).toNanos()));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, GoogleIdToken.Payload payload, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, GoogleIdToken.Payload payload, long currentTime, long currentDuration) {
+            return currentDuration;
         }
     }
-}
\ No newline at end of file
+}
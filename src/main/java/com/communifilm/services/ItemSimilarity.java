@@ -0,0 +1,215 @@
+package com.communifilm.services;
+
+import com.communifilm.dtos.MovieRecommendationDto;
+import com.communifilm.utils.IntIntHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Immutable item-item similarity model over the movies users favorite and review together.
+ * Two movies are similar when the same people pick them: the similarity is the cosine of their
+ * user vectors, co-occurrences / sqrt(users of a * users of b), and each movie keeps only its
+ * strongest neighbors.
+ *
+ * Everything is stored in primitive arrays. Movies are numbered densely through an
+ * {@link IntIntHashMap} of TMDB IDs, and neighbor lists are in compressed sparse row form:
+ * movie i's neighbors are neighbors[offsets[i]] to neighbors[offsets[i + 1] - 1], with their
+ * similarities at the same positions in weights, strongest first.
+ */
+final class ItemSimilarity {
+
+    static final ItemSimilarity EMPTY = build(List.of(), movieId -> null, 1, 1);
+
+    private final int[] movieIds;
+    private final String[] titles;
+    private final IntIntHashMap indexOf;
+    private final int[] offsets;
+    private final int[] neighbors;
+    private final float[] weights;
+
+    private ItemSimilarity(int[] movieIds, String[] titles, IntIntHashMap indexOf,
+                           int[] offsets, int[] neighbors, float[] weights) {
+        this.movieIds = movieIds;
+        this.titles = titles;
+        this.indexOf = indexOf;
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+        this.weights = weights;
+    }
+
+    /**
+     * @param baskets the distinct TMDB movie IDs each user picked
+     * @param titles  a title for a movie ID, or null if unknown
+     * @param maxNeighbors neighbors kept per movie, at least one
+     * @param minCoOccurrence users two movies must share to count as neighbors
+     */
+    static ItemSimilarity build(List<int[]> baskets, IntFunction<String> titles, int maxNeighbors, int minCoOccurrence) {
+        if (maxNeighbors <= 0) {
+            throw new IllegalArgumentException("maxNeighbors must be positive");
+        }
+        // Number the movies and lay out each user's basket as item indices, user by user
+        IntIntHashMap indexOf = new IntIntHashMap(1024);
+        int[] movieIds = new int[1024];
+        int items = 0;
+        int[] userOffsets = new int[baskets.size() + 1];
+        int[] userItems = new int[baskets.stream().mapToInt(basket -> basket.length).sum()];
+        int[] itemUserCounts = new int[1024];
+        int position = 0;
+        for (int user = 0; user < baskets.size(); user++) {
+            for (int movieId : baskets.get(user)) {
+                int item = indexOf.get(movieId, -1);
+                if (item < 0) {
+                    item = items++;
+                    indexOf.put(movieId, item);
+                    if (item == movieIds.length) {
+                        movieIds = Arrays.copyOf(movieIds, item * 2);
+                        itemUserCounts = Arrays.copyOf(itemUserCounts, item * 2);
+                    }
+                    movieIds[item] = movieId;
+                }
+                itemUserCounts[item]++;
+                userItems[position++] = item;
+            }
+            userOffsets[user + 1] = position;
+        }
+
+        // Invert to the users of each item
+        int[] itemOffsets = new int[items + 1];
+        for (int item = 0; item < items; item++) {
+            itemOffsets[item + 1] = itemOffsets[item] + itemUserCounts[item];
+        }
+        int[] itemUsers = new int[position];
+        int[] fill = Arrays.copyOf(itemOffsets, items);
+        for (int user = 0; user < baskets.size(); user++) {
+            for (int k = userOffsets[user]; k < userOffsets[user + 1]; k++) {
+                itemUsers[fill[userItems[k]]++] = user;
+            }
+        }
+
+        // Count co-occurrences one item at a time in a dense accumulator, keeping the top neighbors
+        int[] offsets = new int[items + 1];
+        int[] neighbors = new int[Math.toIntExact((long) items * maxNeighbors)];
+        float[] weights = new float[neighbors.length];
+        int[] coOccurrences = new int[items];
+        int[] touched = new int[items];
+        int[] topItems = new int[maxNeighbors];
+        float[] topWeights = new float[maxNeighbors];
+        int written = 0;
+        for (int item = 0; item < items; item++) {
+            int touchedCount = 0;
+            for (int k = itemOffsets[item]; k < itemOffsets[item + 1]; k++) {
+                int user = itemUsers[k];
+                for (int m = userOffsets[user]; m < userOffsets[user + 1]; m++) {
+                    int other = userItems[m];
+                    if (other != item && coOccurrences[other]++ == 0) {
+                        touched[touchedCount++] = other;
+                    }
+                }
+            }
+
+            int found = 0;
+            for (int t = 0; t < touchedCount; t++) {
+                int other = touched[t];
+                int shared = coOccurrences[other];
+                coOccurrences[other] = 0;
+                if (shared < minCoOccurrence) {
+                    continue;
+                }
+                float weight = (float) (shared / Math.sqrt((double) itemUserCounts[item] * itemUserCounts[other]));
+                found = insert(topItems, topWeights, found, other, weight);
+            }
+
+            System.arraycopy(topItems, 0, neighbors, written, found);
+            System.arraycopy(topWeights, 0, weights, written, found);
+            written += found;
+            offsets[item + 1] = written;
+        }
+
+        String[] titleArray = new String[items];
+        for (int item = 0; item < items; item++) {
+            titleArray[item] = titles.apply(movieIds[item]);
+        }
+        return new ItemSimilarity(Arrays.copyOf(movieIds, items), titleArray, indexOf, offsets,
+                Arrays.copyOf(neighbors, written), Arrays.copyOf(weights, written));
+    }
+
+    /**
+     * Ranks movies for someone who picked the seed movies: each candidate scores the sum of
+     * its similarities to the seeds. Seeds are never recommended back.
+     *
+     * @param seedMovieIds TMDB IDs; unknown ones are ignored
+     * @return up to limit movies, best first
+     */
+    List<MovieRecommendationDto> recommend(int[] seedMovieIds, int limit) {
+        IntIntHashMap seeds = new IntIntHashMap(seedMovieIds.length);
+        int maxCandidates = 0;
+        for (int movieId : seedMovieIds) {
+            int item = indexOf.get(movieId, -1);
+            if (item >= 0) {
+                seeds.put(item, item);
+                maxCandidates += offsets[item + 1] - offsets[item];
+            }
+        }
+
+        IntIntHashMap positions = new IntIntHashMap(maxCandidates);
+        int[] candidates = new int[maxCandidates];
+        float[] scores = new float[maxCandidates];
+        int count = 0;
+        for (int movieId : seedMovieIds) {
+            int item = indexOf.get(movieId, -1);
+            if (item < 0) {
+                continue;
+            }
+            for (int k = offsets[item]; k < offsets[item + 1]; k++) {
+                int candidate = neighbors[k];
+                if (seeds.get(candidate, -1) >= 0) {
+                    continue;
+                }
+                int at = positions.get(candidate, -1);
+                if (at < 0) {
+                    positions.put(candidate, count);
+                    candidates[count] = candidate;
+                    scores[count++] = weights[k];
+                } else {
+                    scores[at] += weights[k];
+                }
+            }
+        }
+
+        int[] top = new int[Math.max(limit, 0)];
+        float[] topScores = new float[top.length];
+        int found = 0;
+        for (int i = 0; i < count && top.length > 0; i++) {
+            found = insert(top, topScores, found, candidates[i], scores[i]);
+        }
+
+        List<MovieRecommendationDto> recommendations = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            recommendations.add(new MovieRecommendationDto(movieIds[top[i]], titles[top[i]], topScores[i]));
+        }
+        return recommendations;
+    }
+
+    int movieCount() {
+        return movieIds.length;
+    }
+
+    // Adds to a top list kept sorted by weight, strongest first; returns the new length
+    private static int insert(int[] items, float[] weights, int length, int item, float weight) {
+        if (length == items.length && weight <= weights[length - 1]) {
+            return length;
+        }
+        int position = length < items.length ? length++ : length - 1;
+        while (position > 0 && weights[position - 1] < weight) {
+            items[position] = items[position - 1];
+            weights[position] = weights[position - 1];
+            position--;
+        }
+        items[position] = item;
+        weights[position] = weight;
+        return length;
+    }
+}
@@ -1,77 +1,135 @@
 package com.communifilm.services;
 
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.memory.ChatMemory;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import dev.langchain4j.service.AiServices;
+import dev.langchain4j.service.tool.ToolExecutor;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
 import com.communifilm.ai.*;
-import lombok.RequiredArgsConstructor;
+import com.communifilm.utils.Bulkhead;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Service for managing the AI-powered movie agent.
  * This service initializes the agent with all available tools and provides
  * methods for interacting with it.
  *
- * The agent maintains separate chat memories for different users to provide
- * personalized, context-aware conversations.
+ * Each conversation is keyed by user ID and its last 20 messages are kept in the configured
+ * {@link ChatMemoryStore}, so history survives restarts and follows the user across instances.
+ * Anonymous requests share the "default" conversation. Each turn calls an agent built for it
+ * from the shared models and tools, with an {@link AgentTurn} of its own, so the tool events of
+ * concurrent turns in one conversation reach their own stream.
+ *
+ * Tools the model asks for together in one message run concurrently ({@link ParallelToolCalls}).
+ *
+ * Each agent turn is traced as an "agent.turn" span; the model calls, tool calls and
+ * the Firestore and TMDB work they trigger are recorded as its descendants.
+ *
+ * Questions are first looked up in the {@link SemanticResponseCache}, keyed on the question as
+ * asked, without the user context; a hit is answered without calling the model and is still
+ * added to the conversation history. Only answers built from data that is the same for every
+ * user are cached, so personalized answers always come from the model: turns that carried a user
+ * ID or had earlier history may have drawn on them whatever tools they called, so their answers
+ * are never cached.
+ *
+ * Turns that reach the model take a slot in the agent {@link Bulkhead} for as long as they run,
+ * streaming ones until the last token. When it is full the turn is refused with
+ * {@link Bulkhead.FullException} rather than queued, so a burst of agent traffic cannot take
+ * the request threads the other endpoints need. Cache hits do not take a slot.
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class MovieAgentService {
 
-    private final MovieReviewTool reviewTool;
-    private final MovieRecommendationTool recommendationTool;
-    private final TmdbTool tmdbTool;
+    private static final String DEFAULT_SESSION = "default";
+    private static final int MAX_MESSAGES = 20;
+
+    private final AgentToolbox toolbox;
     private final ChatLanguageModel chatLanguageModel;
+    private final StreamingChatLanguageModel streamingChatLanguageModel;
+    private final ChatMemoryStore chatMemoryStore;
+    private final AgentSessionStore sessionStore;
+    private final SemanticResponseCache responseCache;
+    private final ParallelToolCalls parallelToolCalls;
+    private final Tracer tracer;
+    private final Bulkhead agentBulkhead;
 
-    private MovieAgent defaultAgent;
+    private ChatLanguageModel agentModel;
+    private StreamingChatLanguageModel agentStreamingModel;
+    private Map<ToolSpecification, ToolExecutor> tools;
 
-    // Store separate chat memories for different users
-    private final Map<String, ChatMemory> userMemories = new ConcurrentHashMap<>();
-    private final Map<String, MovieAgent> userAgents = new ConcurrentHashMap<>();
+    public MovieAgentService(AgentToolbox toolbox,
+                             ChatLanguageModel chatLanguageModel,
+                             StreamingChatLanguageModel streamingChatLanguageModel,
+                             ChatMemoryStore chatMemoryStore,
+                             AgentSessionStore sessionStore,
+                             SemanticResponseCache responseCache,
+                             ParallelToolCalls parallelToolCalls,
+                             Tracer tracer,
+                             @Qualifier("agentBulkhead") Bulkhead agentBulkhead) {
+        this.toolbox = toolbox;
+        this.chatLanguageModel = chatLanguageModel;
+        this.streamingChatLanguageModel = streamingChatLanguageModel;
+        this.chatMemoryStore = chatMemoryStore;
+        this.sessionStore = sessionStore;
+        this.responseCache = responseCache;
+        this.parallelToolCalls = parallelToolCalls;
+        this.tracer = tracer;
+        this.agentBulkhead = agentBulkhead;
+    }
 
     /**
-     * Initializes the default agent after bean construction.
-     * This agent is used for anonymous/unauthenticated requests.
+     * Prepares the models and tools every turn's agent shares, after bean construction.
      */
     @PostConstruct
     public void initialize() {
         log.info("Initializing MovieAgentService with tools: ReviewTool, RecommendationTool, TmdbTool");
 
-        ChatMemory defaultMemory = MessageWindowChatMemory.withMaxMessages(20);
-
-        this.defaultAgent = AiServices.builder(MovieAgent.class)
-            .chatLanguageModel(chatLanguageModel)
-            .tools(reviewTool, recommendationTool, tmdbTool)
-            .chatMemory(defaultMemory)
-            .build();
+        this.agentModel = parallelToolCalls.watch(chatLanguageModel);
+        this.agentStreamingModel = parallelToolCalls.watch(streamingChatLanguageModel);
+        this.tools = toolbox.executors();
 
         log.info("MovieAgentService initialized successfully");
     }
 
     /**
      * Send a message to the agent and get a response.
-     * Uses the default agent (no user context).
+     * Uses the default conversation (no user context).
      *
      * @param userMessage The user's query
      * @return The agent's response
+     * @throws Bulkhead.FullException if too many agent turns are already running
      */
     public String chat(String userMessage) {
         log.debug("Processing message: {}", userMessage);
-        try {
-            String response = defaultAgent.chat(userMessage);
+        Span turn = startTurn(DEFAULT_SESSION, false);
+        try (Tracer.SpanInScope ignored = tracer.withSpan(turn)) {
+            String response = answer(turn, DEFAULT_SESSION, userMessage, userMessage, false);
             log.debug("Agent response generated successfully");
             return response;
+        } catch (Bulkhead.FullException e) {
+            turn.error(e);
+            throw e;
         } catch (Exception e) {
+            turn.error(e);
             log.error("Error processing chat message", e);
             return "I apologize, but I encountered an error processing your request. Please try again.";
+        } finally {
+            turn.end();
         }
     }
 
@@ -82,56 +140,204 @@ public class MovieAgentService {
      * @param userId The unique identifier for the user
      * @param userMessage The user's query
      * @return The agent's response
+     * @throws Bulkhead.FullException if too many agent turns are already running
      */
     public String chatWithUser(String userId, String userMessage) {
         log.debug("Processing message from user {}: {}", userId, userMessage);
 
-        try {
-            // Get or create user-specific agent
-            MovieAgent userAgent = userAgents.computeIfAbsent(userId, this::createUserAgent);
-
-            // Inject user context into the message
-            String contextualMessage = String.format(
-                "[User ID: %s] %s",
-                userId,
-                userMessage
-            );
-
-            String response = userAgent.chat(contextualMessage);
+        Span turn = startTurn(userId, false);
+        try (Tracer.SpanInScope ignored = tracer.withSpan(turn)) {
+            String response = answer(turn, userId, userMessage, withUserContext(userId, userMessage), true);
             log.debug("Agent response generated successfully for user {}", userId);
             return response;
 
+        } catch (Bulkhead.FullException e) {
+            turn.error(e);
+            throw e;
         } catch (Exception e) {
+            turn.error(e);
             log.error("Error processing chat message for user " + userId, e);
             return "I apologize, but I encountered an error processing your request. Please try again.";
+        } finally {
+            turn.end();
+        }
+    }
+
+    /**
+     * Streams the agent's response token by token.
+     * Returns as soon as the request to the model is sent; the listener is then called
+     * from the model client's thread with tool-call progress, tokens, and finally
+     * completion or an error. A turn refused by the agent bulkhead is reported to the
+     * listener's onError with {@link Bulkhead.FullException}.
+     *
+     * @param userId The user's unique identifier, or null for the default conversation
+     * @param userMessage The user's query
+     * @param listener Receives the streamed events
+     */
+    public void chatStream(String userId, String userMessage, ChatStreamListener listener) {
+        String sessionKey = userId != null ? userId : DEFAULT_SESSION;
+        log.debug("Streaming message for session {}: {}", sessionKey, userMessage);
+
+        // The turn ends when the last token arrives, on the model client's thread
+        Span turn = startTurn(sessionKey, true);
+        String message = userId != null ? withUserContext(userId, userMessage) : userMessage;
+        SemanticResponseCache.Question question;
+        boolean personalContext;
+        try (Tracer.SpanInScope ignored = tracer.withSpan(turn)) {
+            question = responseCache.embed(userMessage);
+            Optional<String> cached = cachedAnswer(turn, sessionKey, question, message);
+            if (cached.isPresent()) {
+                turn.end();
+                listener.onToken(cached.get());
+                listener.onComplete(cached.get());
+                return;
+            }
+            personalContext = personalContext(question, sessionKey, userId != null);
+            agentBulkhead.acquire();
+        } catch (Exception e) {
+            turn.error(e).end();
+            log.error("Error starting chat stream for session " + sessionKey, e);
+            listener.onError(e);
+            return;
+        }
+
+        AgentTurn agentTurn = AgentTurn.start(sessionKey);
+        Runnable unsubscribe = toolbox.subscribe(agentTurn, listener);
+        Runnable untrace = toolbox.trace(agentTurn, turn);
+        TurnToolCalls calls = toolbox.record(agentTurn);
+        AtomicBoolean finished = new AtomicBoolean();
+        Runnable finish = () -> {
+            if (finished.compareAndSet(false, true)) {
+                unsubscribe.run();
+                untrace.run();
+                calls.close();
+                agentBulkhead.release();
+            }
+        };
+        try (Tracer.SpanInScope ignored = tracer.withSpan(turn)) {
+            agentFor(agentTurn).chatStream(agentTurn, message)
+                .onNext(listener::onToken)
+                .onComplete(response -> {
+                    finish.run();
+                    turn.end();
+                    responseCache.put(question, response.content().text(), calls, personalContext);
+                    listener.onComplete(response.content().text());
+                })
+                .onError(error -> {
+                    finish.run();
+                    turn.error(error).end();
+                    log.error("Error streaming chat message for session " + sessionKey, error);
+                    listener.onError(error);
+                })
+                .start();
+        } catch (Exception e) {
+            finish.run();
+            turn.error(e).end();
+            log.error("Error starting chat stream for session " + sessionKey, e);
+            listener.onError(e);
+        }
+    }
+
+    /**
+     * Serves a question from the response cache, or asks the agent and offers its answer to the cache.
+     *
+     * @param userMessage the question as the user asked it, which is what the cache is keyed on
+     * @param message the message sent to the agent, with any user context
+     * @param withUserContext whether the message carries the user's ID
+     */
+    private String answer(Span turn, String sessionKey, String userMessage, String message, boolean withUserContext) {
+        SemanticResponseCache.Question question = responseCache.embed(userMessage);
+        Optional<String> cached = cachedAnswer(turn, sessionKey, question, message);
+        if (cached.isPresent()) {
+            return cached.get();
         }
+        boolean personalContext = personalContext(question, sessionKey, withUserContext);
+
+        AgentTurn agentTurn = AgentTurn.start(sessionKey);
+        return agentBulkhead.execute(() -> {
+            try (TurnToolCalls calls = toolbox.record(agentTurn)) {
+                String response = agentFor(agentTurn).chat(agentTurn, message);
+                responseCache.put(question, response, calls, personalContext);
+                return response;
+            }
+        });
     }
 
     /**
-     * Creates a new agent instance for a specific user with dedicated chat memory.
+     * Looks the question up in the response cache. A hit is added to the session's history
+     * as if the model had answered, so follow-up questions see it.
      *
-     * @param userId The user's unique identifier
-     * @return A new MovieAgent instance
+     * @param question the embedded question, or null for turns that must not use the cache
      */
-    private MovieAgent createUserAgent(String userId) {
-        log.info("Creating new agent for user: {}", userId);
+    private Optional<String> cachedAnswer(Span turn, String sessionKey, SemanticResponseCache.Question question,
+                                          String message) {
+        if (question == null) {
+            return Optional.empty();
+        }
+        Optional<String> cached = responseCache.get(question);
+        turn.tag("agent.response_cache", cached.isPresent() ? "hit" : "miss");
+        cached.ifPresent(answer -> {
+            ChatMemory memory = memory(sessionKey);
+            memory.add(UserMessage.from(message));
+            memory.add(AiMessage.from(answer));
+        });
+        return cached;
+    }
 
-        ChatMemory userMemory = MessageWindowChatMemory.withMaxMessages(20);
-        userMemories.put(userId, userMemory);
+    /**
+     * Whether the turn can draw on anything of its user's: their ID in the message, or earlier
+     * messages in the conversation. History is only read for questions the cache may store.
+     */
+    private boolean personalContext(SemanticResponseCache.Question question, String sessionKey, boolean withUserContext) {
+        return question != null && (withUserContext || !memory(sessionKey).messages().isEmpty());
+    }
 
+    /**
+     * Builds the agent for one turn. AiServices keeps the ChatMemory its provider creates for
+     * each memory ID for as long as the agent lives, so an agent shared by every turn would hold
+     * one per turn ever run; this one holds the turn's own and goes with it.
+     * Building one only wires up the shared models and tools.
+     */
+    private MovieAgent agentFor(AgentTurn turn) {
         return AiServices.builder(MovieAgent.class)
-            .chatLanguageModel(chatLanguageModel)
-            .tools(reviewTool, recommendationTool, tmdbTool)
-            .chatMemory(userMemory)
+            .chatLanguageModel(agentModel)
+            .streamingChatLanguageModel(agentStreamingModel)
+            .tools(tools)
+            .chatMemoryProvider(memoryId -> memory(turn.sessionKey()))
+            .build();
+    }
+
+    private ChatMemory memory(Object memoryId) {
+        return MessageWindowChatMemory.builder()
+            .id(memoryId)
+            .maxMessages(MAX_MESSAGES)
+            .chatMemoryStore(chatMemoryStore)
             .build();
     }
 
+    private Span startTurn(String sessionKey, boolean streaming) {
+        return tracer.nextSpan()
+            .name("agent.turn")
+            .tag("agent.session", sessionKey)
+            .tag("agent.streaming", streaming)
+            .start();
+    }
+
+    // Inject user context into the message so tools can be called with the user's ID
+    private static String withUserContext(String userId, String userMessage) {
+        return String.format(
+            "[User ID: %s] %s",
+            userId,
+            userMessage
+        );
+    }
+
     /**
-     * Clears the conversation history for the default agent.
+     * Clears the conversation history for the default conversation.
      */
     public void clearMemory() {
         log.info("Clearing default agent memory");
-        initialize(); // Reinitialize with fresh memory
+        chatMemoryStore.deleteMessages(DEFAULT_SESSION);
     }
 
     /**
@@ -141,23 +347,15 @@ public class MovieAgentService {
      */
     public void clearUserMemory(String userId) {
         log.info("Clearing memory for user: {}", userId);
-
-        ChatMemory memory = userMemories.get(userId);
-        if (memory != null) {
-            memory.clear();
-        }
-
-        // Remove the agent so it will be recreated with fresh memory next time
-        userAgents.remove(userId);
-        userMemories.remove(userId);
+        chatMemoryStore.deleteMessages(userId);
     }
 
     /**
-     * Gets the number of active user sessions.
+     * Gets the number of conversations currently held on this instance.
      *
      * @return The count of users with active chat sessions
      */
     public int getActiveUserCount() {
-        return userAgents.size();
+        return sessionStore.size();
     }
 }
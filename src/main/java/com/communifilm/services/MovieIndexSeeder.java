@@ -0,0 +1,52 @@
+package com.communifilm.services;
+
+import com.communifilm.dtos.MovieDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * One-shot job that fills the {@link MovieOverviewIndex} with TMDB's most-voted movies,
+ * so criteria searches work before users have browsed much of the catalogue. Movies already
+ * indexed are skipped, so rerunning it only adds what is missing. Enable it for a single run
+ * with {@code movies.index.seed.enabled=true}; movies.index.seed.pages pages of 20 are read.
+ */
+@Component
+@ConditionalOnProperty(name = "movies.index.seed.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class MovieIndexSeeder implements ApplicationRunner {
+
+    // TMDB serves at most this many pages of any listing
+    private static final int MAX_PAGES = 500;
+
+    private final MovieService movieService;
+    private final MovieOverviewIndex index;
+
+    @Value("${movies.index.seed.pages:50}")
+    private int pages;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        log.info("Seeding movie index with {} pages from TMDB", pages);
+
+        int fetched = 0;
+        for (int page = 1; page <= Math.min(pages, MAX_PAGES); page++) {
+            // Fetching announces the movies to the index, which queues the new ones
+            List<MovieDto> movies = movieService.discover(page);
+            if (movies.isEmpty()) {
+                break;
+            }
+            index.indexPending();
+            fetched += movies.size();
+        }
+
+        log.info("Movie index seeding finished: {} movies fetched, {} indexed", fetched, index.size());
+    }
+}
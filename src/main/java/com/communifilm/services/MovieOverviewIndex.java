@@ -0,0 +1,371 @@
+package com.communifilm.services;
+
+import com.communifilm.dtos.MovieDto;
+import com.communifilm.events.MoviesFetchedEvent;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Local semantic index of TMDB movie overviews, so free-form criteria such as
+ * "sci-fi thriller with time loops" can be matched in-process instead of through
+ * TMDB's title search.
+ *
+ * Every movie MovieService returns is announced with a {@link MoviesFetchedEvent}; new movies
+ * and changed overviews are queued, and embedded in batches in the background with the
+ * in-process {@link EmbeddingModel}. {@link MovieIndexSeeder} can fill the index in bulk.
+ *
+ * Vectors are unit length and stored in a flat file under movies.index.path, memory-mapped
+ * at startup, so reopening an index costs no parsing: after a fixed header come the movie IDs,
+ * then one contiguous float array holding a vector per slot. The movie fields returned by
+ * searches are appended to a JSON-lines file beside it and loaded into memory at startup.
+ * A search is an exact brute-force scan over that array, copied out one vector at a time;
+ * up to ten thousand movies this costs about as much as embedding the query.
+ *
+ * Searches are counted as {@code movies.index.searches}, tagged hit or miss, and the number
+ * of indexed movies is published as {@code movies.index.entries}.
+ */
+@Service
+@Slf4j
+public class MovieOverviewIndex {
+
+    private static final int MAGIC = 0x4D4F5649;
+    private static final int VERSION = 1;
+    // magic, version, dimension, capacity, count; the rest is reserved
+    private static final int HEADER_BYTES = 64;
+    private static final int COUNT_OFFSET = 16;
+
+    private static final String VECTORS_FILE = "vectors.bin";
+    private static final String MOVIES_FILE = "movies.jsonl";
+    private static final ObjectMapper JSON = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /**
+     * A movie and how similar its overview is to the query, from -1 to 1.
+     */
+    public record Match(MovieDto movie, double similarity) {
+    }
+
+    private final EmbeddingModel embeddingModel;
+    private final Path directory;
+    private final int capacity;
+    private final double minSimilarity;
+    private final int maxPending;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    // Movies waiting to be embedded, keyed by ID so a movie seen twice is embedded once
+    private final Map<Long, MovieDto> pending = new ConcurrentHashMap<>();
+    private final Map<Long, MovieDto> movies = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> slots = new ConcurrentHashMap<>();
+
+    private final Object writeLock = new Object();
+    private final int dimension;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final IntBuffer ids;
+    private final FloatBuffer vectors;
+    private final BufferedWriter moviesWriter;
+    private volatile int count;
+    private boolean fullLogged;
+
+    public MovieOverviewIndex(EmbeddingModel embeddingModel,
+                              MeterRegistry meterRegistry,
+                              @Value("${movies.index.path:data/movie-index}") Path directory,
+                              @Value("${movies.index.capacity:50000}") int capacity,
+                              @Value("${movies.index.min-similarity:0.35}") double minSimilarity,
+                              @Value("${movies.index.max-pending:1000}") int maxPending) {
+        this.embeddingModel = embeddingModel;
+        this.directory = directory;
+        this.capacity = capacity;
+        this.minSimilarity = minSimilarity;
+        this.maxPending = maxPending;
+        this.dimension = embeddingModel.dimension();
+        this.hits = meterRegistry.counter("movies.index.searches", "result", "hit");
+        this.misses = meterRegistry.counter("movies.index.searches", "result", "miss");
+
+        try {
+            Files.createDirectories(directory);
+            Path vectorsFile = directory.resolve(VECTORS_FILE);
+            Path moviesFile = directory.resolve(MOVIES_FILE);
+            boolean existing = Files.exists(vectorsFile) && Files.size(vectorsFile) > 0;
+
+            long vectorBytes = (long) capacity * dimension * Float.BYTES;
+            long idBytes = (long) capacity * Integer.BYTES;
+            if (HEADER_BYTES + idBytes + vectorBytes > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("movies.index.capacity " + capacity + " needs more than 2 GB of vectors");
+            }
+
+            this.channel = FileChannel.open(vectorsFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + idBytes + vectorBytes);
+            mapped.order(ByteOrder.nativeOrder());
+            this.header = mapped;
+            this.ids = mapped.slice(HEADER_BYTES, (int) idBytes).order(ByteOrder.nativeOrder()).asIntBuffer();
+            this.vectors = mapped.slice(HEADER_BYTES + (int) idBytes, (int) vectorBytes).order(ByteOrder.nativeOrder()).asFloatBuffer();
+
+            if (existing && matchesHeader()) {
+                loadMovies(moviesFile);
+            } else {
+                if (existing) {
+                    log.warn("Movie index at {} was built with different settings; rebuilding it", directory);
+                }
+                Files.deleteIfExists(moviesFile);
+                writeHeader();
+            }
+            this.moviesWriter = Files.newBufferedWriter(moviesFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open movie index at " + directory, e);
+        }
+
+        meterRegistry.gauge("movies.index.entries", this, MovieOverviewIndex::size);
+        log.info("Opened movie index at {} with {} movies", directory, count);
+    }
+
+    /**
+     * @return the number of indexed movies
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Finds the movies whose overviews best match a free-form description.
+     *
+     * @return up to limit movies with a similarity of at least movies.index.min-similarity,
+     *         most similar first; empty if the index is empty or nothing is close enough
+     */
+    public List<Match> search(String criteria, int limit) {
+        if (count == 0 || criteria == null || criteria.isBlank()) {
+            misses.increment();
+            return List.of();
+        }
+        Embedding query = embeddingModel.embed(criteria).content();
+        query.normalize();
+
+        List<Match> matches = search(query.vector(), limit);
+        (matches.isEmpty() ? misses : hits).increment();
+        return matches;
+    }
+
+    // Package-private so the benchmarks can measure the scan without the embedding
+    List<Match> search(float[] query, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        int size = count;
+        int[] topSlots = new int[limit];
+        float[] topScores = new float[limit];
+        int found = 0;
+
+        float[] candidate = new float[dimension];
+        for (int slot = 0; slot < size; slot++) {
+            vectors.get(slot * dimension, candidate);
+            float score = dot(query, candidate);
+            if (score < minSimilarity || (found == limit && score <= topScores[limit - 1])) {
+                continue;
+            }
+            // Insertion into the top list, which is short and kept sorted
+            int position = found < limit ? found++ : limit - 1;
+            while (position > 0 && topScores[position - 1] < score) {
+                topScores[position] = topScores[position - 1];
+                topSlots[position] = topSlots[position - 1];
+                position--;
+            }
+            topScores[position] = score;
+            topSlots[position] = slot;
+        }
+
+        List<Match> matches = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            MovieDto movie = movies.get((long) ids.get(topSlots[i]));
+            if (movie != null) {
+                matches.add(new Match(movie, topScores[i]));
+            }
+        }
+        return matches;
+    }
+
+    // Eight independent sums let the JIT keep several multiply-adds in flight
+    private static float dot(float[] a, float[] b) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0;
+        int i = 0;
+        for (; i + 7 < a.length; i += 8) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+            s4 += a[i + 4] * b[i + 4];
+            s5 += a[i + 5] * b[i + 5];
+            s6 += a[i + 6] * b[i + 6];
+            s7 += a[i + 7] * b[i + 7];
+        }
+        for (; i < a.length; i++) {
+            s0 += a[i] * b[i];
+        }
+        return ((s0 + s1) + (s2 + s3)) + ((s4 + s5) + (s6 + s7));
+    }
+
+    /**
+     * Queues movies that are new to the index, or whose overview changed, for embedding.
+     * Movies without an overview are skipped, and so is everything past movies.index.max-pending;
+     * those are queued again the next time they are fetched.
+     */
+    @EventListener
+    public void onMoviesFetched(MoviesFetchedEvent event) {
+        for (MovieDto movie : event.movies()) {
+            if (movie.getOverview() == null || movie.getOverview().isBlank()) {
+                continue;
+            }
+            MovieDto known = movies.get(movie.getId());
+            if (known != null && Objects.equals(known.getOverview(), movie.getOverview())) {
+                continue;
+            }
+            if (pending.size() >= maxPending) {
+                return;
+            }
+            pending.put(movie.getId(), movie);
+        }
+    }
+
+    /**
+     * Embeds the queued movies and writes them to the index.
+     */
+    @Scheduled(fixedDelayString = "${movies.index.flush-interval:5s}")
+    public void indexPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<MovieDto> batch = new ArrayList<>(pending.values());
+        batch.forEach(movie -> pending.remove(movie.getId(), movie));
+
+        try {
+            List<TextSegment> texts = batch.stream()
+                    .map(movie -> TextSegment.from(movie.getTitle() + ". " + movie.getOverview()))
+                    .collect(Collectors.toList());
+            List<Embedding> embeddings = embeddingModel.embedAll(texts).content();
+
+            List<float[]> unitVectors = new ArrayList<>(embeddings.size());
+            for (Embedding embedding : embeddings) {
+                embedding.normalize();
+                unitVectors.add(embedding.vector());
+            }
+            add(batch, unitVectors);
+        } catch (Exception e) {
+            log.warn("Failed to index {} movies", batch.size(), e);
+        }
+    }
+
+    // Package-private so the benchmarks can fill the index with precomputed vectors
+    void add(List<MovieDto> batch, List<float[]> unitVectors) throws IOException {
+        synchronized (writeLock) {
+            // The movie fields go to disk first, so every slot on disk has a movie to return
+            for (MovieDto movie : batch) {
+                moviesWriter.write(JSON.writeValueAsString(movie));
+                moviesWriter.newLine();
+            }
+            moviesWriter.flush();
+
+            for (int i = 0; i < batch.size(); i++) {
+                MovieDto movie = batch.get(i);
+                Integer slot = slots.get(movie.getId());
+                if (slot == null) {
+                    if (count == capacity) {
+                        if (!fullLogged) {
+                            log.warn("Movie index is full at {} movies; raise movies.index.capacity to index more", capacity);
+                            fullLogged = true;
+                        }
+                        continue;
+                    }
+                    slot = count;
+                }
+                vectors.put(slot * dimension, unitVectors.get(i));
+                ids.put(slot, Math.toIntExact(movie.getId()));
+                movies.put(movie.getId(), movie);
+                if (slot == count) {
+                    slots.put(movie.getId(), slot);
+                    count = slot + 1;
+                    header.putInt(COUNT_OFFSET, count);
+                }
+            }
+            header.force();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            header.force();
+            moviesWriter.close();
+            channel.close();
+        }
+    }
+
+    private boolean matchesHeader() {
+        return header.getInt(0) == MAGIC
+                && header.getInt(4) == VERSION
+                && header.getInt(8) == dimension
+                && header.getInt(12) == capacity
+                && header.getInt(COUNT_OFFSET) <= capacity;
+    }
+
+    private void writeHeader() {
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putInt(8, dimension);
+        header.putInt(12, capacity);
+        header.putInt(COUNT_OFFSET, 0);
+        header.force();
+    }
+
+    // Later lines win, so a changed overview replaces the original
+    private void loadMovies(Path moviesFile) throws IOException {
+        if (Files.exists(moviesFile)) {
+            try (var lines = Files.lines(moviesFile, StandardCharsets.UTF_8)) {
+                lines.filter(line -> !line.isBlank()).forEach(line -> {
+                    try {
+                        MovieDto movie = JSON.readValue(line, MovieDto.class);
+                        movies.put(movie.getId(), movie);
+                    } catch (IOException e) {
+                        log.warn("Skipping unreadable line in {}", moviesFile);
+                    }
+                });
+            }
+        }
+        count = header.getInt(COUNT_OFFSET);
+        for (int slot = 0; slot < count; slot++) {
+            slots.put((long) ids.get(slot), slot);
+        }
+    }
+}
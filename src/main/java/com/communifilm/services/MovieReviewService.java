@@ -1,28 +1,75 @@
 package com.communifilm.services;
 
 import com.communifilm.dtos.CreateReviewDto;
+import com.communifilm.dtos.PageDto;
+import com.communifilm.events.ReviewCreatedEvent;
 import com.communifilm.models.MovieReview;
+import com.communifilm.utils.ApiFutureAdapter;
+import com.communifilm.utils.SingleFlight;
 import com.google.cloud.firestore.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
 
+/**
+ * Reads and writes movie reviews in the "reviews" collection.
+ * Identical reads that arrive while one is in flight (e.g. everyone opening a trending
+ * movie's page at once) share a single Firestore query through {@link SingleFlight}.
+ */
 @Service
 public class MovieReviewService {
 
+    // Fields a paged listing may project; the ID and createdAt are always returned
+    private static final Set<String> REVIEW_FIELDS =
+            Set.of("reviewId", "movieId", "userId", "text", "replyCount", "createdAt", "updatedAt");
+    private static final List<String> REQUIRED_REVIEW_FIELDS = List.of("reviewId", "createdAt");
+
     private final Firestore firestore;
-    private final ReviewReplyService reviewReplyService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FirestoreMetrics metrics;
+
+    private final SingleFlight<Long, List<MovieReview>> moviesFlight;
+    private final SingleFlight<PageKey, PageDto<MovieReview>> pagesFlight;
+    private final SingleFlight<Long, Integer> countsFlight;
+    private final SingleFlight<String, List<MovieReview>> usersFlight;
+
+    // A paged read is identical to another only if every paging argument matches
+    private record PageKey(Long movieId, Integer pageSize, String pageToken, List<String> fields) {
+    }
 
-    public MovieReviewService(Firestore firestore, ReviewReplyService reviewReplyService) {
+    public MovieReviewService(Firestore firestore,
+                              ApplicationEventPublisher eventPublisher,
+                              FirestoreMetrics metrics,
+                              MeterRegistry meterRegistry) {
         this.firestore = firestore;
-        this.reviewReplyService = reviewReplyService;
+        this.eventPublisher = eventPublisher;
+        this.metrics = metrics;
+        this.moviesFlight = new SingleFlight<>("reviews.listByMovie", meterRegistry);
+        this.pagesFlight = new SingleFlight<>("reviews.pageByMovie", meterRegistry);
+        this.countsFlight = new SingleFlight<>("reviews.countByMovie", meterRegistry);
+        this.usersFlight = new SingleFlight<>("reviews.listByUser", meterRegistry);
     }
 
     public MovieReview createReview(CreateReviewDto reviewDto) throws ExecutionException, InterruptedException {
+        return createReviewAsync(reviewDto).get();
+    }
+
+    /**
+     * Writes a new review without blocking the caller.
+     * The response is built from the request and the write's commit time, which is the
+     * value the server timestamps resolve to, so no read-back is needed.
+     */
+    public CompletableFuture<MovieReview> createReviewAsync(CreateReviewDto reviewDto) {
         // Get a reference to a new document
         DocumentReference reviewRef = firestore.collection("reviews").document();
 
@@ -32,48 +79,123 @@ public class MovieReviewService {
         newReviewData.put("movieId", reviewDto.getMovieId());
         newReviewData.put("userId", reviewDto.getUserId());
         newReviewData.put("text", reviewDto.getText());
+        newReviewData.put("replyCount", 0);
         newReviewData.put("createdAt", FieldValue.serverTimestamp());
         newReviewData.put("updatedAt", FieldValue.serverTimestamp());
 
-        // Write the data and wait for the operation to complete
-        reviewRef.set(newReviewData).get();
-
-        // Fetch the document we just created
-        DocumentSnapshot snapshot = reviewRef.get().get();
+        return metrics.time("reviews", "create", reviewRef.set(newReviewData))
+                .thenApply(writeResult -> {
+                    forgetReadsAffectedBy(reviewDto);
+                    eventPublisher.publishEvent(new ReviewCreatedEvent(reviewDto.getMovieId(), reviewRef.getId()));
 
-        // Convert the complete snapshot (with timestamps) to a MovieReview object and return it
-        return snapshot.toObject(MovieReview.class);
+                    Instant committedAt = ApiFutureAdapter.toInstant(writeResult.getUpdateTime());
+                    return MovieReview.builder()
+                            .reviewId(reviewRef.getId())
+                            .movieId(reviewDto.getMovieId())
+                            .userId(reviewDto.getUserId())
+                            .text(reviewDto.getText())
+                            .replyCount(0)
+                            .createdAt(committedAt)
+                            .updatedAt(committedAt)
+                            .build();
+                });
     }
 
     public List<MovieReview> getReviewsForMovie(Long movieId) throws ExecutionException, InterruptedException {
-        List<MovieReview> reviews = new ArrayList<>();
-        List<QueryDocumentSnapshot> documents = firestore.collection("reviews")
+        return getReviewsForMovieAsync(movieId).get();
+    }
+
+    public CompletableFuture<List<MovieReview>> getReviewsForMovieAsync(Long movieId) {
+        return moviesFlight.executeAsync(movieId, () ->
+                queryReviews("listByMovie", firestore.collection("reviews").whereEqualTo("movieId", movieId)));
+    }
+
+    /**
+     * Returns one page of a movie's reviews, newest first.
+     *
+     * @param pageSize number of reviews per page, capped at {@value PageCursors#MAX_PAGE_SIZE}
+     * @param pageToken nextPageToken from the previous page, or null for the first page
+     * @param fields fields to return (e.g. for list views), or null for whole reviews
+     */
+    public PageDto<MovieReview> getReviewsForMovie(Long movieId, Integer pageSize, String pageToken, List<String> fields)
+            throws ExecutionException, InterruptedException {
+        return getReviewsForMovieAsync(movieId, pageSize, pageToken, fields).get();
+    }
+
+    /**
+     * Async variant of {@link #getReviewsForMovie(Long, Integer, String, List)}.
+     * Invalid paging arguments are rejected immediately with an IllegalArgumentException.
+     */
+    public CompletableFuture<PageDto<MovieReview>> getReviewsForMovieAsync(Long movieId, Integer pageSize, String pageToken, List<String> fields) {
+        Query query = PageCursors.page(
+                firestore.collection("reviews").whereEqualTo("movieId", movieId),
+                Query.Direction.DESCENDING, pageSize, pageToken,
+                fields, REVIEW_FIELDS, REQUIRED_REVIEW_FIELDS);
+
+        int size = PageCursors.pageSize(pageSize);
+        PageKey key = new PageKey(movieId, pageSize, pageToken, fields);
+        return pagesFlight.executeAsync(key, () -> metrics.time("reviews", "pageByMovie", query.get())
+                .thenApply(snapshot -> {
+                    List<QueryDocumentSnapshot> documents = snapshot.getDocuments();
+                    List<MovieReview> reviews = documents.stream()
+                            .limit(size)
+                            .map(document -> fields == null || fields.isEmpty() || fields.contains("replyCount")
+                                    ? toReview(document)
+                                    : document.toObject(MovieReview.class))
+                            .collect(Collectors.toList());
+
+                    return new PageDto<>(reviews, PageCursors.nextPageToken(documents, size));
+                }));
+    }
+
+    /**
+     * Counts a movie's reviews with a server-side aggregation, without reading them.
+     */
+    public int countReviewsForMovie(Long movieId) throws ExecutionException, InterruptedException {
+        AggregateQuery query = firestore.collection("reviews")
                 .whereEqualTo("movieId", movieId)
-                .get()
-                .get()
-                .getDocuments();
-
-        for (QueryDocumentSnapshot document : documents) {
-            MovieReview review = document.toObject(MovieReview.class);
-            review.setReplyCount(reviewReplyService.countRepliesForReview(review.getReviewId()));
-            reviews.add(review);
-        }
-        return reviews;
+                .count();
+
+        return countsFlight.executeAsync(movieId, () -> metrics.time("reviews", "countByMovie", query.get())
+                        .thenApply(snapshot -> (int) snapshot.getCount()))
+                .get();
     }
 
     public List<MovieReview> getReviewsForUser(String userId) throws ExecutionException, InterruptedException {
-        List<MovieReview> reviews = new ArrayList<>();
-        List<QueryDocumentSnapshot> documents = firestore.collection("reviews")
-                .whereEqualTo("userId", userId)
-                .get()
-                .get()
-                .getDocuments();
-
-        for (QueryDocumentSnapshot document : documents) {
-            MovieReview review = document.toObject(MovieReview.class);
-            review.setReplyCount(reviewReplyService.countRepliesForReview(review.getReviewId()));
-            reviews.add(review);
+        return getReviewsForUserAsync(userId).get();
+    }
+
+    public CompletableFuture<List<MovieReview>> getReviewsForUserAsync(String userId) {
+        return usersFlight.executeAsync(userId, () ->
+                queryReviews("listByUser", firestore.collection("reviews").whereEqualTo("userId", userId)));
+    }
+
+    // Reads that started before the write committed must not be shared with later readers
+    private void forgetReadsAffectedBy(CreateReviewDto reviewDto) {
+        Long movieId = reviewDto.getMovieId();
+        moviesFlight.forget(id -> Objects.equals(id, movieId));
+        countsFlight.forget(id -> Objects.equals(id, movieId));
+        pagesFlight.forget(key -> Objects.equals(key.movieId(), movieId));
+        usersFlight.forget(id -> Objects.equals(id, reviewDto.getUserId()));
+    }
+
+    private CompletableFuture<List<MovieReview>> queryReviews(String operation, Query query) {
+        return metrics.time("reviews", operation, query.get())
+                .thenApply(snapshot -> snapshot.getDocuments().stream()
+                        .map(this::toReview)
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * Maps a review document. The reply count is denormalized onto the review and
+     * maintained by {@link ReviewReplyService#createReply}, so no extra query is needed.
+     * Documents written before the counter existed read as zero until backfilled.
+     */
+    private MovieReview toReview(DocumentSnapshot document) {
+        MovieReview review = document.toObject(MovieReview.class);
+        if (review.getReplyCount() == null) {
+            review.setReplyCount(0);
         }
-        return reviews;
+        return review;
     }
 }
\ No newline at end of file
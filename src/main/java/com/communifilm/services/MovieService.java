@@ -3,60 +3,103 @@ package com.communifilm.services;
 import com.communifilm.dtos.MovieDetailDto;
 import com.communifilm.dtos.MovieDto;
 import com.communifilm.dtos.TmdbResponse;
-import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
+import com.communifilm.events.MoviesFetchedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
 
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
+/**
+ * Movie data from TMDB, mapped to the DTOs the API returns.
+ * Every movie returned is also announced with a {@link MoviesFetchedEvent},
+ * which is how {@link MovieOverviewIndex} learns about new movies.
+ */
 @Service
-@RequiredArgsConstructor
+@Slf4j
 public class MovieService {
-    private static final String TMDB_IMG_BASE_URL =  "https://image.tmdb.org/t/p/w500";
-
-    private final RestTemplate restTemplate;
-
-    @Value("${tmdb.api.key}")
-    private String apiKey;
-
-    @Value("${tmdb.base.url}")
-    private String tmdbBaseUrl;
+    private final TmdbGateway tmdbGateway;
+    private final ExecutorService tmdbExecutor;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public MovieService(TmdbGateway tmdbGateway,
+                        @Qualifier("tmdbExecutor") ExecutorService tmdbExecutor,
+                        ApplicationEventPublisher eventPublisher) {
+        this.tmdbGateway = tmdbGateway;
+        this.tmdbExecutor = tmdbExecutor;
+        this.eventPublisher = eventPublisher;
+    }
 
     public List<MovieDto> getTrendy() {
-        String url = UriComponentsBuilder.fromUriString(tmdbBaseUrl + "/trending/movie/week")
-                .queryParam("api_key", apiKey)
-                .toUriString();
-        return processTmdbResponse(url);
+        return published(processTmdbResponse(tmdbGateway.trending()));
     }
 
     public List<MovieDto> searchMovies(String query) {
-        String url = UriComponentsBuilder.fromUriString(tmdbBaseUrl + "/search/movie")
-                .queryParam("api_key", apiKey)
-                .queryParam("query", query)
-                .toUriString();
-        return processTmdbResponse(url);
+        return published(processTmdbResponse(tmdbGateway.search(query)));
     }
 
-    public MovieDetailDto getMovieDetails(int movieId) {
-        String url = UriComponentsBuilder.fromUriString(tmdbBaseUrl + "/movie/" + movieId)
-                .queryParam("api_key", apiKey)
-                .toUriString();
+    /**
+     * Returns one page of the most-voted movies, for bulk jobs such as {@link MovieIndexSeeder}.
+     */
+    public List<MovieDto> discover(int page) {
+        return published(processTmdbResponse(tmdbGateway.discover(page)));
+    }
 
-        MovieDetailDto movieDetails = restTemplate.getForObject(url, MovieDetailDto.class);
+    /**
+     * The returned details are the gateway's cached instance, shared with every other caller;
+     * they already carry the poster URL and must not be modified.
+     */
+    public MovieDetailDto getMovieDetails(int movieId) {
+        MovieDetailDto movieDetails = tmdbGateway.movieDetails(movieId);
         if (movieDetails != null) {
-            movieDetails.setPosterURL(toPosterURL(movieDetails.getPosterPath()));
+            published(List.of(new MovieDto(movieDetails.getTitle(), movieDetails.getOverview(),
+                    movieDetails.getPosterURL(), movieDetails.getId())));
         }
 
         return movieDetails;
     }
 
-    private List<MovieDto> processTmdbResponse(String url) {
-        TmdbResponse response = restTemplate.getForObject(url, TmdbResponse.class);
+    /**
+     * Fetches details for several movies concurrently on the bounded TMDB executor.
+     * Duplicate IDs are fetched once. Movies that are not found or fail to load are
+     * left out of the result rather than failing the whole batch.
+     *
+     * @return details keyed by movie ID, in the order the IDs were first given
+     */
+    public Map<Integer, MovieDetailDto> getMovieDetailsBatch(Collection<Integer> movieIds) {
+        Map<Integer, CompletableFuture<MovieDetailDto>> pending = new LinkedHashMap<>();
+        for (Integer movieId : movieIds) {
+            pending.computeIfAbsent(movieId, id -> CompletableFuture
+                    .supplyAsync(() -> getMovieDetails(id), tmdbExecutor)
+                    .exceptionally(e -> {
+                        log.warn("Failed to fetch details for movie {}", id, e);
+                        return null;
+                    }));
+        }
 
+        Map<Integer, MovieDetailDto> details = new LinkedHashMap<>();
+        pending.forEach((id, future) -> {
+            MovieDetailDto movieDetails = future.join();
+            if (movieDetails != null) {
+                details.put(id, movieDetails);
+            }
+        });
+        return details;
+    }
+
+    private List<MovieDto> published(List<MovieDto> movies) {
+        if (!movies.isEmpty()) {
+            eventPublisher.publishEvent(new MoviesFetchedEvent(movies));
+        }
+        return movies;
+    }
+
+    // Package-private so the benchmarks can measure the mapping on its own
+    List<MovieDto> processTmdbResponse(TmdbResponse response) {
         if (response == null || response.getResults() == null) {
             return Collections.emptyList();
         }
@@ -65,17 +108,9 @@ public class MovieService {
                 .map(r -> new MovieDto(
                         r.getTitle(),
                         r.getOverview(),
-                        toPosterURL(r.getPosterPath()),
+                        TmdbGateway.posterUrl(r.getPosterPath()),
                         r.getId()
                 ))
                 .collect(Collectors.toList());
     }
-
-    private static String toPosterURL(String path){
-        if (path == null || path.isBlank()){
-            return null;
-        }
-
-        return TMDB_IMG_BASE_URL + path;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,93 @@
+package com.communifilm.services;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Query;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Helpers for createdAt-ordered cursor pagination.
+ * Pages are ordered by createdAt and then document ID, so the cursor is the pair
+ * (createdAt, id) of the last document on a page, encoded as an opaque URL-safe token.
+ */
+final class PageCursors {
+
+    static final int DEFAULT_PAGE_SIZE = 20;
+    static final int MAX_PAGE_SIZE = 50;
+
+    private PageCursors() {}
+
+    /**
+     * Applies ordering, the cursor from a previous page, projection and the page size to a query.
+     * One extra document is requested so callers can tell whether another page follows.
+     *
+     * @param fields fields to return, or null/empty for whole documents; must be a subset of allowedFields
+     * @param requiredFields fields always returned when projecting (e.g. the ID and createdAt)
+     */
+    static Query page(Query query, Query.Direction direction, Integer pageSize, String pageToken,
+                      List<String> fields, Set<String> allowedFields, List<String> requiredFields) {
+        Query paged = query
+                .orderBy("createdAt", direction)
+                .orderBy(FieldPath.documentId(), direction);
+
+        if (pageToken != null && !pageToken.isBlank()) {
+            paged = paged.startAfter(decode(pageToken));
+        }
+
+        if (fields != null && !fields.isEmpty()) {
+            Set<String> selected = new LinkedHashSet<>(requiredFields);
+            for (String field : fields) {
+                if (!allowedFields.contains(field)) {
+                    throw new IllegalArgumentException("Unknown field: " + field);
+                }
+                selected.add(field);
+            }
+            paged = paged.select(selected.toArray(new String[0]));
+        }
+
+        return paged.limit(pageSize(pageSize) + 1);
+    }
+
+    static int pageSize(Integer requested) {
+        if (requested == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (requested < 1) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        return Math.min(requested, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Returns the token for the page after this one, or null if this is the last page.
+     *
+     * @param documents the query results, including the extra look-ahead document
+     * @param pageSize the effective page size from {@link #pageSize(Integer)}
+     */
+    static String nextPageToken(List<? extends DocumentSnapshot> documents, int pageSize) {
+        return documents.size() > pageSize ? encode(documents.get(pageSize - 1)) : null;
+    }
+
+    private static String encode(DocumentSnapshot last) {
+        Timestamp createdAt = last.getTimestamp("createdAt");
+        String raw = createdAt.getSeconds() + ":" + createdAt.getNanos() + ":" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Object[] decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 3);
+            Timestamp createdAt = Timestamp.ofTimeSecondsAndNanos(Long.parseLong(parts[0]), Integer.parseInt(parts[1]));
+            return new Object[] { createdAt, parts[2] };
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid page token", e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.communifilm.services;
+
+import com.google.cloud.firestore.*;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * One-shot job that recomputes the denormalized {@code replyCount} on every review.
+ * Reviews created before the counter existed have no value, and the counter can drift
+ * if replies are ever deleted by hand. Enable it for a single run with
+ * {@code communifilm.backfill.reply-counts=true}.
+ */
+@Component
+@ConditionalOnProperty(name = "communifilm.backfill.reply-counts", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class ReplyCountBackfill implements ApplicationRunner {
+
+    // Firestore caps a batched write at 500 operations
+    private static final int PAGE_SIZE = 500;
+
+    private final Firestore firestore;
+    private final ReviewReplyService reviewReplyService;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        log.info("Starting reply count backfill");
+
+        int scanned = 0;
+        int updated = 0;
+        DocumentSnapshot last = null;
+
+        while (true) {
+            Query page = firestore.collection("reviews")
+                    .orderBy(FieldPath.documentId())
+                    .limit(PAGE_SIZE);
+            if (last != null) {
+                page = page.startAfter(last);
+            }
+
+            List<QueryDocumentSnapshot> documents = page.get().get().getDocuments();
+            if (documents.isEmpty()) {
+                break;
+            }
+
+            WriteBatch batch = firestore.batch();
+            int pending = 0;
+            for (QueryDocumentSnapshot document : documents) {
+                int actual = reviewReplyService.countRepliesForReview(document.getId());
+                Long stored = document.getLong("replyCount");
+                if (!Objects.equals(stored, (long) actual)) {
+                    batch.update(document.getReference(), "replyCount", actual);
+                    pending++;
+                }
+            }
+            if (pending > 0) {
+                batch.commit().get();
+            }
+
+            scanned += documents.size();
+            updated += pending;
+            last = documents.get(documents.size() - 1);
+        }
+
+        log.info("Reply count backfill finished: {} reviews scanned, {} updated", scanned, updated);
+    }
+}
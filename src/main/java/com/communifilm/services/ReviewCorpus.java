@@ -0,0 +1,55 @@
+package com.communifilm.services;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The review texts a summary is generated from, in rank order, with their token counts.
+ *
+ * @param texts the selected review texts, most relevant first
+ * @param tokenCounts the estimated token count of each text
+ * @param reviewCount how many reviews the movie has in total
+ * @param duplicates near-identical reviews that were dropped
+ * @param omitted reviews left out to stay within the token budget
+ */
+public record ReviewCorpus(List<String> texts, List<Integer> tokenCounts, int reviewCount, int duplicates, int omitted) {
+
+    public int size() {
+        return texts.size();
+    }
+
+    public int tokenCount() {
+        return tokenCounts.stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * @return true if reviews were dropped as duplicates or left out over budget
+     */
+    public boolean isReduced() {
+        return duplicates > 0 || omitted > 0;
+    }
+
+    /**
+     * Splits the texts, in order, into chunks of at most maxTokens each.
+     * A text longer than maxTokens gets a chunk of its own.
+     */
+    public List<List<String>> chunks(int maxTokens) {
+        List<List<String>> chunks = new ArrayList<>();
+        List<String> chunk = new ArrayList<>();
+        int chunkTokens = 0;
+        for (int i = 0; i < texts.size(); i++) {
+            int tokens = tokenCounts.get(i);
+            if (!chunk.isEmpty() && chunkTokens + tokens > maxTokens) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+                chunkTokens = 0;
+            }
+            chunk.add(texts.get(i));
+            chunkTokens += tokens;
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+}
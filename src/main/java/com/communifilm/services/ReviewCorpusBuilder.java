@@ -0,0 +1,154 @@
+package com.communifilm.services;
+
+import com.communifilm.models.MovieReview;
+import dev.langchain4j.model.Tokenizer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Selects the review texts a summary is generated from, within a token budget.
+ *
+ * Reviews are ranked most replied-to first, then newest. Walking that order, a review
+ * that is nearly identical to one already kept is dropped, an overly long review is cut
+ * short, and once the budget is spent the remaining reviews are left out. Near-duplicates
+ * are found by comparing 64-bit SimHash fingerprints of each review's word pairs, which
+ * keeps the check cheap for movies with thousands of reviews.
+ */
+@Component
+public class ReviewCorpusBuilder {
+
+    private static final Comparator<MovieReview> RANKING = Comparator
+            .comparing((MovieReview review) -> review.getReplyCount() != null ? review.getReplyCount() : 0, Comparator.reverseOrder())
+            .thenComparing(MovieReview::getCreatedAt, Comparator.nullsLast(Comparator.<Instant>reverseOrder()))
+            .thenComparing(MovieReview::getReviewId, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Tokenizer tokenizer;
+    private final int maxReviewTokens;
+    private final int maxTokens;
+    private final int nearDuplicateBits;
+
+    public ReviewCorpusBuilder(Tokenizer tokenizer,
+                               @Value("${reviews.summary.corpus.max-review-tokens:400}") int maxReviewTokens,
+                               @Value("${reviews.summary.corpus.max-tokens:32000}") int maxTokens,
+                               @Value("${reviews.summary.corpus.near-duplicate-bits:3}") int nearDuplicateBits) {
+        this.tokenizer = tokenizer;
+        this.maxReviewTokens = maxReviewTokens;
+        this.maxTokens = maxTokens;
+        this.nearDuplicateBits = nearDuplicateBits;
+    }
+
+    public ReviewCorpus build(List<MovieReview> reviews) {
+        List<MovieReview> ranked = reviews.stream()
+                .filter(review -> review.getText() != null && !review.getText().isBlank())
+                .sorted(RANKING)
+                .toList();
+
+        List<String> texts = new ArrayList<>();
+        List<Integer> tokenCounts = new ArrayList<>();
+        long[] fingerprints = new long[ranked.size()];
+        int kept = 0;
+        int duplicates = 0;
+        int omitted = 0;
+        int totalTokens = 0;
+
+        for (MovieReview review : ranked) {
+            String text = review.getText().strip();
+            long fingerprint = simHash(text);
+            if (isNearDuplicate(fingerprint, fingerprints, kept)) {
+                duplicates++;
+                continue;
+            }
+            fingerprints[kept++] = fingerprint;
+
+            int tokens = tokenizer.estimateTokenCountInText(text);
+            if (tokens > maxReviewTokens) {
+                text = text.substring(0, (int) ((long) text.length() * maxReviewTokens / tokens)) + "...";
+                tokens = tokenizer.estimateTokenCountInText(text);
+            }
+            if (totalTokens + tokens > maxTokens) {
+                omitted++;
+                continue;
+            }
+            texts.add(text);
+            tokenCounts.add(tokens);
+            totalTokens += tokens;
+        }
+
+        return new ReviewCorpus(texts, tokenCounts, reviews.size(), duplicates, omitted);
+    }
+
+    private boolean isNearDuplicate(long fingerprint, long[] fingerprints, int count) {
+        for (int i = 0; i < count; i++) {
+            if (Long.bitCount(fingerprint ^ fingerprints[i]) <= nearDuplicateBits) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * SimHash over the text's lower-cased word pairs (single words for one-word texts):
+     * texts that share most of their word pairs get fingerprints a few bits apart.
+     * Words are hashed in one pass over the characters, without building substrings.
+     */
+    static long simHash(String text) {
+        int[] weights = new int[64];
+        int features = 0;
+        long previous = 0;
+        boolean hasPrevious = false;
+        long word = FNV_OFFSET;
+        boolean inWord = false;
+
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word = (word ^ Character.toLowerCase(c)) * FNV_PRIME;
+                inWord = true;
+            } else if (inWord) {
+                if (hasPrevious) {
+                    addFeature(weights, mix(previous * 31 + word));
+                    features++;
+                }
+                previous = word;
+                hasPrevious = true;
+                word = FNV_OFFSET;
+                inWord = false;
+            }
+        }
+        if (features == 0 && hasPrevious) {
+            addFeature(weights, mix(previous));
+        }
+
+        long fingerprint = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint;
+    }
+
+    private static void addFeature(int[] weights, long hash) {
+        for (int bit = 0; bit < 64; bit++) {
+            weights[bit] += (int) ((hash >>> bit) & 1) * 2 - 1;
+        }
+    }
+
+    // MurmurHash3's fmix64, spreading FNV's weakly mixed bits across the whole word
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -1,26 +1,47 @@
 package com.communifilm.services;
 
 import com.communifilm.dtos.CreateReviewReplyDto;
+import com.communifilm.dtos.PageDto;
 import com.communifilm.dtos.ReviewReplyResponseDto;
 import com.communifilm.models.ReviewReply;
+import com.communifilm.utils.ApiFutureAdapter;
 import com.google.cloud.firestore.*;
 import org.springframework.stereotype.Service;
-import java.util.ArrayList;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
 
 @Service
 public class ReviewReplyService {
 
+    // Fields a paged listing may project; the ID and createdAt are always returned
+    private static final Set<String> REPLY_FIELDS =
+            Set.of("replyId", "parentReviewId", "username", "text", "createdAt");
+    private static final List<String> REQUIRED_REPLY_FIELDS = List.of("replyId", "createdAt");
+
     private final Firestore firestore;
+    private final FirestoreMetrics metrics;
 
-    public ReviewReplyService(Firestore firestore) {
+    public ReviewReplyService(Firestore firestore, FirestoreMetrics metrics) {
         this.firestore = firestore;
+        this.metrics = metrics;
     }
 
     public ReviewReply createReply(CreateReviewReplyDto replyDto) throws ExecutionException, InterruptedException {
+        return createReplyAsync(replyDto).get();
+    }
+
+    /**
+     * Writes a new reply without blocking the caller.
+     * The response is built from the request and the batch's commit time, which is the
+     * value the server timestamps resolve to, so no read-back is needed.
+     */
+    public CompletableFuture<ReviewReply> createReplyAsync(CreateReviewReplyDto replyDto) {
         DocumentReference replyRef = firestore.collection("reviewReplies").document();
 
         Map<String, Object> newReplyData = new HashMap<>();
@@ -33,47 +54,103 @@ public class ReviewReplyService {
         newReplyData.put("createdAt", FieldValue.serverTimestamp());
         newReplyData.put("updatedAt", FieldValue.serverTimestamp());
 
-        replyRef.set(newReplyData).get();
-
-        DocumentSnapshot snapshot = replyRef.get().get();
-        return snapshot.toObject(ReviewReply.class);
+        // Write the reply and bump the parent's denormalized counter atomically
+        DocumentReference reviewRef = firestore.collection("reviews").document(replyDto.getParentReviewId());
+        WriteBatch batch = firestore.batch();
+        batch.set(replyRef, newReplyData);
+        batch.update(reviewRef, "replyCount", FieldValue.increment(1));
+
+        return metrics.time("reviewReplies", "create", batch.commit())
+                .thenApply(writeResults -> {
+                    Instant committedAt = ApiFutureAdapter.toInstant(writeResults.get(0).getUpdateTime());
+                    return ReviewReply.builder()
+                            .replyId(replyRef.getId())
+                            .parentReviewId(replyDto.getParentReviewId())
+                            .movieId(replyDto.getMovieId())
+                            .userId(replyDto.getUserId())
+                            .username(replyDto.getUsername())
+                            .text(replyDto.getText())
+                            .createdAt(committedAt)
+                            .updatedAt(committedAt)
+                            .build();
+                });
     }
 
     public List<ReviewReplyResponseDto> getRepliesForReview(String reviewId)
             throws ExecutionException, InterruptedException {
+        return getRepliesForReviewAsync(reviewId).get();
+    }
 
-        List<ReviewReplyResponseDto> replies = new ArrayList<>();
+    public CompletableFuture<List<ReviewReplyResponseDto>> getRepliesForReviewAsync(String reviewId) {
+        Query query = firestore.collection("reviewReplies")
+                .whereEqualTo("parentReviewId", reviewId);
 
-        List<QueryDocumentSnapshot> documents = firestore.collection("reviewReplies")
-                .whereEqualTo("parentReviewId", reviewId)
-                .get()
-                .get()
-                .getDocuments();
-
-        for (QueryDocumentSnapshot document : documents) {
-            ReviewReply reply = document.toObject(ReviewReply.class);
-
-            replies.add(
-                    ReviewReplyResponseDto.builder()
-                            .replyId(reply.getReplyId())
-                            .parentReviewId(reply.getParentReviewId())
-                            .username(reply.getUsername())
-                            .text(reply.getText())
-                            .createdAt(reply.getCreatedAt())
-                            .build()
-            );
-        }
-
-        return replies;
+        return metrics.time("reviewReplies", "listByReview", query.get())
+                .thenApply(snapshot -> snapshot.getDocuments().stream()
+                        .map(this::toResponse)
+                        .collect(Collectors.toList()));
     }
 
+    /**
+     * Returns one page of a review's replies, oldest first so a thread reads top to bottom.
+     *
+     * @param pageSize number of replies per page, capped at {@value PageCursors#MAX_PAGE_SIZE}
+     * @param pageToken nextPageToken from the previous page, or null for the first page
+     * @param fields fields to return (e.g. for list views), or null for whole replies
+     */
+    public PageDto<ReviewReplyResponseDto> getRepliesForReview(String reviewId, Integer pageSize, String pageToken, List<String> fields)
+            throws ExecutionException, InterruptedException {
+        return getRepliesForReviewAsync(reviewId, pageSize, pageToken, fields).get();
+    }
+
+    /**
+     * Async variant of {@link #getRepliesForReview(String, Integer, String, List)}.
+     * Invalid paging arguments are rejected immediately with an IllegalArgumentException.
+     */
+    public CompletableFuture<PageDto<ReviewReplyResponseDto>> getRepliesForReviewAsync(String reviewId, Integer pageSize, String pageToken, List<String> fields) {
+        Query query = PageCursors.page(
+                firestore.collection("reviewReplies").whereEqualTo("parentReviewId", reviewId),
+                Query.Direction.ASCENDING, pageSize, pageToken,
+                fields, REPLY_FIELDS, REQUIRED_REPLY_FIELDS);
+
+        int size = PageCursors.pageSize(pageSize);
+        return metrics.time("reviewReplies", "pageByReview", query.get())
+                .thenApply(snapshot -> {
+                    List<QueryDocumentSnapshot> documents = snapshot.getDocuments();
+                    List<ReviewReplyResponseDto> replies = documents.stream()
+                            .limit(size)
+                            .map(this::toResponse)
+                            .collect(Collectors.toList());
+
+                    return new PageDto<>(replies, PageCursors.nextPageToken(documents, size));
+                });
+    }
+
+    private ReviewReplyResponseDto toResponse(DocumentSnapshot document) {
+        ReviewReply reply = document.toObject(ReviewReply.class);
+
+        return ReviewReplyResponseDto.builder()
+                .replyId(reply.getReplyId())
+                .parentReviewId(reply.getParentReviewId())
+                .username(reply.getUsername())
+                .text(reply.getText())
+                .createdAt(reply.getCreatedAt())
+                .build();
+    }
+
+    /**
+     * Counts replies with a server-side aggregation instead of downloading them.
+     * Read paths should use the denormalized {@code replyCount} on the review;
+     * this is only meant for repairing that counter.
+     */
     public int countRepliesForReview(String reviewId) throws ExecutionException, InterruptedException {
-        List<QueryDocumentSnapshot> documents = firestore.collection("reviewReplies")
+        AggregateQuery query = firestore.collection("reviewReplies")
                 .whereEqualTo("parentReviewId", reviewId)
+                .count();
+        long count = metrics.time("reviewReplies", "countByReview", query.get())
                 .get()
-                .get()
-                .getDocuments();
+                .getCount();
 
-        return documents.size();
+        return (int) count;
     }
 }
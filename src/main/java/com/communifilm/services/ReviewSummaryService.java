@@ -0,0 +1,319 @@
+package com.communifilm.services;
+
+import com.communifilm.dtos.MovieDetailDto;
+import com.communifilm.events.ReviewCreatedEvent;
+import com.communifilm.models.MovieReview;
+import com.communifilm.models.ReviewSummary;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Precomputed LLM summaries and sentiment analyses of a movie's community reviews.
+ * Generating one means reading every review and sending the whole corpus to the model,
+ * yet the answer only changes when a new review arrives, so results are stored per movie
+ * in the "reviewSummaries" collection and cached in memory.
+ *
+ * Each stored result records how many reviews it was generated from. A new review marks
+ * the movie's results stale; stale results keep being served while a background job
+ * regenerates them off the request path. Results read back from Firestore are checked
+ * against the current review count, so staleness is also detected across instances
+ * and restarts.
+ *
+ * The prompt is built from a token-budgeted selection of the reviews
+ * (see {@link ReviewCorpusBuilder}). A selection too large for one prompt is summarized
+ * map-reduce style: chunks are condensed into notes concurrently, then merged by one
+ * final call.
+ */
+@Service
+@Slf4j
+public class ReviewSummaryService {
+
+    private static final String COLLECTION = "reviewSummaries";
+
+    private final MovieReviewService reviewService;
+    private final MovieService movieService;
+    private final ChatLanguageModel model;
+    private final Firestore firestore;
+    private final ReviewCorpusBuilder corpusBuilder;
+    private final ExecutorService llmExecutor;
+    private final int singlePromptTokens;
+    private final int chunkTokens;
+
+    private final Cache<String, ReviewSummary> summaries;
+    private final Set<Long> staleMovies = ConcurrentHashMap.newKeySet();
+
+    public ReviewSummaryService(MovieReviewService reviewService,
+                                MovieService movieService,
+                                ChatLanguageModel model,
+                                Firestore firestore,
+                                ReviewCorpusBuilder corpusBuilder,
+                                @Qualifier("llmExecutor") ExecutorService llmExecutor,
+                                MeterRegistry meterRegistry,
+                                @Value("${reviews.summary.single-prompt-tokens:8000}") int singlePromptTokens,
+                                @Value("${reviews.summary.chunk-tokens:4000}") int chunkTokens,
+                                @Value("${reviews.summary.cache.ttl:10m}") Duration cacheTtl,
+                                @Value("${reviews.summary.cache.max-size:5000}") long cacheMaxSize) {
+        this.reviewService = reviewService;
+        this.movieService = movieService;
+        this.model = model;
+        this.firestore = firestore;
+        this.corpusBuilder = corpusBuilder;
+        this.llmExecutor = llmExecutor;
+        this.singlePromptTokens = singlePromptTokens;
+        this.chunkTokens = chunkTokens;
+        this.summaries = CaffeineCacheMetrics.monitor(meterRegistry,
+                Caffeine.newBuilder()
+                        .maximumSize(cacheMaxSize)
+                        .expireAfterWrite(cacheTtl)
+                        .recordStats()
+                        .<String, ReviewSummary>build(),
+                "reviews.summaries");
+    }
+
+    /**
+     * Returns the summary or sentiment analysis for a movie, generating it on first use.
+     *
+     * @return the generated text, or null if the movie has no reviews
+     */
+    public String getSummary(Long movieId, ReviewSummary.Kind kind) {
+        ReviewSummary summary = summaries.get(key(movieId, kind), k -> load(movieId, kind));
+        if (summary == null) {
+            return null;
+        }
+        if (summary.isStale()) {
+            staleMovies.add(movieId);
+        }
+        return summary.getText();
+    }
+
+    /**
+     * Marks a movie's results stale when it receives a new review.
+     * They keep being served until {@link #refreshStale()} regenerates them.
+     */
+    @EventListener
+    public void onReviewCreated(ReviewCreatedEvent event) {
+        for (ReviewSummary.Kind kind : ReviewSummary.Kind.values()) {
+            summaries.asMap().computeIfPresent(key(event.movieId(), kind),
+                    (k, summary) -> summary.toBuilder().stale(true).build());
+        }
+        staleMovies.add(event.movieId());
+    }
+
+    /**
+     * Regenerates stale results in the background. Several reviews arriving for the same
+     * movie between runs cost one regeneration. Kinds that were never requested for a
+     * movie are skipped; they are generated on first use instead.
+     */
+    @Scheduled(fixedDelayString = "${reviews.summary.refresh-interval:30s}")
+    public void refreshStale() {
+        List<Long> movieIds = new ArrayList<>(staleMovies);
+        for (Long movieId : movieIds) {
+            staleMovies.remove(movieId);
+            for (ReviewSummary.Kind kind : ReviewSummary.Kind.values()) {
+                try {
+                    if (summaries.getIfPresent(key(movieId, kind)) == null && !document(movieId, kind).exists()) {
+                        continue;
+                    }
+                    ReviewSummary refreshed = generate(movieId, kind);
+                    if (refreshed != null) {
+                        summaries.put(key(movieId, kind), refreshed);
+                    }
+                } catch (Exception e) {
+                    log.warn("Failed to refresh {} for movie {}", kind, movieId, e);
+                }
+            }
+        }
+    }
+
+    private ReviewSummary load(Long movieId, ReviewSummary.Kind kind) {
+        try {
+            DocumentSnapshot snapshot = document(movieId, kind);
+            if (snapshot.exists()) {
+                ReviewSummary stored = snapshot.toObject(ReviewSummary.class);
+                int currentCount = reviewService.countReviewsForMovie(movieId);
+                if (stored.getReviewCount() == null || stored.getReviewCount() != currentCount) {
+                    stored.setStale(true);
+                }
+                return stored;
+            }
+            return generate(movieId, kind);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to load " + kind + " for movie " + movieId, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading " + kind + " for movie " + movieId, e);
+        }
+    }
+
+    /**
+     * Runs the LLM over the movie's current reviews and stores the result.
+     *
+     * @return the new result, or null if the movie has no reviews
+     */
+    private ReviewSummary generate(Long movieId, ReviewSummary.Kind kind) throws ExecutionException, InterruptedException {
+        List<MovieReview> reviews = reviewService.getReviewsForMovie(movieId);
+        if (reviews.isEmpty()) {
+            return null;
+        }
+
+        // Get movie details for context
+        MovieDetailDto movieDetails = movieService.getMovieDetails(movieId.intValue());
+        String movieTitle = movieDetails != null ? movieDetails.getTitle() : "Unknown Movie";
+
+        ReviewSummary summary = ReviewSummary.builder()
+            .movieId(movieId)
+            .kind(kind)
+            .text(summarize(kind, movieId, movieTitle, reviews))
+            .reviewCount(reviews.size())
+            .generatedAt(Instant.now())
+            .stale(false)
+            .build();
+
+        firestore.collection(COLLECTION).document(key(movieId, kind)).set(summary).get();
+        return summary;
+    }
+
+    /**
+     * Runs the LLM over a token-budgeted selection of the reviews: in one call when it
+     * fits in reviews.summary.single-prompt-tokens, map-reduce otherwise.
+     * Package-private for the benchmarks.
+     */
+    String summarize(ReviewSummary.Kind kind, Long movieId, String movieTitle, List<MovieReview> reviews)
+            throws ExecutionException, InterruptedException {
+        ReviewCorpus corpus = corpusBuilder.build(reviews);
+        if (corpus.tokenCount() <= singlePromptTokens) {
+            return model.generate(prompt(kind, movieId, movieTitle, corpus));
+        }
+
+        List<List<String>> chunks = corpus.chunks(chunkTokens);
+        log.debug("Summarizing {} reviews for movie {} in {} chunks", corpus.size(), movieId, chunks.size());
+
+        List<CompletableFuture<String>> pending = chunks.stream()
+            .map(chunk -> CompletableFuture.supplyAsync(
+                () -> model.generate(notesPrompt(movieTitle, chunk)), llmExecutor))
+            .toList();
+        List<String> notes = new ArrayList<>();
+        for (CompletableFuture<String> note : pending) {
+            notes.add(note.get());
+        }
+
+        return model.generate(mergePrompt(kind, movieId, movieTitle, corpus, notes));
+    }
+
+    /**
+     * Builds the single-call LLM prompt for a movie's reviews. Package-private for the benchmarks.
+     */
+    static String prompt(ReviewSummary.Kind kind, Long movieId, String movieTitle, ReviewCorpus corpus) {
+        String reviewTexts = String.join("\n\n---\n\n", corpus.texts());
+
+        return switch (kind) {
+            case SUMMARY -> String.format(
+                "Summarize the following %d reviews for the movie '%s' (ID: %d).%s\n\n" +
+                "%s\n\n" +
+                "Reviews:\n%s",
+                corpus.size(), movieTitle, movieId, coverage(corpus), instructions(kind), reviewTexts
+            );
+            case SENTIMENT -> String.format(
+                "Analyze the sentiment and common themes in these %d reviews for '%s'.%s\n\n" +
+                "%s\n\n" +
+                "Reviews:\n%s",
+                corpus.size(), movieTitle, coverage(corpus), instructions(kind), reviewTexts
+            );
+        };
+    }
+
+    /**
+     * Map step: condenses one chunk of reviews into notes that either kind can be merged from.
+     */
+    static String notesPrompt(String movieTitle, List<String> chunk) {
+        return String.format(
+            "Take notes on these %d reviews of '%s' for a summary that will be written later.\n\n" +
+            "List tersely:\n" +
+            "1. How many reviews are positive, neutral and negative\n" +
+            "2. Praise mentioned by reviewers, with how often\n" +
+            "3. Complaints mentioned by reviewers, with how often\n" +
+            "4. Other recurring themes and the general tone\n\n" +
+            "Reviews:\n%s",
+            chunk.size(), movieTitle, String.join("\n\n---\n\n", chunk)
+        );
+    }
+
+    /**
+     * Reduce step: writes the requested result from the notes on every chunk.
+     */
+    static String mergePrompt(ReviewSummary.Kind kind, Long movieId, String movieTitle, ReviewCorpus corpus, List<String> notes) {
+        StringBuilder batches = new StringBuilder();
+        for (int i = 0; i < notes.size(); i++) {
+            batches.append(String.format("Batch %d:\n%s\n\n", i + 1, notes.get(i)));
+        }
+
+        return switch (kind) {
+            case SUMMARY -> String.format(
+                "Summarize %d reviews for the movie '%s' (ID: %d) from the notes below, each taken on a batch of them.%s\n\n" +
+                "%s\n\n" +
+                "Notes:\n%s",
+                corpus.size(), movieTitle, movieId, coverage(corpus), instructions(kind), batches
+            );
+            case SENTIMENT -> String.format(
+                "Analyze the sentiment and common themes in %d reviews for '%s' from the notes below, each taken on a batch of them.%s\n\n" +
+                "%s\n\n" +
+                "Notes:\n%s",
+                corpus.size(), movieTitle, coverage(corpus), instructions(kind), batches
+            );
+        };
+    }
+
+    private static String instructions(ReviewSummary.Kind kind) {
+        return switch (kind) {
+            case SUMMARY ->
+                "Provide:\n" +
+                "1. Overall sentiment (positive/mixed/negative)\n" +
+                "2. Top 3 pros mentioned by reviewers\n" +
+                "3. Top 3 cons mentioned by reviewers\n" +
+                "4. A brief overall summary";
+            case SENTIMENT ->
+                "Identify:\n" +
+                "1. The overall sentiment distribution (what % are positive, neutral, negative)\n" +
+                "2. The most frequently mentioned themes or topics\n" +
+                "3. Any recurring praise or complaints\n" +
+                "4. The general tone of the community's response";
+        };
+    }
+
+    // Tells the model the reviews are a selection, so it does not present them as all of them
+    private static String coverage(ReviewCorpus corpus) {
+        if (!corpus.isReduced()) {
+            return "";
+        }
+        return String.format(" They are the distinct, most-discussed of the movie's %d reviews.", corpus.reviewCount());
+    }
+
+    private DocumentSnapshot document(Long movieId, ReviewSummary.Kind kind) throws ExecutionException, InterruptedException {
+        return firestore.collection(COLLECTION).document(key(movieId, kind)).get().get();
+    }
+
+    private static String key(Long movieId, ReviewSummary.Kind kind) {
+        return movieId + "_" + kind.name().toLowerCase();
+    }
+}
@@ -0,0 +1,317 @@
+package com.communifilm.services;
+
+import com.communifilm.ai.TurnToolCalls;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Caches agent answers by the meaning of the question, so "what's trending right now?" can be
+ * answered from an earlier "which movies are trending?" without another round of LLM and tool calls.
+ *
+ * Questions are normalized and embedded with the in-process {@link EmbeddingModel}, and looked up
+ * in a flat index of unit vectors by cosine similarity; an entry matches when the similarity
+ * reaches agent.response-cache.similarity. The index is a brute-force scan over one float array,
+ * which for a few thousand 384-dimension entries takes well under a millisecond.
+ *
+ * Embeddings barely tell "movie 27205" from "movie 27206", or "the godfather" from "the godfather
+ * part ii", so the question's entities must also match the cached question's exactly, in the
+ * same order, before the similarity is even computed. Entities are its numbers, quoted titles and
+ * every word outside a short list of function words and ways of asking ("tell me about", "which
+ * movies"); the similarity only has to see past the phrasing that list covers.
+ *
+ * Only answers from turns that had nothing of their user's to draw on (no user ID in the message
+ * and no earlier history) are stored, and of those only answers built purely from
+ * {@link com.communifilm.ai.SharedResult} tools. Each lives as long as the shortest-lived data it
+ * was built from (e.g. the trending list's cache TTL); answers that needed no tool live for
+ * agent.response-cache.ttl-without-tools. When the index is full, the entry closest to expiry is
+ * replaced.
+ *
+ * Questions that refer back to the conversation ("what about the second one?") bypass the cache
+ * entirely, since the same words mean something different in every conversation.
+ *
+ * Lookups are counted as {@code agent.response_cache.lookups}, tagged hit, miss or bypass, and
+ * offered answers as {@code agent.response_cache.stores}, tagged stored or skipped.
+ */
+@Service
+public class SemanticResponseCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[\\s?!.]+$");
+    // Words that point back into the conversation ("tell me more about it", "and the second one?")
+    // or at the asker ("what should I watch?"). Such questions can only be answered from the asker's
+    // history, so they bypass the cache; the occasional standalone question caught by this list
+    // just misses the cache.
+    private static final Pattern FOLLOW_UP = Pattern.compile(
+            "\\b(it|its|that|those|these|them|they|their|he|she|him|her|his|one|ones|more|else|another"
+                    + "|other|others|same|again|instead|above|previous|earlier|first|second|third|last"
+                    + "|i|my|mine|myself)\\b");
+    // Quoted titles, then single words: numbers, and words with any apostrophes inside them
+    private static final Pattern ENTITY = Pattern.compile(
+            "\"[^\"]+\"|\u201c[^\u201d]+\u201d|(?<!\\w)'[^']+'(?!\\w)|[\\p{L}\\p{N}]+(?:'\\p{L}+)*");
+    // Words that say how something is asked rather than what about. Title words must not be
+    // here, or questions about different movies could share an answer; words of FOLLOW_UP need
+    // not be, as those questions never reach the index
+    private static final Set<String> NOT_ENTITIES = Set.of(
+            "a", "an", "the", "and", "or", "of", "to", "in", "on", "at", "by", "for", "from", "with", "about",
+            "as", "than", "is", "are", "was", "were", "be", "been", "do", "does", "did", "has", "have", "had",
+            "what", "what's", "which", "who", "who's", "whom", "whose", "where", "when", "how", "why",
+            "can", "could", "would", "should", "will", "may", "might", "you", "your", "me", "us", "we", "our",
+            "there", "there's", "here", "this", "any", "some", "all", "each", "every", "many", "much", "most",
+            "very", "just", "also", "only", "really", "not", "no", "isn't", "aren't", "don't", "doesn't",
+            "please", "tell", "show", "give", "get", "find", "let", "let's", "know", "want", "like",
+            "compare", "summarize", "describe", "explain", "movie", "movies", "film", "films",
+            "now", "right", "today", "currently");
+
+    private final EmbeddingModel embeddingModel;
+    private final boolean enabled;
+    private final double similarity;
+    private final int maxEntries;
+    private final Duration ttlWithoutTools;
+    private final LongSupplier clock;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bypassed;
+    private final Counter stored;
+    private final Counter skipped;
+
+    // Slot i holds vectors[i * dimension, (i + 1) * dimension); a slot is free while its answer is null
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final String[] answers;
+    private final String[] entities;
+    private final long[] expiresAt;
+    private float[] vectors;
+    private int dimension;
+
+    @Autowired
+    public SemanticResponseCache(EmbeddingModel embeddingModel,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${agent.response-cache.enabled:true}") boolean enabled,
+                                 @Value("${agent.response-cache.similarity:0.92}") double similarity,
+                                 @Value("${agent.response-cache.max-entries:2000}") int maxEntries,
+                                 @Value("${agent.response-cache.ttl-without-tools:1h}") Duration ttlWithoutTools) {
+        this(embeddingModel, meterRegistry, enabled, similarity, maxEntries, ttlWithoutTools, System::nanoTime);
+    }
+
+    SemanticResponseCache(EmbeddingModel embeddingModel, MeterRegistry meterRegistry, boolean enabled,
+                          double similarity, int maxEntries, Duration ttlWithoutTools, LongSupplier clock) {
+        this.embeddingModel = embeddingModel;
+        this.enabled = enabled;
+        this.similarity = similarity;
+        this.maxEntries = maxEntries;
+        this.ttlWithoutTools = ttlWithoutTools;
+        this.clock = clock;
+        this.answers = new String[maxEntries];
+        this.entities = new String[maxEntries];
+        this.expiresAt = new long[maxEntries];
+        this.hits = meterRegistry.counter("agent.response_cache.lookups", "result", "hit");
+        this.misses = meterRegistry.counter("agent.response_cache.lookups", "result", "miss");
+        this.bypassed = meterRegistry.counter("agent.response_cache.lookups", "result", "bypass");
+        this.stored = meterRegistry.counter("agent.response_cache.stores", "result", "stored");
+        this.skipped = meterRegistry.counter("agent.response_cache.stores", "result", "skipped");
+        meterRegistry.gauge("agent.response_cache.entries", this, SemanticResponseCache::size);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * A question as the cache compares it.
+     *
+     * @param vector the normalized question's unit embedding
+     * @param entities the numbers, quoted titles and other content words in the question, which
+     *        must match exactly
+     */
+    public record Question(float[] vector, String entities) {
+    }
+
+    /**
+     * Embeds a question for {@link #get} and {@link #put}, so a miss followed by a store
+     * embeds it only once.
+     *
+     * @return the question, or null if the cache is disabled or the question refers back to
+     *         the conversation
+     */
+    public Question embed(String question) {
+        if (!enabled) {
+            return null;
+        }
+        String normalized = normalize(question);
+        if (FOLLOW_UP.matcher(normalized).find()) {
+            bypassed.increment();
+            return null;
+        }
+        return new Question(unit(embeddingModel.embed(normalized).content().vector()), entities(normalized));
+    }
+
+    /**
+     * @param question a question from {@link #embed}
+     * @return the answer cached for the most similar question with the same entities, if it is
+     *         similar enough and not expired
+     */
+    public Optional<String> get(Question question) {
+        if (question == null) {
+            return Optional.empty();
+        }
+        String answer = null;
+        lock.readLock().lock();
+        try {
+            int best = nearest(question, clock.getAsLong());
+            if (best >= 0) {
+                answer = answers[best];
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        (answer != null ? hits : misses).increment();
+        return Optional.ofNullable(answer);
+    }
+
+    /**
+     * Caches an answer, or counts it as skipped if it must not be shared.
+     *
+     * @param question a question from {@link #embed}
+     * @param calls the tools called while producing the answer
+     * @param personalContext whether the turn saw its user's ID or earlier messages, which the
+     *        answer may have drawn on whatever tools it called; such answers are not cached
+     */
+    public void put(Question question, String answer, TurnToolCalls calls, boolean personalContext) {
+        if (question == null) {
+            return;
+        }
+        Optional<Duration> ttl = personalContext ? Optional.empty() : calls.sharedFor(ttlWithoutTools);
+        if (ttl.isEmpty() || ttl.get().isZero() || answer == null || answer.isBlank()) {
+            skipped.increment();
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (vectors == null) {
+                dimension = question.vector().length;
+                vectors = new float[maxEntries * dimension];
+            }
+            long now = clock.getAsLong();
+            int slot = nearest(question, now);
+            if (slot < 0) {
+                slot = soonestExpiring();
+            }
+            System.arraycopy(question.vector(), 0, vectors, slot * dimension, dimension);
+            answers[slot] = answer;
+            entities[slot] = question.entities();
+            expiresAt[slot] = now + ttl.get().toNanos();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        stored.increment();
+    }
+
+    /**
+     * @return the number of entries that have not expired
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            long now = clock.getAsLong();
+            int live = 0;
+            for (int slot = 0; slot < maxEntries; slot++) {
+                if (answers[slot] != null && expiresAt[slot] - now > 0) {
+                    live++;
+                }
+            }
+            return live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Index of the live entry with the same entities most similar to the question, if any
+    // reaches the threshold; -1 otherwise
+    private int nearest(Question question, long now) {
+        float[] vector = question.vector();
+        if (vectors == null || vector.length != dimension) {
+            return -1;
+        }
+        int best = -1;
+        double bestScore = similarity;
+        for (int slot = 0, offset = 0; slot < maxEntries; slot++, offset += dimension) {
+            if (answers[slot] == null || expiresAt[slot] - now <= 0 || !entities[slot].equals(question.entities())) {
+                continue;
+            }
+            double score = 0;
+            for (int i = 0; i < dimension; i++) {
+                score += vectors[offset + i] * vector[i];
+            }
+            if (score >= bestScore) {
+                best = slot;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    // Free and expired slots are reused before any live entry is evicted
+    private int soonestExpiring() {
+        long now = clock.getAsLong();
+        int soonest = 0;
+        for (int slot = 0; slot < maxEntries; slot++) {
+            if (answers[slot] == null || expiresAt[slot] - now <= 0) {
+                return slot;
+            }
+            if (expiresAt[slot] - expiresAt[soonest] < 0) {
+                soonest = slot;
+            }
+        }
+        return soonest;
+    }
+
+    // Case, spacing and trailing punctuation do not change what is being asked
+    static String normalize(String question) {
+        String collapsed = WHITESPACE.matcher(question.strip().toLowerCase(Locale.ROOT)).replaceAll(" ");
+        return TRAILING_PUNCTUATION.matcher(collapsed).replaceAll("");
+    }
+
+    // The question's entities in order, one per line
+    static String entities(String question) {
+        StringBuilder entities = new StringBuilder();
+        Matcher matcher = ENTITY.matcher(question);
+        while (matcher.find()) {
+            if (!NOT_ENTITIES.contains(matcher.group())) {
+                entities.append(matcher.group()).append('\n');
+            }
+        }
+        return entities.toString();
+    }
+
+    private static float[] unit(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm == 0) {
+            return vector;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        float[] unit = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = vector[i] * scale;
+        }
+        return unit;
+    }
+}
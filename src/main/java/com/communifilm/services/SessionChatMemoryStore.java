@@ -0,0 +1,34 @@
+package com.communifilm.services;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Chat memory kept only in this JVM's {@link AgentSessionStore}.
+ * Conversations are lost on restart or eviction and are not shared between nodes;
+ * useful for local development and single-instance deployments.
+ * Selected with {@code agent.memory.store=in-memory}.
+ */
+@RequiredArgsConstructor
+public class SessionChatMemoryStore implements ChatMemoryStore {
+
+    private final AgentSessionStore sessionStore;
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        return sessionStore.get(memoryId.toString(), id -> AgentSessionStore.Session.of(List.of())).messages();
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        sessionStore.put(memoryId.toString(), AgentSessionStore.Session.of(messages));
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        sessionStore.remove(memoryId.toString());
+    }
+}
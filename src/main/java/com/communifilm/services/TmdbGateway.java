@@ -0,0 +1,280 @@
+package com.communifilm.services;
+
+import com.communifilm.dtos.MovieDetailDto;
+import com.communifilm.dtos.TmdbResponse;
+import com.communifilm.utils.Bulkhead;
+import com.communifilm.utils.CircuitBreaker;
+import com.communifilm.utils.SingleFlight;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Single entry point for outbound TMDB calls.
+ * Each endpoint has its own bounded TTL cache sized to how often its data changes:
+ * movie details rarely change, the weekly trending list only moves a few times a day,
+ * and search results are kept briefly to absorb bursts of identical queries.
+ * Concurrent misses for the same key are collapsed into one HTTP call by a
+ * {@link SingleFlight} per endpoint. The HTTP call is made outside the cache's own
+ * locks, so a slow TMDB response never blocks lookups of other keys.
+ * Hit/miss/eviction counts are published as {@code cache.*} metrics tagged by cache name,
+ * and every HTTP call is timed as {@code tmdb.requests} tagged by endpoint and status
+ * and traced as a "tmdb &lt;endpoint&gt;" span. Cache hits make no call and get no span.
+ *
+ * Calls pass through the "tmdb" {@link Bulkhead} and {@link CircuitBreaker}, so a slow or
+ * failing TMDB ties up a bounded number of threads and is then skipped until it recovers;
+ * rejected calls are timed with status REJECTED. When a call fails, the last response for the
+ * same key is served if it is younger than tmdb.cache.stale-ttl, counted as
+ * {@code tmdb.fallbacks}. Only TMDB failures fall back; client errors such as a 404 are rethrown.
+ *
+ * Cached responses are shared by every caller, so they are completed (e.g. the poster URL)
+ * before they are cached and must not be modified afterwards.
+ */
+@Component
+public class TmdbGateway {
+
+    private static final String TRENDING_KEY = "movie/week";
+    private static final String TMDB_IMG_BASE_URL = "https://image.tmdb.org/t/p/w500";
+
+    private final RestTemplate restTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Tracer tracer;
+    private final String apiKey;
+    private final String tmdbBaseUrl;
+
+    private final Cache<Integer, MovieDetailDto> detailsCache;
+    private final Cache<String, TmdbResponse> trendingCache;
+    private final Cache<String, TmdbResponse> searchCache;
+
+    // Last good responses, kept well past the TTLs above to fall back on while TMDB is down
+    private final Cache<Integer, MovieDetailDto> staleDetails;
+    private final Cache<String, TmdbResponse> staleTrending;
+    private final Cache<String, TmdbResponse> staleSearches;
+
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+
+    private final SingleFlight<Integer, MovieDetailDto> detailsFlight;
+    private final SingleFlight<String, TmdbResponse> trendingFlight;
+    private final SingleFlight<String, TmdbResponse> searchFlight;
+
+    public TmdbGateway(RestTemplate restTemplate,
+                       MeterRegistry meterRegistry,
+                       Tracer tracer,
+                       @Qualifier("tmdbCircuitBreaker") CircuitBreaker circuitBreaker,
+                       @Qualifier("tmdbBulkhead") Bulkhead bulkhead,
+                       @Value("${tmdb.api.key}") String apiKey,
+                       @Value("${tmdb.base.url}") String tmdbBaseUrl,
+                       @Value("${tmdb.cache.details.ttl:6h}") Duration detailsTtl,
+                       @Value("${tmdb.cache.details.max-size:10000}") long detailsMaxSize,
+                       @Value("${tmdb.cache.trending.ttl:15m}") Duration trendingTtl,
+                       @Value("${tmdb.cache.search.ttl:2m}") Duration searchTtl,
+                       @Value("${tmdb.cache.search.max-size:2000}") long searchMaxSize,
+                       @Value("${tmdb.cache.stale-ttl:24h}") Duration staleTtl) {
+        this.restTemplate = restTemplate;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+        this.meterRegistry = meterRegistry;
+        this.tracer = tracer;
+        this.apiKey = apiKey;
+        this.tmdbBaseUrl = tmdbBaseUrl;
+
+        this.detailsCache = CaffeineCacheMetrics.monitor(meterRegistry,
+                Caffeine.newBuilder()
+                        .maximumSize(detailsMaxSize)
+                        .expireAfterWrite(detailsTtl)
+                        .recordStats()
+                        .<Integer, MovieDetailDto>build(),
+                "tmdb.details");
+        this.trendingCache = CaffeineCacheMetrics.monitor(meterRegistry,
+                Caffeine.newBuilder()
+                        .maximumSize(1)
+                        .expireAfterWrite(trendingTtl)
+                        .recordStats()
+                        .<String, TmdbResponse>build(),
+                "tmdb.trending");
+        this.searchCache = CaffeineCacheMetrics.monitor(meterRegistry,
+                Caffeine.newBuilder()
+                        .maximumSize(searchMaxSize)
+                        .expireAfterWrite(searchTtl)
+                        .recordStats()
+                        .<String, TmdbResponse>build(),
+                "tmdb.search");
+
+        this.staleDetails = Caffeine.newBuilder()
+                .maximumSize(detailsMaxSize)
+                .expireAfterWrite(staleTtl)
+                .build();
+        this.staleTrending = Caffeine.newBuilder()
+                .maximumSize(1)
+                .expireAfterWrite(staleTtl)
+                .build();
+        this.staleSearches = Caffeine.newBuilder()
+                .maximumSize(searchMaxSize)
+                .expireAfterWrite(staleTtl)
+                .build();
+
+        this.detailsFlight = new SingleFlight<>("tmdb.details", meterRegistry);
+        this.trendingFlight = new SingleFlight<>("tmdb.trending", meterRegistry);
+        this.searchFlight = new SingleFlight<>("tmdb.search", meterRegistry);
+    }
+
+    public TmdbResponse trending() {
+        return cached("trending", trendingCache, staleTrending, trendingFlight, TRENDING_KEY, key -> {
+            String url = UriComponentsBuilder.fromUriString(tmdbBaseUrl + "/trending/movie/week")
+                    .queryParam("api_key", apiKey)
+                    .toUriString();
+            return fetch("trending", url, TmdbResponse.class);
+        });
+    }
+
+    public TmdbResponse search(String query) {
+        return cached("search", searchCache, staleSearches, searchFlight, normalizeQuery(query), normalized -> {
+            String url = UriComponentsBuilder.fromUriString(tmdbBaseUrl + "/search/movie")
+                    .queryParam("api_key", apiKey)
+                    .queryParam("query", normalized)
+                    .toUriString();
+            return fetch("search", url, TmdbResponse.class);
+        });
+    }
+
+    public MovieDetailDto movieDetails(int movieId) {
+        return cached("details", detailsCache, staleDetails, detailsFlight, movieId, id -> {
+            String url = UriComponentsBuilder.fromUriString(tmdbBaseUrl + "/movie/" + id)
+                    .queryParam("api_key", apiKey)
+                    .toUriString();
+            MovieDetailDto details = fetch("details", url, MovieDetailDto.class);
+            if (details != null) {
+                details.setPosterURL(posterUrl(details.getPosterPath()));
+            }
+            return details;
+        });
+    }
+
+    /**
+     * Fetches one page of movies ordered by vote count, for bulk jobs. Not cached:
+     * each page is read once per job.
+     *
+     * @param page the 1-based page number; TMDB serves at most 500 pages
+     */
+    public TmdbResponse discover(int page) {
+        String url = UriComponentsBuilder.fromUriString(tmdbBaseUrl + "/discover/movie")
+                .queryParam("api_key", apiKey)
+                .queryParam("sort_by", "vote_count.desc")
+                .queryParam("page", page)
+                .toUriString();
+        return fetch("discover", url, TmdbResponse.class);
+    }
+
+    /**
+     * Serves a cached response, or loads it once however many callers miss at the same time.
+     * Null responses are returned but not cached. If loading fails because of TMDB, the stale
+     * copy is served instead, when there is one.
+     */
+    private <K, V> V cached(String endpoint, Cache<K, V> cache, Cache<K, V> stale, SingleFlight<K, V> flight,
+                            K key, Function<K, V> loader) {
+        V cachedValue = cache.getIfPresent(key);
+        if (cachedValue != null) {
+            return cachedValue;
+        }
+        try {
+            return flight.execute(key, () -> {
+                V value = loader.apply(key);
+                if (value != null) {
+                    cache.put(key, value);
+                    stale.put(key, value);
+                }
+                return value;
+            });
+        } catch (RuntimeException e) {
+            V staleValue = isUpstreamFailure(e) ? stale.getIfPresent(key) : null;
+            if (staleValue == null) {
+                throw e;
+            }
+            meterRegistry.counter("tmdb.fallbacks", "endpoint", endpoint).increment();
+            return staleValue;
+        }
+    }
+
+    /**
+     * Whether an error means TMDB is unavailable, rather than that the request was wrong:
+     * timeouts, connection errors, rejected calls, 429s and 5xx responses.
+     */
+    public static boolean isUpstreamFailure(Throwable error) {
+        return !(error instanceof RestClientResponseException response)
+                || response.getStatusCode().value() == 429
+                || response.getStatusCode().is5xxServerError();
+    }
+
+    /**
+     * Performs the GET and records its latency. The status tag is the HTTP status,
+     * IO_ERROR when no response was received, or REJECTED when the call was not made.
+     * The span carries only the endpoint name, never the URL, which holds the API key.
+     */
+    private <T> T fetch(String endpoint, String url, Class<T> responseType) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Span span = tracer.nextSpan()
+                .name("tmdb " + endpoint)
+                .tag("http.request.method", "GET")
+                .remoteServiceName("tmdb")
+                .start();
+        String status = "IO_ERROR";
+        try (Tracer.SpanInScope ignored = tracer.withSpan(span)) {
+            ResponseEntity<T> response = bulkhead.execute(() ->
+                    circuitBreaker.execute(() -> restTemplate.getForEntity(url, responseType)));
+            status = String.valueOf(response.getStatusCode().value());
+            return response.getBody();
+        } catch (RestClientResponseException e) {
+            status = String.valueOf(e.getStatusCode().value());
+            span.error(e);
+            throw e;
+        } catch (CircuitBreaker.OpenException | Bulkhead.FullException e) {
+            status = "REJECTED";
+            span.error(e);
+            throw e;
+        } catch (RuntimeException e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.tag("http.response.status_code", status).end();
+            sample.stop(Timer.builder("tmdb.requests")
+                    .description("HTTP calls to the TMDB API")
+                    .tag("endpoint", endpoint)
+                    .tag("status", status)
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * The full image URL for a TMDB poster path, or null when the movie has no poster.
+     */
+    static String posterUrl(String path) {
+        if (path == null || path.isBlank()) {
+            return null;
+        }
+        return TMDB_IMG_BASE_URL + path;
+    }
+
+    /**
+     * TMDB search is case-insensitive, so "The Matrix", "the matrix " and "THE  MATRIX"
+     * share one cache entry.
+     */
+    static String normalizeQuery(String query) {
+        return query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -5,59 +5,163 @@ import com.communifilm.dtos.TopMovieInputDto;
 import com.communifilm.dtos.UpdateUserDto;
 import com.communifilm.models.FavoriteMovie;
 import com.communifilm.models.User;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.cloud.firestore.*;
 import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
 import com.google.cloud.firestore.FieldValue;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 @Service
 public class UserService {
 
+    // Keeps each getAll request well under Firestore's per-request limits
+    private static final int GET_ALL_CHUNK_SIZE = 100;
+
     private final Firestore firestore;
     private final MovieService movieService;
-
-    public UserService(Firestore firestore, MovieService movieService) {
+    private final FirestoreMetrics metrics;
+
+    // Read-through cache of profiles; entries are dropped whenever this instance writes the user.
+    // Reads in flight are cached too, so a write that lands during a read also drops the read's
+    // result instead of the read putting the old profile back afterwards.
+    private final AsyncCache<String, User> users;
+
+    public UserService(Firestore firestore,
+                       MovieService movieService,
+                       FirestoreMetrics metrics,
+                       MeterRegistry meterRegistry,
+                       @Value("${users.cache.ttl:5m}") Duration cacheTtl,
+                       @Value("${users.cache.max-size:10000}") long cacheMaxSize) {
         this.firestore = firestore;
         this.movieService = movieService;
+        this.metrics = metrics;
+        this.users = CaffeineCacheMetrics.monitor(meterRegistry,
+                Caffeine.newBuilder()
+                        .maximumSize(cacheMaxSize)
+                        .expireAfterWrite(cacheTtl)
+                        .recordStats()
+                        .<String, User>buildAsync(),
+                "users.profiles");
     }
 
     /**
      * Handles user login. Returns true if a new user was created.
      */
     public boolean processUserLogin(GoogleIdToken.Payload payload) throws ExecutionException, InterruptedException {
+        return processUserLoginAsync(payload).get();
+    }
+
+    public CompletableFuture<Boolean> processUserLoginAsync(GoogleIdToken.Payload payload) {
         String userId = payload.getSubject();
         DocumentReference userRef = firestore.collection("users").document(userId);
-        DocumentSnapshot snapshot = userRef.get().get();
-
-        if (!snapshot.exists()) {
-            Map<String, Object> newUser = new HashMap<>();
-            newUser.put("uid", userId);
-            newUser.put("email", payload.getEmail());
-            newUser.put("displayName", payload.get("name"));
-            newUser.put("profilePictureUrl", payload.get("picture"));
-            newUser.put("bio", null); // Explicitly set bio to null for new users
-            newUser.put("createdAt", FieldValue.serverTimestamp());
-            newUser.put("updatedAt", FieldValue.serverTimestamp());
-
-            userRef.set(newUser).get();
-            return true; // A new user was created
-        }
-        return false; // The user already existed
+
+        return metrics.time("users", "get", userRef.get())
+                .thenCompose(snapshot -> {
+                    if (snapshot.exists()) {
+                        return CompletableFuture.completedFuture(false); // The user already existed
+                    }
+
+                    Map<String, Object> newUser = new HashMap<>();
+                    newUser.put("uid", userId);
+                    newUser.put("email", payload.getEmail());
+                    newUser.put("displayName", payload.get("name"));
+                    newUser.put("profilePictureUrl", payload.get("picture"));
+                    newUser.put("bio", null); // Explicitly set bio to null for new users
+                    newUser.put("createdAt", FieldValue.serverTimestamp());
+                    newUser.put("updatedAt", FieldValue.serverTimestamp());
+
+                    return metrics.time("users", "create", userRef.set(newUser))
+                            .thenApply(writeResult -> {
+                                users.synchronous().invalidate(userId);
+                                return true; // A new user was created
+                            });
+                });
     }
 
     public User getUser(String id) throws ExecutionException, InterruptedException {
-        DocumentSnapshot snapshot = firestore.collection("users").document(id).get().get();
-        return snapshot.exists() ? snapshot.toObject(User.class) : null;
+        return getUserAsync(id).get();
+    }
+
+    /**
+     * Async variant of {@link #getUser}; completes immediately on a cache hit.
+     * Completes with null if the user does not exist.
+     */
+    public CompletableFuture<User> getUserAsync(String id) {
+        return users.get(id, (key, executor) ->
+                metrics.time("users", "get", firestore.collection("users").document(key).get())
+                        .thenApply(snapshot -> snapshot.exists() ? snapshot.toObject(User.class) : null));
+    }
+
+    /**
+     * Fetches several users at once. Cached profiles are served from memory and the rest
+     * are read with batched getAll calls instead of one round trip per user.
+     * Unknown IDs are skipped.
+     *
+     * @return the users that exist, in the order their IDs were given, without duplicates
+     */
+    public List<User> getUsers(Collection<String> ids) throws ExecutionException, InterruptedException {
+        return getUsersAsync(ids).get();
+    }
+
+    /**
+     * Async variant of {@link #getUsers}. The getAll chunks are issued together
+     * rather than one after another.
+     */
+    public CompletableFuture<List<User>> getUsersAsync(Collection<String> ids) {
+        Set<String> distinctIds = new LinkedHashSet<>(ids);
+        return users.getAll(distinctIds, (missing, executor) -> loadUsers(missing))
+                .thenApply(found -> distinctIds.stream()
+                        .map(found::get)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList()));
+    }
+
+    private CompletableFuture<Map<String, User>> loadUsers(Set<? extends String> ids) {
+        List<DocumentReference> missing = ids.stream()
+                .map(id -> firestore.collection("users").document(id))
+                .collect(Collectors.toList());
+        Map<String, User> found = new ConcurrentHashMap<>();
+
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (int from = 0; from < missing.size(); from += GET_ALL_CHUNK_SIZE) {
+            List<DocumentReference> chunk = missing.subList(from, Math.min(from + GET_ALL_CHUNK_SIZE, missing.size()));
+            chunks.add(metrics.time("users", "getAll", firestore.getAll(chunk.toArray(new DocumentReference[0])))
+                    .thenAccept(snapshots -> {
+                        for (DocumentSnapshot snapshot : snapshots) {
+                            if (snapshot.exists()) {
+                                found.put(snapshot.getId(), snapshot.toObject(User.class));
+                            }
+                        }
+                    }));
+        }
+
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0]))
+                .thenApply(done -> found);
     }
 
     /**
      * Updates user information from a DTO.
      */
     public void updateUser(String uid, UpdateUserDto userDto) throws ExecutionException, InterruptedException {
+        updateUserAsync(uid, userDto).get();
+    }
+
+    /**
+     * Async variant of {@link #updateUser}. Invalid input is rejected immediately
+     * with an IllegalArgumentException; only the write itself is asynchronous.
+     */
+    public CompletableFuture<Void> updateUserAsync(String uid, UpdateUserDto userDto) {
         if (uid == null) throw new IllegalArgumentException("User ID cannot be null");
 
         Map<String, Object> data = new HashMap<>();
@@ -76,7 +180,8 @@ public class UserService {
 
         data.put("updatedAt", FieldValue.serverTimestamp());
 
-        firestore.collection("users").document(uid).update(data).get();
+        return metrics.time("users", "update", firestore.collection("users").document(uid).update(data))
+                .thenAccept(writeResult -> users.synchronous().invalidate(uid));
     }
 
     /**
@@ -0,0 +1,52 @@
+package com.communifilm.utils;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.Timestamp;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Bridges the Google Cloud client's {@link ApiFuture} to {@link CompletableFuture},
+ * so Firestore calls can be composed and handed to Spring MVC without a thread
+ * blocking on {@code .get()}.
+ */
+public final class ApiFutureAdapter {
+
+    private ApiFutureAdapter() {}
+
+    /**
+     * Completes when the ApiFuture does, on the thread that completed it.
+     * Cancelling the returned future cancels the underlying call.
+     */
+    public static <T> CompletableFuture<T> toCompletableFuture(ApiFuture<T> apiFuture) {
+        CompletableFuture<T> result = new CompletableFuture<>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                apiFuture.cancel(mayInterruptIfRunning);
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+
+        ApiFutures.addCallback(apiFuture, new ApiFutureCallback<T>() {
+            @Override
+            public void onFailure(Throwable t) {
+                result.completeExceptionally(t);
+            }
+
+            @Override
+            public void onSuccess(T value) {
+                result.complete(value);
+            }
+        }, MoreExecutors.directExecutor());
+
+        return result;
+    }
+
+    public static Instant toInstant(Timestamp timestamp) {
+        return Instant.ofEpochSecond(timestamp.getSeconds(), timestamp.getNanos());
+    }
+}
@@ -0,0 +1,86 @@
+package com.communifilm.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Caps how many calls of one kind run at once, so a slow dependency can only tie up that
+ * many request threads and the rest of the service keeps its own. A call that finds the
+ * bulkhead full waits up to maxWait for a slot, then fails with {@link FullException}
+ * without being made.
+ *
+ * Free slots are published as {@code bulkhead.available} and rejected calls are counted as
+ * {@code bulkhead.rejections}, both tagged by name.
+ */
+public final class Bulkhead {
+
+    /**
+     * Thrown instead of making a call when the bulkhead stays full for its maximum wait.
+     */
+    public static final class FullException extends RuntimeException {
+        public FullException(String name) {
+            super("Bulkhead '" + name + "' is full");
+        }
+    }
+
+    private final String name;
+    private final Semaphore permits;
+    private final long maxWaitNanos;
+    private final Counter rejections;
+
+    public Bulkhead(String name, int maxConcurrent, Duration maxWait, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxWaitNanos = maxWait.toNanos();
+        this.rejections = meterRegistry.counter("bulkhead.rejections", "name", name);
+        Gauge.builder("bulkhead.available", permits, Semaphore::availablePermits)
+                .description("Calls the bulkhead can still admit")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs a blocking call once a slot is free.
+     *
+     * @throws FullException if no slot frees up in time; the call is not made
+     */
+    public <T> T execute(Supplier<T> call) {
+        acquire();
+        try {
+            return call.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Takes a slot for a call that completes asynchronously; hand it back with {@link #release}.
+     *
+     * @throws FullException if no slot frees up in time
+     */
+    public void acquire() {
+        boolean acquired;
+        try {
+            acquired = maxWaitNanos > 0
+                    ? permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)
+                    : permits.tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejections.increment();
+            throw new FullException(name);
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+}
@@ -0,0 +1,177 @@
+package com.communifilm.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Stops calling an upstream that keeps failing, so callers fail fast instead of each
+ * waiting out a timeout against it.
+ *
+ * The outcomes of the last windowSize calls are kept in a ring. Once at least minimumCalls
+ * are recorded and the share of failures reaches failureRateThreshold, the breaker opens and
+ * rejects every call with {@link OpenException} for openDuration. It then lets a single trial
+ * call through (half-open): success closes the breaker with a fresh window, failure opens it
+ * again. Only exceptions matching the failure predicate count as failures; others, such as a
+ * 404 from a healthy upstream, count as successes.
+ *
+ * The state is published as {@code circuit.breaker.state}, tagged by name and state, 1 for the
+ * current state and 0 for the others. Calls are counted as {@code circuit.breaker.calls},
+ * tagged by name and outcome: success, failure or rejected.
+ */
+public final class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * Thrown instead of calling the upstream while the breaker is open.
+     */
+    public static final class OpenException extends RuntimeException {
+        public OpenException(String name) {
+            super("Circuit breaker '" + name + "' is open");
+        }
+    }
+
+    private final String name;
+    private final boolean[] window;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final Predicate<Throwable> isFailure;
+
+    private final Counter successes;
+    private final Counter failures;
+    private final Counter rejections;
+
+    // Guarded by this
+    private State state = State.CLOSED;
+    private int recorded;
+    private int next;
+    private int failed;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold,
+                          Duration openDuration, Predicate<Throwable> isFailure, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.window = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.isFailure = isFailure;
+
+        this.successes = meterRegistry.counter("circuit.breaker.calls", "name", name, "outcome", "success");
+        this.failures = meterRegistry.counter("circuit.breaker.calls", "name", name, "outcome", "failure");
+        this.rejections = meterRegistry.counter("circuit.breaker.calls", "name", name, "outcome", "rejected");
+        for (State candidate : State.values()) {
+            Gauge.builder("circuit.breaker.state", this, breaker -> breaker.state() == candidate ? 1 : 0)
+                    .description("1 for the breaker's current state, 0 for the others")
+                    .tag("name", name)
+                    .tag("state", candidate.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Runs a blocking call through the breaker.
+     *
+     * @throws OpenException if the breaker is open; the call is not made
+     */
+    public <T> T execute(Supplier<T> call) {
+        if (!tryAcquire()) {
+            throw new OpenException(name);
+        }
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException | Error e) {
+            onError(e);
+            throw e;
+        }
+        onSuccess();
+        return result;
+    }
+
+    /**
+     * Asks to make a call whose outcome is reported later with {@link #onSuccess} or
+     * {@link #onError}, for calls that complete asynchronously.
+     *
+     * @return false if the breaker is open and the call must not be made
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+        }
+        boolean permitted = state == State.CLOSED || state == State.HALF_OPEN && !trialInFlight;
+        if (permitted && state == State.HALF_OPEN) {
+            trialInFlight = true;
+        }
+        if (!permitted) {
+            rejections.increment();
+        }
+        return permitted;
+    }
+
+    public synchronized void onSuccess() {
+        successes.increment();
+        if (state == State.HALF_OPEN) {
+            close();
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onError(Throwable error) {
+        if (!isFailure.test(error)) {
+            onSuccess();
+            return;
+        }
+        failures.increment();
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && failed >= failureRateThreshold * recorded) {
+                open();
+            }
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == window.length) {
+            if (window[next]) {
+                failed--;
+            }
+        } else {
+            recorded++;
+        }
+        window[next] = failure;
+        if (failure) {
+            failed++;
+        }
+        next = (next + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        trialInFlight = false;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        recorded = 0;
+        next = 0;
+        failed = 0;
+        trialInFlight = false;
+    }
+}
@@ -0,0 +1,97 @@
+package com.communifilm.utils;
+
+import java.util.Arrays;
+
+/**
+ * Map from int keys to int values, stored in two parallel arrays with open addressing
+ * and linear probing, so neither keys nor values are boxed. Meant for dense lookups on
+ * hot paths, such as mapping TMDB movie IDs to array positions.
+ *
+ * Not thread-safe; share instances only once they are no longer written.
+ */
+public final class IntIntHashMap {
+
+    private static final int FREE = Integer.MIN_VALUE;
+    private static final float MAX_LOAD = 0.5f;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    public IntIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / MAX_LOAD)) - 1) << 1;
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, FREE);
+    }
+
+    /**
+     * @return the value mapped to the key, or missing if there is none
+     */
+    public int get(int key, int missing) {
+        if (key == FREE) {
+            return missing;
+        }
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            int found = keys[slot];
+            if (found == key) {
+                return values[slot];
+            }
+            if (found == FREE) {
+                return missing;
+            }
+        }
+    }
+
+    /**
+     * Maps the key to the value, replacing any previous value.
+     *
+     * @param key any int except {@link Integer#MIN_VALUE}, which marks free slots
+     */
+    public void put(int key, int value) {
+        if (key == FREE) {
+            throw new IllegalArgumentException("Integer.MIN_VALUE cannot be used as a key");
+        }
+        if (size + 1 > keys.length * MAX_LOAD) {
+            grow();
+        }
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            if (keys[slot] == FREE) {
+                keys[slot] = key;
+                values[slot] = value;
+                size++;
+                return;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(keys, FREE);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    // Spreads sequential IDs across the table so probe runs stay short
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,114 @@
+package com.communifilm.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Merges concurrent calls for the same key into one: the first caller (the leader)
+ * makes the call, and callers arriving while it is in flight wait for and share its
+ * result or failure. Once the call completes, the next caller starts a new one, so
+ * results are never served beyond the lifetime of the call that produced them.
+ *
+ * In-flight calls are tracked in a {@link ConcurrentHashMap} and claimed with a single
+ * putIfAbsent, which only locks one hash bin for the instant of the insert; the call
+ * itself runs outside any lock, so slow calls for one key never hold up other keys.
+ *
+ * Calls are counted as {@code singleflight.calls}, tagged by name and by result:
+ * executed for leaders, coalesced for callers that shared a leader's result.
+ * Coalesced callers receive the same result instance as the leader and must not mutate it.
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter executed;
+    private final Counter coalesced;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.executed = meterRegistry.counter("singleflight.calls", "name", name, "result", "executed");
+        this.coalesced = meterRegistry.counter("singleflight.calls", "name", name, "result", "coalesced");
+    }
+
+    /**
+     * Runs a blocking call, or waits for the identical call already in flight.
+     * Exceptions thrown by the call are rethrown to every waiter.
+     */
+    public V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> promise = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, promise);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        executed.increment();
+        try {
+            V value = call.get();
+            inFlight.remove(key, promise);
+            promise.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, promise);
+            promise.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Starts an asynchronous call, or joins the identical call already in flight.
+     * Each caller gets its own copy of the shared future, so cancelling one
+     * does not affect the others.
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> promise = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, promise);
+        if (existing != null) {
+            coalesced.increment();
+            return existing.copy();
+        }
+
+        executed.increment();
+        try {
+            call.get().whenComplete((value, error) -> {
+                inFlight.remove(key, promise);
+                if (error != null) {
+                    promise.completeExceptionally(error);
+                } else {
+                    promise.complete(value);
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, promise);
+            promise.completeExceptionally(e);
+        }
+        return promise.copy();
+    }
+
+    /**
+     * Detaches the in-flight calls for matching keys, so the next caller starts a fresh call
+     * instead of joining one that began before, e.g., a write the caller expects to see.
+     * Callers already waiting still receive the detached call's result.
+     */
+    public void forget(Predicate<? super K> keys) {
+        inFlight.keySet().removeIf(keys);
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
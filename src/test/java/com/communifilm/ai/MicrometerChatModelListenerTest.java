@@ -0,0 +1,81 @@
+package com.communifilm.ai;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.listener.ChatModelRequest;
+import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+
+import static org.mockito.Answers.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Model calls a streaming turn makes from its HTTP client's threads, where no span is
+ * current, must still join the turn's trace.
+ */
+class MicrometerChatModelListenerTest {
+
+    private static final ToolExecutionRequest TOOL_CALL = ToolExecutionRequest.builder()
+            .id("call_1")
+            .name("getMovieDetails")
+            .arguments("{\"movieId\": 27205}")
+            .build();
+
+    private final Tracer tracer = mock(Tracer.class);
+    private final Span turnSpan = mock(Span.class);
+    private final Span llmSpan = mock(Span.class, RETURNS_SELF);
+    private final TurnSpans turnSpans = new TurnSpans();
+    private final MicrometerChatModelListener listener =
+            new MicrometerChatModelListener(new SimpleMeterRegistry(), tracer, turnSpans);
+
+    MicrometerChatModelListenerTest() {
+        when(tracer.nextSpan()).thenReturn(llmSpan);
+        when(tracer.nextSpan(turnSpan)).thenReturn(llmSpan);
+    }
+
+    @Test
+    void callSendingToolResultsJoinsTheTurnThatRanTheTools() {
+        AgentTurn turn = AgentTurn.start("default");
+        turnSpans.register(turn, turnSpan);
+        turnSpans.toolCalled(TOOL_CALL.id(), turn);
+
+        listener.onRequest(request(List.of(UserMessage.from("Tell me about movie 27205"),
+                AiMessage.from(List.of(TOOL_CALL)),
+                ToolExecutionResultMessage.from(TOOL_CALL, "Inception"))));
+
+        verify(tracer).nextSpan(turnSpan);
+        verify(tracer, never()).nextSpan();
+    }
+
+    @Test
+    void toolResultsOfAFinishedTurnStartANewTrace() {
+        AgentTurn turn = AgentTurn.start("default");
+        Runnable unregister = turnSpans.register(turn, turnSpan);
+        turnSpans.toolCalled(TOOL_CALL.id(), turn);
+        unregister.run();
+
+        listener.onRequest(request(List.of(ToolExecutionResultMessage.from(TOOL_CALL, "Inception"))));
+
+        verify(tracer).nextSpan();
+        verify(tracer, never()).nextSpan(turnSpan);
+    }
+
+    private static ChatModelRequestContext request(List<ChatMessage> messages) {
+        return new ChatModelRequestContext(ChatModelRequest.builder()
+                .model("gpt-4o-mini")
+                .messages(messages)
+                .build(), new HashMap<>());
+    }
+}
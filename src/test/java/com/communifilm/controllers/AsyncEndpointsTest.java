@@ -0,0 +1,241 @@
+package com.communifilm.controllers;
+
+import com.communifilm.ai.ChatStreamListener;
+import com.communifilm.dtos.CreateReviewDto;
+import com.communifilm.dtos.CreateReviewReplyDto;
+import com.communifilm.dtos.MovieRecommendationDto;
+import com.communifilm.dtos.ReviewReplyResponseDto;
+import com.communifilm.models.MovieReview;
+import com.communifilm.models.ReviewReply;
+import com.communifilm.models.User;
+import com.communifilm.services.CollaborativeRecommender;
+import com.communifilm.services.GoogleAuthService;
+import com.communifilm.services.MovieAgentService;
+import com.communifilm.services.MovieReviewService;
+import com.communifilm.services.ReviewReplyService;
+import com.communifilm.services.UserService;
+import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
+import com.google.cloud.firestore.Firestore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Signed-in calls to endpoints that return a future, on a real Tomcat with the application's
+ * security chain. The response is written on a second, ASYNC dispatch once the future completes;
+ * the bearer token is only checked on the first.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "openai.api.key=test",
+        "management.server.port=0",
+        "movies.index.path=target/test-movie-index",
+        "agent.memory.store=in-memory"
+})
+class AsyncEndpointsTest {
+
+    private static final String TOKEN = "valid-token";
+    private static final String USER = "google-user-1";
+
+    @MockitoBean
+    private Firestore firestore;
+    @MockitoBean
+    private GoogleAuthService googleAuthService;
+    @MockitoBean
+    private MovieReviewService reviewService;
+    @MockitoBean
+    private ReviewReplyService replyService;
+    @MockitoBean
+    private UserService userService;
+    @MockitoBean
+    private MovieAgentService agentService;
+    @MockitoBean
+    private CollaborativeRecommender recommender;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate http;
+
+    @BeforeEach
+    void signIn() throws Exception {
+        GoogleIdToken.Payload payload = new GoogleIdToken.Payload();
+        payload.setSubject(USER);
+        when(googleAuthService.verifyToken(anyString())).thenAnswer(call -> {
+            if (!TOKEN.equals(call.getArgument(0))) {
+                throw new IllegalArgumentException("Invalid token");
+            }
+            return payload;
+        });
+    }
+
+    @Test
+    void signedInUserCreatesAReview() {
+        MovieReview created = MovieReview.builder()
+                .reviewId("review-1").movieId(27205L).userId(USER).text("Dreams within dreams.")
+                .replyCount(0).createdAt(Instant.parse("2026-10-18T10:00:00Z")).build();
+        when(reviewService.createReviewAsync(any())).thenReturn(later(created));
+
+        CreateReviewDto review = new CreateReviewDto();
+        review.setMovieId(27205L);
+        review.setUserId(USER);
+        review.setText("Dreams within dreams.");
+        ResponseEntity<MovieReview> response = http.exchange("/reviews", HttpMethod.POST,
+                new HttpEntity<>(review, bearer(TOKEN)), MovieReview.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo(created);
+    }
+
+    @Test
+    void signedInUserCreatesAReply() {
+        ReviewReply created = ReviewReply.builder()
+                .replyId("reply-1").parentReviewId("review-1").movieId(27205L).userId(USER)
+                .username("User One").text("Agreed.").createdAt(Instant.parse("2026-10-18T10:05:00Z")).build();
+        when(replyService.createReplyAsync(any())).thenReturn(later(created));
+
+        CreateReviewReplyDto reply = CreateReviewReplyDto.builder()
+                .parentReviewId("review-1").movieId(27205L).userId(USER).username("User One").text("Agreed.").build();
+        ResponseEntity<ReviewReply> response = http.exchange("/replies", HttpMethod.POST,
+                new HttpEntity<>(reply, bearer(TOKEN)), ReviewReply.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo(created);
+    }
+
+    @Test
+    void signedInUserReadsProfiles() {
+        User user = User.builder().uid(USER).displayName("User One").build();
+        User other = User.builder().uid("google-user-2").displayName("User Two").build();
+        when(userService.getUserAsync(USER)).thenReturn(later(user));
+        when(userService.getUsersAsync(List.of(USER, "google-user-2"))).thenReturn(later(List.of(user, other)));
+
+        ResponseEntity<User> profile = http.exchange("/users/" + USER, HttpMethod.GET,
+                new HttpEntity<>(bearer(TOKEN)), User.class);
+        ResponseEntity<User[]> profiles = http.exchange("/users?uids=" + USER + ",google-user-2", HttpMethod.GET,
+                new HttpEntity<>(bearer(TOKEN)), User[].class);
+
+        assertThat(profile.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(profile.getBody()).isEqualTo(user);
+        assertThat(profiles.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(profiles.getBody()).containsExactly(user, other);
+    }
+
+    @Test
+    void signedInUserReadsReviewsAndReplies() {
+        MovieReview review = MovieReview.builder().reviewId("review-1").movieId(27205L).userId(USER).text("Great.").build();
+        ReviewReplyResponseDto reply = ReviewReplyResponseDto.builder().replyId("reply-1").text("Agreed.").build();
+        when(reviewService.getReviewsForMovieAsync(27205L)).thenReturn(later(List.of(review)));
+        when(replyService.getRepliesForReviewAsync("review-1")).thenReturn(later(List.of(reply)));
+
+        ResponseEntity<MovieReview[]> reviews = http.exchange("/reviews/movie/27205", HttpMethod.GET,
+                new HttpEntity<>(bearer(TOKEN)), MovieReview[].class);
+        ResponseEntity<ReviewReplyResponseDto[]> replies = http.exchange("/replies/review/review-1", HttpMethod.GET,
+                new HttpEntity<>(bearer(TOKEN)), ReviewReplyResponseDto[].class);
+
+        assertThat(reviews.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(reviews.getBody()).containsExactly(review);
+        assertThat(replies.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(replies.getBody()).containsExactly(reply);
+    }
+
+    @Test
+    void signedInUserGetsRecommendations() {
+        List<MovieRecommendationDto> recommended = List.of(
+                new MovieRecommendationDto(155L, "The Dark Knight", 1.5), new MovieRecommendationDto(157336L, null, 0.75));
+        when(recommender.recommendAsync(USER, 5)).thenReturn(later(recommended));
+        when(recommender.recommendAsync("google-user-404", 20)).thenReturn(later(null));
+
+        ResponseEntity<MovieRecommendationDto[]> response = http.exchange("/users/" + USER + "/recommendations?limit=5",
+                HttpMethod.GET, new HttpEntity<>(bearer(TOKEN)), MovieRecommendationDto[].class);
+        ResponseEntity<String> unknown = http.exchange("/users/google-user-404/recommendations",
+                HttpMethod.GET, new HttpEntity<>(bearer(TOKEN)), String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).containsExactlyElementsOf(recommended);
+        assertThat(unknown.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void signedInUserStreamsAnAgentReplyToTheEnd() throws Exception {
+        // Events arrive from another thread after the request thread is released, as from the model client
+        doAnswer(call -> {
+            ChatStreamListener listener = call.getArgument(2);
+            CompletableFuture.runAsync(() -> {
+                listener.onToolCall("getMovieDetails", "TMDB Tool: getMovieDetails");
+                listener.onToken("Inception ");
+                listener.onToken("is a 2010 film.");
+                listener.onComplete("Inception is a 2010 film.");
+            }, CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS));
+            return null;
+        }).when(agentService).chatStream(eq(USER), eq("Tell me about movie 27205"), any());
+
+        HttpResponse<String> response = HttpClient.newHttpClient().send(HttpRequest
+                .newBuilder(URI.create("http://localhost:" + port + "/agent/chat/stream"))
+                .timeout(Duration.ofSeconds(10))
+                .header("Authorization", "Bearer " + TOKEN)
+                .header("Content-Type", "application/json")
+                .header("Accept", "text/event-stream")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"message\":\"Tell me about movie 27205\"}"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        // Reading the body to the end fails with an IOException if the stream is cut off mid-chunk
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body()).containsSubsequence(
+                "event:tool", "getMovieDetails",
+                "event:token", "data:Inception ",
+                "event:token", "data:is a 2010 film.",
+                "event:done", "{\"response\":\"Inception is a 2010 film.\"}");
+    }
+
+    @Test
+    void requestsWithoutAValidTokenAreStillRefused() {
+        CreateReviewDto review = new CreateReviewDto();
+        review.setMovieId(27205L);
+        review.setText("Anonymous.");
+
+        assertThat(http.exchange("/reviews", HttpMethod.POST, new HttpEntity<>(review), String.class).getStatusCode())
+                .isEqualTo(HttpStatus.FORBIDDEN);
+        assertThat(http.exchange("/reviews", HttpMethod.POST, new HttpEntity<>(review, bearer("forged")), String.class)
+                .getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        verifyNoInteractions(reviewService);
+    }
+
+    private static HttpHeaders bearer(String token) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        return headers;
+    }
+
+    // Completes on another thread, as a Firestore future does, so the response needs the ASYNC dispatch
+    private static <T> CompletableFuture<T> later(T value) {
+        return CompletableFuture.supplyAsync(() -> value, CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,243 @@
+package com.communifilm.services;
+
+import com.google.api.core.ApiFutures;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.BulkWriter;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Precondition;
+import com.google.cloud.firestore.WriteResult;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static dev.langchain4j.data.message.ChatMessageDeserializer.messagesFromJson;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Two stores standing in for two nodes, sharing one fake Firestore that enforces the
+ * update-time preconditions the store writes with.
+ */
+class FirestoreChatMemoryStoreTest {
+
+    private static final String USER = "u1";
+
+    private final FakeFirestore firestore = new FakeFirestore();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void nodesWritingTheSameConversationKeepEachOthersTurns() {
+        // Node A never re-reads on its own, so its second turn starts from a stale copy
+        FirestoreChatMemoryStore nodeA = store(Duration.ofHours(1));
+        FirestoreChatMemoryStore nodeB = store(Duration.ofHours(1));
+
+        turn(nodeA, "first question", "first answer");
+        nodeA.flush();
+        turn(nodeB, "second question", "second answer");
+        nodeB.flush();
+        turn(nodeA, "third question", "third answer");
+
+        nodeA.flush();
+        assertThat(texts(firestore.messages(USER))).containsExactly(
+                "first question", "first answer", "second question", "second answer");
+        assertThat(meterRegistry.counter("agent.memory.conflicts").count()).isEqualTo(1);
+
+        nodeA.flush();
+        List<String> expected = List.of("first question", "first answer", "second question", "second answer",
+                "third question", "third answer");
+        assertThat(texts(firestore.messages(USER))).isEqualTo(expected);
+        assertThat(texts(nodeA.getMessages(USER))).isEqualTo(expected);
+    }
+
+    @Test
+    void staleLocalCopyIsReadAgain() {
+        FirestoreChatMemoryStore nodeA = store(Duration.ZERO);
+        FirestoreChatMemoryStore nodeB = store(Duration.ZERO);
+
+        turn(nodeA, "first question", "first answer");
+        nodeA.flush();
+        turn(nodeB, "second question", "second answer");
+        nodeB.flush();
+
+        assertThat(texts(nodeA.getMessages(USER))).containsExactly(
+                "first question", "first answer", "second question", "second answer");
+        turn(nodeA, "third question", "third answer");
+        nodeA.flush();
+        assertThat(texts(firestore.messages(USER))).hasSize(6);
+        assertThat(meterRegistry.counter("agent.memory.conflicts").count()).isZero();
+    }
+
+    @Test
+    void turnTakenWhileWritingIsKeptForTheNextFlush() {
+        FirestoreChatMemoryStore store = store(Duration.ofHours(1));
+        turn(store, "first question", "first answer");
+        firestore.beforeWrite = () -> turn(store, "second question", "second answer");
+
+        store.flush();
+        firestore.beforeWrite = null;
+        assertThat(texts(firestore.messages(USER))).containsExactly("first question", "first answer");
+
+        store.flush();
+        assertThat(texts(firestore.messages(USER))).containsExactly(
+                "first question", "first answer", "second question", "second answer");
+        assertThat(meterRegistry.counter("agent.memory.conflicts").count()).isZero();
+    }
+
+    @Test
+    void rebaseReplacesTheSystemMessageAndAppendsNewMessages() {
+        ChatMessage question = UserMessage.from("question");
+        ChatMessage answer = AiMessage.from("answer");
+        AgentSessionStore.Session local = new AgentSessionStore.Session(
+                List.of(SystemMessage.from("new prompt"), question, answer),
+                List.of(), null, 0);
+        List<ChatMessage> remoteMessages = List.of(SystemMessage.from("old prompt"), UserMessage.from("elsewhere"));
+        AgentSessionStore.Session remote = new AgentSessionStore.Session(remoteMessages, remoteMessages, "v2", 0);
+
+        AgentSessionStore.Session rebased = FirestoreChatMemoryStore.rebase(local, remote);
+
+        assertThat(texts(rebased.messages())).containsExactly("new prompt", "elsewhere", "question", "answer");
+        assertThat(rebased.version()).isEqualTo("v2");
+    }
+
+    @Test
+    void clearingDeletesTheDocumentAtOnce() {
+        FirestoreChatMemoryStore store = store(Duration.ofHours(1));
+        turn(store, "question", "answer");
+        store.flush();
+
+        store.deleteMessages(USER);
+
+        assertThat(firestore.messages(USER)).isEmpty();
+        assertThat(store.getMessages(USER)).isEmpty();
+    }
+
+    private FirestoreChatMemoryStore store(Duration maxStaleness) {
+        AgentSessionStore sessions = new AgentSessionStore(meterRegistry, Duration.ofMinutes(30), 1000);
+        return new FirestoreChatMemoryStore(firestore.firestore, sessions, maxStaleness, meterRegistry);
+    }
+
+    // What AiServices does with the memory in one turn
+    private static void turn(FirestoreChatMemoryStore store, String question, String answer) {
+        ChatMemory memory = MessageWindowChatMemory.builder().id(USER).maxMessages(20).chatMemoryStore(store).build();
+        memory.add(UserMessage.from(question));
+        memory.add(AiMessage.from(answer));
+    }
+
+    private static List<String> texts(List<ChatMessage> messages) {
+        return messages.stream().map(message -> switch (message) {
+            case UserMessage user -> user.singleText();
+            case AiMessage ai -> ai.text();
+            case SystemMessage system -> system.text();
+            default -> throw new IllegalArgumentException("Unexpected message " + message);
+        }).toList();
+    }
+
+    /**
+     * Documents kept in a map, each with an update time that changes on every write.
+     */
+    private static final class FakeFirestore {
+
+        private record Document(String json, Timestamp updateTime) {
+        }
+
+        final Firestore firestore = mock(Firestore.class);
+        private final Map<String, Document> documents = new HashMap<>();
+        private long clock = 1_000_000;
+        Runnable beforeWrite;
+
+        FakeFirestore() {
+            CollectionReference collection = mock(CollectionReference.class);
+            when(firestore.collection("chatMemories")).thenReturn(collection);
+            when(collection.document(anyString())).thenAnswer(call -> reference(call.getArgument(0)));
+            when(firestore.bulkWriter()).thenAnswer(call -> bulkWriter());
+        }
+
+        synchronized List<ChatMessage> messages(String id) {
+            Document document = documents.get(id);
+            return document != null ? messagesFromJson(document.json()) : List.of();
+        }
+
+        private DocumentReference reference(String id) {
+            DocumentReference reference = mock(DocumentReference.class);
+            when(reference.getId()).thenReturn(id);
+            when(reference.get()).thenAnswer(call -> ApiFutures.immediateFuture(snapshot(id)));
+            when(reference.delete()).thenAnswer(call -> {
+                synchronized (this) {
+                    documents.remove(id);
+                }
+                return ApiFutures.immediateFuture(result(now()));
+            });
+            return reference;
+        }
+
+        private synchronized DocumentSnapshot snapshot(String id) {
+            Document document = documents.get(id);
+            DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+            when(snapshot.exists()).thenReturn(document != null);
+            if (document != null) {
+                when(snapshot.getString("messages")).thenReturn(document.json());
+                when(snapshot.getUpdateTime()).thenReturn(document.updateTime());
+            }
+            return snapshot;
+        }
+
+        private BulkWriter bulkWriter() {
+            BulkWriter writer = mock(BulkWriter.class);
+            when(writer.create(any(DocumentReference.class), anyMap())).thenAnswer(call -> {
+                String id = ((DocumentReference) call.getArgument(0)).getId();
+                Map<String, Object> data = call.getArgument(1);
+                return write(id, data, null);
+            });
+            when(writer.update(any(DocumentReference.class), anyMap(), any(Precondition.class))).thenAnswer(call -> {
+                String id = ((DocumentReference) call.getArgument(0)).getId();
+                Map<String, Object> data = call.getArgument(1);
+                return write(id, data, call.getArgument(2));
+            });
+            return writer;
+        }
+
+        // Creates when there is no precondition, otherwise updates if the update time still matches
+        private Object write(String id, Map<String, Object> data, Precondition precondition) {
+            if (beforeWrite != null) {
+                beforeWrite.run();
+            }
+            synchronized (this) {
+                Document current = documents.get(id);
+                if (precondition == null ? current != null
+                        : current == null || !Precondition.updatedAt(current.updateTime()).equals(precondition)) {
+                    return ApiFutures.immediateFailedFuture(new IllegalStateException("Precondition failed for " + id));
+                }
+                Timestamp updateTime = now();
+                documents.put(id, new Document((String) data.get("messages"), updateTime));
+                return ApiFutures.immediateFuture(result(updateTime));
+            }
+        }
+
+        private synchronized Timestamp now() {
+            return Timestamp.ofTimeMicroseconds(clock++);
+        }
+
+        private static WriteResult result(Timestamp updateTime) {
+            WriteResult result = mock(WriteResult.class);
+            when(result.getUpdateTime()).thenReturn(updateTime);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.communifilm.services;
+
+import com.communifilm.dtos.MovieRecommendationDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Similarities checked against cosines worked out by hand for five users' baskets:
+ * movie 1 has 4 users, 2 has 4, 3 has 3 and 4 has 2; they share
+ * (1, 2) 3 users, (1, 3) 2, (1, 4) 1, (2, 3) 2, (2, 4) 2 and (3, 4) 1.
+ */
+class ItemSimilarityTest {
+
+    private static final List<int[]> BASKETS = List.of(
+            new int[]{1, 2, 3},
+            new int[]{1, 2},
+            new int[]{1, 3},
+            new int[]{2, 3, 4},
+            new int[]{1, 2, 4});
+    private static final Map<Integer, String> TITLES = Map.of(1, "Alien", 2, "Aliens", 3, "Alien 3");
+
+    @Test
+    void neighborsScoreTheCosineOfTheirUsersStrongestFirst() {
+        ItemSimilarity model = ItemSimilarity.build(BASKETS, TITLES::get, 10, 1);
+
+        assertThat(model.movieCount()).isEqualTo(4);
+        assertRecommended(model.recommend(new int[]{1}, 10),
+                2, 3 / Math.sqrt(4 * 4),
+                3, 2 / Math.sqrt(4 * 3),
+                4, 1 / Math.sqrt(4 * 2));
+        assertRecommended(model.recommend(new int[]{4}, 10),
+                2, 2 / Math.sqrt(2 * 4),
+                3, 1 / Math.sqrt(2 * 3),
+                1, 1 / Math.sqrt(2 * 4));
+    }
+
+    @Test
+    void candidatesSumTheirSimilaritiesToEverySeed() {
+        ItemSimilarity model = ItemSimilarity.build(BASKETS, TITLES::get, 10, 1);
+
+        // Seeds are not recommended back, and unknown seeds are ignored
+        assertRecommended(model.recommend(new int[]{1, 3, 999}, 10),
+                2, 3 / Math.sqrt(16) + 2 / Math.sqrt(12),
+                4, 1 / Math.sqrt(8) + 1 / Math.sqrt(6));
+        assertThat(model.recommend(new int[]{1}, 10)).extracting(MovieRecommendationDto::getTitle)
+                .containsExactly("Aliens", "Alien 3", null);
+    }
+
+    @Test
+    void keepsOnlyTheTopNeighborsAndTheTopRecommendations() {
+        ItemSimilarity oneNeighbor = ItemSimilarity.build(BASKETS, TITLES::get, 1, 1);
+        assertRecommended(oneNeighbor.recommend(new int[]{4}, 10), 2, 2 / Math.sqrt(8));
+        assertRecommended(oneNeighbor.recommend(new int[]{2}, 10), 1, 3 / Math.sqrt(16));
+
+        ItemSimilarity model = ItemSimilarity.build(BASKETS, TITLES::get, 10, 1);
+        assertRecommended(model.recommend(new int[]{4}, 2),
+                2, 2 / Math.sqrt(8),
+                3, 1 / Math.sqrt(6));
+        assertThat(model.recommend(new int[]{4}, 0)).isEmpty();
+    }
+
+    @Test
+    void pairsSharingTooFewUsersAreNotNeighbors() {
+        ItemSimilarity model = ItemSimilarity.build(BASKETS, TITLES::get, 10, 2);
+
+        assertRecommended(model.recommend(new int[]{1}, 10),
+                2, 3 / Math.sqrt(16),
+                3, 2 / Math.sqrt(12));
+        assertRecommended(model.recommend(new int[]{4}, 10), 2, 2 / Math.sqrt(8));
+    }
+
+    @Test
+    void rejectsKeepingNoNeighbors() {
+        assertThatThrownBy(() -> ItemSimilarity.build(BASKETS, TITLES::get, 0, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(ItemSimilarity.EMPTY.recommend(new int[]{1}, 10)).isEmpty();
+    }
+
+    // Expected movie IDs and scores alternate, best first
+    private static void assertRecommended(List<MovieRecommendationDto> recommendations, double... expected) {
+        assertThat(recommendations).hasSize(expected.length / 2);
+        for (int i = 0; i < recommendations.size(); i++) {
+            assertThat(recommendations.get(i).getMovieId()).isEqualTo((long) expected[2 * i]);
+            assertThat(recommendations.get(i).getScore()).isCloseTo(expected[2 * i + 1], within(1e-6));
+        }
+    }
+}
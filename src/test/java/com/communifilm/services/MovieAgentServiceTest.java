@@ -0,0 +1,175 @@
+package com.communifilm.services;
+
+import com.communifilm.ai.AgentToolbox;
+import com.communifilm.ai.ChatStreamListener;
+import com.communifilm.ai.MovieRecommendationTool;
+import com.communifilm.ai.MovieReviewTool;
+import com.communifilm.ai.ParallelToolCalls;
+import com.communifilm.ai.TmdbTool;
+import com.communifilm.ai.TurnSpans;
+import com.communifilm.utils.Bulkhead;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Streams agent turns through a fake streaming model that, like OpenAI's client, answers on
+ * a thread of its own: first with a tool call, then with the tool's result.
+ */
+class MovieAgentServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService toolExecutor = Executors.newFixedThreadPool(4);
+    private final FakeStreamingModel streamingModel = new FakeStreamingModel();
+    private MovieAgentService service;
+
+    @BeforeEach
+    void setUp() {
+        TmdbTool tmdbTool = mock(TmdbTool.class);
+        when(tmdbTool.getName()).thenReturn("TMDB Tool");
+        when(tmdbTool.getMovieDetails(anyInt())).thenAnswer(call -> "details of " + call.getArgument(0));
+        MockEnvironment environment = new MockEnvironment();
+        ParallelToolCalls parallelToolCalls = new ParallelToolCalls(toolExecutor, environment, meterRegistry);
+        AgentToolbox toolbox = new AgentToolbox(mock(MovieReviewTool.class), mock(MovieRecommendationTool.class),
+                tmdbTool, meterRegistry, Tracer.NOOP, environment, parallelToolCalls, new TurnSpans());
+
+        AgentSessionStore sessionStore = new AgentSessionStore(meterRegistry, Duration.ofMinutes(30), 1000);
+        SemanticResponseCache responseCache = new SemanticResponseCache(null, meterRegistry, false, 0.9, 10, Duration.ofHours(1));
+        service = new MovieAgentService(toolbox, mock(ChatLanguageModel.class), streamingModel,
+                new SessionChatMemoryStore(sessionStore), sessionStore, responseCache, parallelToolCalls,
+                Tracer.NOOP, new Bulkhead("agent", 8, Duration.ZERO, meterRegistry));
+        service.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        streamingModel.executor.shutdownNow();
+        toolExecutor.shutdownNow();
+    }
+
+    @Test
+    void concurrentAnonymousStreamsEachGetTheirOwnToolEvents() throws Exception {
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+
+        // Both streams are open, in the same "default" conversation, before the model answers either
+        service.chatStream(null, "movie 1", first);
+        service.chatStream(null, "movie 2", second);
+        streamingModel.release.countDown();
+
+        assertThat(first.completed.get(5, TimeUnit.SECONDS)).isEqualTo("answer: details of 1");
+        assertThat(second.completed.get(5, TimeUnit.SECONDS)).isEqualTo("answer: details of 2");
+        assertThat(first.toolCalls).containsExactly("getMovieDetails");
+        assertThat(second.toolCalls).containsExactly("getMovieDetails");
+    }
+
+    @Test
+    void streamsInTheSameConversationShareItsHistory() throws Exception {
+        streamingModel.release.countDown();
+        RecordingListener first = new RecordingListener();
+        service.chatStream("u1", "movie 1", first);
+        first.completed.get(5, TimeUnit.SECONDS);
+
+        RecordingListener second = new RecordingListener();
+        service.chatStream("u1", "movie 2", second);
+
+        assertThat(second.completed.get(5, TimeUnit.SECONDS)).isEqualTo("answer: details of 2");
+        assertThat(streamingModel.lastRequest).anySatisfy(message -> assertThat(message)
+                .isInstanceOfSatisfying(AiMessage.class, ai -> assertThat(ai.text()).isEqualTo("answer: details of 1")));
+    }
+
+    private static final class RecordingListener implements ChatStreamListener {
+
+        final List<String> toolCalls = new CopyOnWriteArrayList<>();
+        final CompletableFuture<String> completed = new CompletableFuture<>();
+
+        @Override
+        public void onToolCall(String toolName, String message) {
+            toolCalls.add(toolName);
+        }
+
+        @Override
+        public void onToken(String token) {
+        }
+
+        @Override
+        public void onComplete(String response) {
+            completed.complete(response);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            completed.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * Asks for the movie named in the user's message ("movie 1"), then answers with the
+     * tool's result. Every response is sent from one background thread once released.
+     */
+    private static final class FakeStreamingModel implements StreamingChatLanguageModel {
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final CountDownLatch release = new CountDownLatch(1);
+        volatile List<ChatMessage> lastRequest;
+
+        @Override
+        public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+            generate(messages, List.of(), handler);
+        }
+
+        @Override
+        public void generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications,
+                             StreamingResponseHandler<AiMessage> handler) {
+            lastRequest = List.copyOf(messages);
+            ChatMessage last = messages.get(messages.size() - 1);
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (last instanceof UserMessage user) {
+                    String movieId = user.singleText().replaceAll(".*movie (\\d+).*", "$1");
+                    handler.onComplete(Response.from(AiMessage.from(ToolExecutionRequest.builder()
+                            .id("call_" + movieId)
+                            .name("getMovieDetails")
+                            .arguments("{\"movieId\": " + movieId + "}")
+                            .build())));
+                } else {
+                    String answer = "answer: " + ((ToolExecutionResultMessage) last).text();
+                    handler.onNext(answer);
+                    handler.onComplete(Response.from(AiMessage.from(answer)));
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.communifilm.services;
+
+import com.communifilm.models.MovieReview;
+import com.communifilm.models.ReviewSummary;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.Tokenizer;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The corpus selection and map-reduce path that ReviewPromptBenchmark measures, with a fake
+ * model and a tokenizer that counts one token per word so budgets are exact.
+ */
+class ReviewSummaryServiceTest {
+
+    private static final long MOVIE_ID = 693134L;
+    private static final String TITLE = "Dune: Part Two";
+    private static final int REVIEW_TOKENS = 10;
+    private static final Pattern FIRST_REVIEW = Pattern.compile("(r\\d+)w0");
+
+    private final ExecutorService llmExecutor = Executors.newFixedThreadPool(4);
+    private final Queue<String> prompts = new ConcurrentLinkedQueue<>();
+
+    @AfterEach
+    void stopExecutor() {
+        llmExecutor.shutdownNow();
+    }
+
+    @Test
+    void corpusCountsDuplicatesAndOmittedReviews() {
+        List<MovieReview> reviews = reviews(6);
+        // Ranked last, and identical to the top review
+        reviews.add(review(6, text(0)));
+
+        ReviewCorpus corpus = corpusBuilder(4 * REVIEW_TOKENS).build(reviews);
+
+        assertThat(corpus.texts()).containsExactly(text(0), text(1), text(2), text(3));
+        assertThat(corpus.tokenCount()).isEqualTo(4 * REVIEW_TOKENS);
+        assertThat(corpus.duplicates()).isEqualTo(1);
+        assertThat(corpus.omitted()).isEqualTo(2);
+        assertThat(corpus.reviewCount()).isEqualTo(7);
+        assertThat(ReviewSummaryService.prompt(ReviewSummary.Kind.SUMMARY, MOVIE_ID, TITLE, corpus))
+                .contains("the movie's 7 reviews");
+    }
+
+    @Test
+    void largeCorpusIsSummarizedInChunksOfAtMostChunkTokens() throws Exception {
+        ChatLanguageModel model = messages -> {
+            String prompt = ((UserMessage) messages.get(messages.size() - 1)).singleText();
+            prompts.add(prompt);
+            return Response.from(AiMessage.from("notes"));
+        };
+        ReviewSummaryService service = summaryService(model, 5 * REVIEW_TOKENS, 25);
+
+        service.summarize(ReviewSummary.Kind.SUMMARY, MOVIE_ID, TITLE, reviews(7));
+
+        List<String> notesPrompts = prompts.stream().filter(prompt -> prompt.startsWith("Take notes")).toList();
+        assertThat(notesPrompts).hasSize(4);
+        assertThat(notesPrompts.stream().map(ReviewSummaryServiceTest::reviewsIn))
+                .containsExactlyInAnyOrder(
+                        List.of("r0", "r1"), List.of("r2", "r3"), List.of("r4", "r5"), List.of("r6"));
+        assertThat(prompts).filteredOn(prompt -> prompt.startsWith("Summarize 7 reviews")).hasSize(1);
+    }
+
+    @Test
+    void smallCorpusIsSummarizedInOneCall() throws Exception {
+        ChatLanguageModel model = messages -> {
+            prompts.add(((UserMessage) messages.get(messages.size() - 1)).singleText());
+            return Response.from(AiMessage.from("summary"));
+        };
+        ReviewSummaryService service = summaryService(model, 7 * REVIEW_TOKENS, 25);
+
+        assertThat(service.summarize(ReviewSummary.Kind.SUMMARY, MOVIE_ID, TITLE, reviews(7))).isEqualTo("summary");
+        assertThat(prompts).singleElement().satisfies(prompt -> assertThat(prompt).startsWith("Summarize the following 7 reviews"));
+    }
+
+    @Test
+    void notesAreMergedInChunkOrderWhateverOrderTheyFinishIn() throws Exception {
+        CountDownLatch lastChunkAnswered = new CountDownLatch(1);
+        List<String> answered = new ArrayList<>();
+        ChatLanguageModel model = messages -> {
+            String prompt = ((UserMessage) messages.get(messages.size() - 1)).singleText();
+            if (!prompt.startsWith("Take notes")) {
+                prompts.add(prompt);
+                return Response.from(AiMessage.from("summary"));
+            }
+            String chunk = reviewsIn(prompt).get(0);
+            // The first chunk is answered only after the last one
+            if (chunk.equals("r0")) {
+                await(lastChunkAnswered);
+            }
+            synchronized (answered) {
+                answered.add(chunk);
+            }
+            if (chunk.equals("r4")) {
+                lastChunkAnswered.countDown();
+            }
+            return Response.from(AiMessage.from("notes from " + chunk));
+        };
+        ReviewSummaryService service = summaryService(model, 5 * REVIEW_TOKENS, 2 * REVIEW_TOKENS);
+
+        assertThat(service.summarize(ReviewSummary.Kind.SENTIMENT, MOVIE_ID, TITLE, reviews(6))).isEqualTo("summary");
+
+        assertThat(answered).endsWith("r0").contains("r4");
+        assertThat(prompts).singleElement().satisfies(merge -> assertThat(merge)
+                .startsWith("Analyze the sentiment and common themes in 6 reviews")
+                .containsSubsequence("Batch 1:\nnotes from r0", "Batch 2:\nnotes from r2", "Batch 3:\nnotes from r4"));
+    }
+
+    private ReviewSummaryService summaryService(ChatLanguageModel model, int singlePromptTokens, int chunkTokens) {
+        return new ReviewSummaryService(null, null, model, null, corpusBuilder(32000), llmExecutor,
+                new SimpleMeterRegistry(), singlePromptTokens, chunkTokens, Duration.ofMinutes(10), 1);
+    }
+
+    private static ReviewCorpusBuilder corpusBuilder(int maxTokens) {
+        Tokenizer tokenizer = mock(Tokenizer.class);
+        when(tokenizer.estimateTokenCountInText(anyString()))
+                .thenAnswer(call -> call.<String>getArgument(0).split("\\s+").length);
+        return new ReviewCorpusBuilder(tokenizer, 400, maxTokens, 3);
+    }
+
+    // Reviews ranked in ID order, most replied-to first
+    private static List<MovieReview> reviews(int count) {
+        List<MovieReview> reviews = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            reviews.add(review(i, text(i)));
+        }
+        return reviews;
+    }
+
+    private static MovieReview review(int i, String text) {
+        return MovieReview.builder()
+                .reviewId("review-" + i)
+                .movieId(MOVIE_ID)
+                .userId("user-" + i)
+                .text(text)
+                .replyCount(100 - i)
+                .build();
+    }
+
+    // Ten words no other review uses, so no two reviews are near-duplicates
+    private static String text(int review) {
+        List<String> words = new ArrayList<>();
+        for (int word = 0; word < REVIEW_TOKENS; word++) {
+            words.add("r" + review + "w" + word);
+        }
+        return String.join(" ", words);
+    }
+
+    private static List<String> reviewsIn(String prompt) {
+        List<String> reviews = new ArrayList<>();
+        Matcher matcher = FIRST_REVIEW.matcher(prompt);
+        while (matcher.find()) {
+            reviews.add(matcher.group(1));
+        }
+        return reviews;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.communifilm.services;
+
+import com.communifilm.ai.TurnToolCalls;
+import dev.langchain4j.model.embedding.onnx.allminilml6v2q.AllMiniLmL6V2QuantizedEmbeddingModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Lookups with the embedding model the application uses, which scores questions about
+ * different movies as near-identical.
+ */
+class SemanticResponseCacheTest {
+
+    private static final double SIMILARITY = 0.92;
+    private static final AllMiniLmL6V2QuantizedEmbeddingModel EMBEDDINGS = new AllMiniLmL6V2QuantizedEmbeddingModel();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SemanticResponseCache cache = new SemanticResponseCache(EMBEDDINGS, meterRegistry, true,
+            SIMILARITY, 100, Duration.ofHours(1));
+
+    @Test
+    void questionsDifferingOnlyByAnIdMissTheCache() {
+        cache.put(cache.embed("Get details for movie id 27205"), "Inception (2010)", sharedToolCalls(), false);
+        cache.put(cache.embed("Compare movies 550 and 551"), "Fight Club vs. 551", sharedToolCalls(), false);
+
+        SemanticResponseCache.Question otherMovie = cache.embed("Get details for movie id 27206");
+        assertThat(similarity(otherMovie, cache.embed("Get details for movie id 27205"))).isGreaterThan(SIMILARITY);
+        assertThat(cache.get(otherMovie)).isEmpty();
+        assertThat(cache.get(cache.embed("Compare movies 550 and 552"))).isEmpty();
+        assertThat(cache.get(cache.embed("Compare movies 551 and 550"))).isEmpty();
+
+        assertThat(cache.get(cache.embed("get details for movie id 27205?"))).contains("Inception (2010)");
+        assertThat(cache.get(cache.embed("Compare movies 550 and 551"))).contains("Fight Club vs. 551");
+    }
+
+    @Test
+    void questionsAboutDifferentQuotedTitlesMissTheCache() {
+        cache.put(cache.embed("Who directed \"Alien\"?"), "Ridley Scott", sharedToolCalls(), false);
+
+        assertThat(cache.get(cache.embed("Who directed \"Aliens\"?"))).isEmpty();
+        assertThat(cache.get(cache.embed("Who directed 'Alien'?"))).isEmpty();
+        assertThat(cache.get(cache.embed("who directed \"alien\""))).contains("Ridley Scott");
+    }
+
+    @Test
+    void questionsAboutSequelsMissTheCache() {
+        cache.put(cache.embed("summarize reviews of the godfather"), "A masterpiece.", sharedToolCalls(), false);
+        cache.put(cache.embed("tell me about the movie dune"), "Dune (2021)", sharedToolCalls(), false);
+
+        SemanticResponseCache.Question sequel = cache.embed("summarize reviews of the godfather part ii");
+        assertThat(similarity(sequel, cache.embed("summarize reviews of the godfather"))).isGreaterThan(SIMILARITY);
+        assertThat(cache.get(sequel)).isEmpty();
+        SemanticResponseCache.Question partTwo = cache.embed("tell me about the movie dune part two");
+        // Just under the threshold; a slightly lower one would serve the first film's answer
+        assertThat(similarity(partTwo, cache.embed("tell me about the movie dune"))).isGreaterThan(0.9);
+        assertThat(cache.get(partTwo)).isEmpty();
+
+        assertThat(cache.get(cache.embed("Summarize the reviews of The Godfather."))).contains("A masterpiece.");
+        assertThat(cache.get(cache.embed("Tell me about the film Dune"))).contains("Dune (2021)");
+    }
+
+    @Test
+    void answersAreOnlyCachedWithoutPersonalContext() {
+        SemanticResponseCache.Question question = cache.embed("What can you help me with?");
+        SemanticResponseCache.Question trending = cache.embed("What's trending right now?");
+
+        cache.put(question, "Your watchlist, based on our chat so far: ...", noToolCalls(), true);
+        cache.put(trending, "Trending, skipping what you have reviewed: ...", sharedToolCalls(), true);
+        assertThat(cache.get(question)).isEmpty();
+        assertThat(cache.get(trending)).isEmpty();
+        assertThat(meterRegistry.counter("agent.response_cache.stores", "result", "skipped").count()).isEqualTo(2);
+
+        cache.put(question, "I can find movies, reviews and recommendations.", noToolCalls(), false);
+        cache.put(trending, "Trending this week: ...", sharedToolCalls(), false);
+        assertThat(cache.get(question)).contains("I can find movies, reviews and recommendations.");
+        assertThat(cache.get(trending)).contains("Trending this week: ...");
+    }
+
+    @Test
+    void questionsAboutTheAskerBypassTheCache() {
+        assertThat(cache.embed("What should I watch tonight?")).isNull();
+        assertThat(cache.embed("Which of my favorites is the best?")).isNull();
+        assertThat(cache.embed("What's trending right now?")).isNotNull();
+        assertThat(meterRegistry.counter("agent.response_cache.lookups", "result", "bypass").count()).isEqualTo(2);
+    }
+
+    @Test
+    void entitiesAreNumbersQuotedTitlesAndContentWordsInOrder() {
+        assertThat(SemanticResponseCache.entities("compare movies 550 and 551")).isEqualTo("550\n551\n");
+        assertThat(SemanticResponseCache.entities("is “dune” better than 'alien'")).isEqualTo("“dune”\nbetter\n'alien'\n");
+        assertThat(SemanticResponseCache.entities("tell me about the movie dune part two"))
+                .isEqualTo("dune\npart\ntwo\n");
+        assertThat(SemanticResponseCache.entities("what's trending right now")).isEqualTo("trending\n");
+        assertThat(SemanticResponseCache.entities("which movies are trending")).isEqualTo("trending\n");
+        assertThat(SemanticResponseCache.entities("schindler's list")).isEqualTo("schindler's\nlist\n");
+    }
+
+    private static TurnToolCalls sharedToolCalls() {
+        TurnToolCalls calls = mock(TurnToolCalls.class);
+        when(calls.tools()).thenReturn(List.of("getMovieDetails"));
+        when(calls.sharedFor(any())).thenReturn(Optional.of(Duration.ofHours(6)));
+        return calls;
+    }
+
+    private static TurnToolCalls noToolCalls() {
+        TurnToolCalls calls = mock(TurnToolCalls.class);
+        when(calls.tools()).thenReturn(List.of());
+        when(calls.sharedFor(any())).thenAnswer(call -> Optional.of(call.<Duration>getArgument(0)));
+        return calls;
+    }
+
+    private static double similarity(SemanticResponseCache.Question a, SemanticResponseCache.Question b) {
+        double score = 0;
+        for (int i = 0; i < a.vector().length; i++) {
+            score += a.vector()[i] * b.vector()[i];
+        }
+        return score;
+    }
+}
@@ -0,0 +1,95 @@
+package com.communifilm.services;
+
+import com.communifilm.dtos.MovieDetailDto;
+import com.communifilm.utils.Bulkhead;
+import com.communifilm.utils.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The gateway against a TMDB stand-in that can be made slower than the client's read timeout.
+ */
+class TmdbGatewayTest {
+
+    private static final Duration READ_TIMEOUT = Duration.ofMillis(200);
+    private static final Duration TOO_SLOW = Duration.ofSeconds(1);
+    private static final int MINIMUM_CALLS = 4;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TmdbStub tmdb = new TmdbStub();
+    private final CircuitBreaker breaker = new CircuitBreaker("tmdb", 10, MINIMUM_CALLS, 0.5, Duration.ofMinutes(1),
+            TmdbGateway::isUpstreamFailure, meterRegistry);
+    // Details are never fresh, so every lookup calls TMDB or falls back to the stale copy
+    private final TmdbGateway gateway = new TmdbGateway(TmdbStub.restTemplate(READ_TIMEOUT), meterRegistry, Tracer.NOOP,
+            breaker, new Bulkhead("tmdb", 32, Duration.ofMillis(250), meterRegistry), "key", tmdb.baseUrl(),
+            Duration.ZERO, 1000, Duration.ofMinutes(15), Duration.ofMinutes(2), 100, Duration.ofHours(24));
+
+    TmdbGatewayTest() throws IOException {
+    }
+
+    @AfterEach
+    void stopStub() {
+        tmdb.close();
+    }
+
+    @Test
+    void breakerOpensAfterMinimumCallsTimeOut() {
+        tmdb.latency(TOO_SLOW);
+        for (int movieId = 1; movieId <= MINIMUM_CALLS; movieId++) {
+            assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+            int id = movieId;
+            assertThatThrownBy(() -> gateway.movieDetails(id)).isInstanceOf(ResourceAccessException.class);
+        }
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThatThrownBy(() -> gateway.movieDetails(MINIMUM_CALLS + 1)).isInstanceOf(CircuitBreaker.OpenException.class);
+        assertThat(tmdb.requests()).isEqualTo(MINIMUM_CALLS);
+        assertThat(meterRegistry.timer("tmdb.requests", "endpoint", "details", "status", "IO_ERROR").count())
+                .isEqualTo(MINIMUM_CALLS);
+        assertThat(meterRegistry.timer("tmdb.requests", "endpoint", "details", "status", "REJECTED").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void staleDetailsAreServedWhileTmdbTimesOut() {
+        MovieDetailDto fresh = gateway.movieDetails(27205);
+        tmdb.latency(TOO_SLOW);
+
+        assertThat(gateway.movieDetails(27205)).isSameAs(fresh);
+        assertThat(meterRegistry.counter("tmdb.fallbacks", "endpoint", "details").count()).isEqualTo(1);
+        assertThatThrownBy(() -> gateway.movieDetails(27206)).isInstanceOf(ResourceAccessException.class);
+
+        // Still served once the breaker stops calling TMDB at all
+        for (int movieId = 1; breaker.state() == CircuitBreaker.State.CLOSED; movieId++) {
+            int id = movieId;
+            assertThatThrownBy(() -> gateway.movieDetails(id)).isInstanceOf(ResourceAccessException.class);
+        }
+        int requests = tmdb.requests();
+        assertThat(gateway.movieDetails(27205)).isSameAs(fresh);
+        assertThat(tmdb.requests()).isEqualTo(requests);
+        assertThat(meterRegistry.counter("tmdb.fallbacks", "endpoint", "details").count()).isEqualTo(2);
+    }
+
+    @Test
+    void notFoundIsNotAFailure() {
+        for (int i = 0; i < 2 * MINIMUM_CALLS; i++) {
+            assertThatThrownBy(() -> gateway.movieDetails(TmdbStub.UNKNOWN_MOVIE))
+                    .isInstanceOf(HttpClientErrorException.NotFound.class);
+        }
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(meterRegistry.counter("circuit.breaker.calls", "name", "tmdb", "outcome", "failure").count()).isZero();
+        assertThat(meterRegistry.counter("tmdb.fallbacks", "endpoint", "details").count()).isZero();
+        assertThat(gateway.movieDetails(27205).getTitle()).isEqualTo("Movie 27205");
+    }
+}
@@ -0,0 +1,105 @@
+package com.communifilm.services;
+
+import com.communifilm.configs.WebClientConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stands in for the TMDB API in tests: serves movie details for any ID after a delay that
+ * can be changed while it runs, e.g. past the client's read timeout. Movie
+ * {@value #UNKNOWN_MOVIE} does not exist and is answered with a 404.
+ */
+final class TmdbStub implements AutoCloseable {
+
+    static final int UNKNOWN_MOVIE = 404;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile Duration latency = Duration.ZERO;
+
+    TmdbStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/movie/", exchange -> {
+            String id = exchange.getRequestURI().getPath().substring("/movie/".length());
+            if (id.equals(String.valueOf(UNKNOWN_MOVIE))) {
+                respond(exchange, 404, "{\"status_code\":34,\"status_message\":\"Not found\"}");
+            } else {
+                respond(exchange, 200, "{\"id\":" + id + ",\"title\":\"Movie " + id + "\","
+                        + "\"release_date\":\"2010-07-16\",\"vote_average\":8.4,\"poster_path\":\"/" + id + ".jpg\"}");
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * The value to use for tmdb.base.url.
+     */
+    String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    void latency(Duration latency) {
+        this.latency = latency;
+    }
+
+    int requests() {
+        return requests.get();
+    }
+
+    /**
+     * A RestTemplate configured like the application's, with the given read timeout.
+     */
+    static RestTemplate restTemplate(Duration readTimeout) {
+        WebClientConfig config = new WebClientConfig();
+        ReflectionTestUtils.setField(config, "maxConnections", 100);
+        ReflectionTestUtils.setField(config, "maxConnectionsPerRoute", 50);
+        ReflectionTestUtils.setField(config, "connectTimeout", Duration.ofSeconds(2));
+        ReflectionTestUtils.setField(config, "readTimeout", readTimeout);
+        ReflectionTestUtils.setField(config, "poolTimeout", Duration.ofSeconds(1));
+        CloseableHttpClient httpClient = config.httpClient();
+        return config.restTemplate(httpClient);
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        requests.incrementAndGet();
+        try (exchange) {
+            sleep();
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json;charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            // The client gave up waiting
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(latency.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,114 @@
+package com.communifilm.services;
+
+import com.communifilm.dtos.UpdateUserDto;
+import com.communifilm.models.User;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.WriteResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Reads that were already in flight when the user was written must not put the old
+ * profile back into the cache.
+ */
+class UserServiceTest {
+
+    private static final String USER = "u1";
+
+    private final Firestore firestore = mock(Firestore.class);
+    private final DocumentReference document = mock(DocumentReference.class);
+    // Reads the test has not answered yet, oldest first
+    private final Queue<SettableApiFuture<DocumentSnapshot>> reads = new ConcurrentLinkedQueue<>();
+    private final Queue<SettableApiFuture<List<DocumentSnapshot>>> batchReads = new ConcurrentLinkedQueue<>();
+    private final UserService service;
+
+    UserServiceTest() {
+        CollectionReference collection = mock(CollectionReference.class);
+        when(firestore.collection("users")).thenReturn(collection);
+        when(collection.document(anyString())).thenReturn(document);
+        when(document.get()).thenAnswer(call -> pending(reads));
+        when(firestore.getAll(any(DocumentReference[].class))).thenAnswer(call -> pending(batchReads));
+        when(document.update(anyMap())).thenReturn(ApiFutures.immediateFuture(mock(WriteResult.class)));
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        service = new UserService(firestore, mock(MovieService.class),
+                new FirestoreMetrics(meterRegistry, Tracer.NOOP), meterRegistry, Duration.ofMinutes(5), 100);
+    }
+
+    @Test
+    void readFinishingAfterAnUpdateIsNotCached() throws Exception {
+        CompletableFuture<User> staleRead = service.getUserAsync(USER);
+        service.updateUserAsync(USER, displayName("new")).get();
+        reads.remove().set(snapshot("old"));
+        assertThat(staleRead.get().getDisplayName()).isEqualTo("old");
+
+        CompletableFuture<User> nextRead = service.getUserAsync(USER);
+        assertThat(reads).hasSize(1);
+        reads.remove().set(snapshot("new"));
+        assertThat(nextRead.get().getDisplayName()).isEqualTo("new");
+    }
+
+    @Test
+    void batchReadFinishingAfterAnUpdateIsNotCached() throws Exception {
+        CompletableFuture<List<User>> staleRead = service.getUsersAsync(List.of(USER));
+        service.updateUserAsync(USER, displayName("new")).get();
+        batchReads.remove().set(List.of(snapshot("old")));
+        assertThat(staleRead.get()).extracting(User::getDisplayName).containsExactly("old");
+
+        CompletableFuture<User> nextRead = service.getUserAsync(USER);
+        assertThat(reads).hasSize(1);
+        reads.remove().set(snapshot("new"));
+        assertThat(nextRead.get().getDisplayName()).isEqualTo("new");
+    }
+
+    @Test
+    void concurrentReadsShareOneCall() throws Exception {
+        CompletableFuture<User> first = service.getUserAsync(USER);
+        CompletableFuture<User> second = service.getUserAsync(USER);
+        assertThat(reads).hasSize(1);
+
+        reads.remove().set(snapshot("name"));
+        assertThat(first.get()).isSameAs(second.get());
+        assertThat(service.getUserAsync(USER)).isCompleted();
+    }
+
+    private static <T> ApiFuture<T> pending(Queue<SettableApiFuture<T>> queue) {
+        SettableApiFuture<T> future = SettableApiFuture.create();
+        queue.add(future);
+        return future;
+    }
+
+    private static UpdateUserDto displayName(String name) {
+        UpdateUserDto dto = new UpdateUserDto();
+        dto.setDisplayName(name);
+        return dto;
+    }
+
+    private static DocumentSnapshot snapshot(String displayName) {
+        DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+        when(snapshot.exists()).thenReturn(true);
+        when(snapshot.getId()).thenReturn(USER);
+        when(snapshot.toObject(User.class)).thenReturn(User.builder().uid(USER).displayName(displayName).build());
+        return snapshot;
+    }
+}
@@ -0,0 +1,294 @@
+package com.communifilm.services;
+
+import com.communifilm.ai.AgentToolbox;
+import com.communifilm.ai.MovieRecommendationTool;
+import com.communifilm.ai.MovieReviewTool;
+import com.communifilm.ai.ParallelToolCalls;
+import com.communifilm.ai.TmdbTool;
+import com.communifilm.ai.ToolOutputModes;
+import com.communifilm.ai.TurnSpans;
+import com.communifilm.configs.ExecutorConfig;
+import com.communifilm.dtos.UpdateUserDto;
+import com.communifilm.models.User;
+import com.communifilm.utils.Bulkhead;
+import com.communifilm.utils.CircuitBreaker;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.SettableApiFuture;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.BulkWriter;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Precondition;
+import com.google.cloud.firestore.WriteResult;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the agent's tool calls and the Firestore-backed services on virtual threads, with
+ * their upstreams answering late, and fails on any JFR jdk.VirtualThreadPinned event: a
+ * virtual thread that blocks while pinned holds one of the few carrier threads, which
+ * quietly brings back the thread-pool ceiling virtual threads are meant to remove.
+ */
+class VirtualThreadPinningTest {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int CONCURRENT_CALLS = 32;
+    private static final Duration UPSTREAM_LATENCY = Duration.ofMillis(20);
+    private static final int MAX_REPORTED_FRAMES = 15;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ScheduledExecutorService firestoreResponses = Executors.newSingleThreadScheduledExecutor();
+    private final ConcurrentLinkedQueue<RecordedEvent> pinnedEvents = new ConcurrentLinkedQueue<>();
+    private RecordingStream recording;
+
+    @BeforeEach
+    void startRecording() {
+        recording = new RecordingStream();
+        recording.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+        recording.onEvent(PINNED_EVENT, pinnedEvents::add);
+        recording.startAsync();
+    }
+
+    @AfterEach
+    void stop() {
+        recording.close();
+        firestoreResponses.shutdownNow();
+    }
+
+    @Test
+    void agentToolCallsDoNotPinVirtualThreads() throws Exception {
+        try (TmdbStub tmdb = new TmdbStub()) {
+            tmdb.latency(UPSTREAM_LATENCY);
+            MovieAgentService agent = agent(tmdb);
+
+            // Loads classes on a platform thread first; class initialization pins on its own
+            assertThat(agent.chatWithUser("warmup", "movies 1")).isEqualTo("done");
+            List<String> answers = onVirtualThreads(i -> agent.chatWithUser("u" + i, "movies " + (i * 10)));
+
+            assertThat(answers).containsOnly("done");
+            assertThat(tmdb.requests()).isGreaterThanOrEqualTo(2 * CONCURRENT_CALLS);
+        }
+        assertNoPinning();
+    }
+
+    @Test
+    void firestoreCallsDoNotPinVirtualThreads() throws Exception {
+        Firestore firestore = lateFirestore();
+        UserService users = new UserService(firestore, mock(MovieService.class),
+                new FirestoreMetrics(meterRegistry, Tracer.NOOP), meterRegistry, Duration.ofMinutes(5), 0);
+        AgentSessionStore sessions = new AgentSessionStore(meterRegistry, Duration.ofMinutes(30), 1000);
+        FirestoreChatMemoryStore memories = new FirestoreChatMemoryStore(firestore, sessions, Duration.ZERO, meterRegistry);
+
+        Callable<Integer> calls = () -> {
+            String id = "u" + Thread.currentThread().threadId();
+            users.getUser(id);
+            users.getUsers(List.of(id, id + "-friend"));
+            users.updateUser(id, new UpdateUserDto());
+            ChatMemory memory = MessageWindowChatMemory.builder().id(id).maxMessages(20).chatMemoryStore(memories).build();
+            memory.add(UserMessage.from("question"));
+            memory.add(AiMessage.from("answer"));
+            memories.flush();
+            memories.deleteMessages(id);
+            return memory.messages().size();
+        };
+        calls.call();
+        onVirtualThreads(i -> calls.call());
+
+        assertNoPinning();
+    }
+
+    private <T> List<T> onVirtualThreads(IndexedCall<T> call) throws Exception {
+        List<Future<T>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CONCURRENT_CALLS; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> call.call(index)));
+            }
+        }
+        List<T> results = new ArrayList<>();
+        for (Future<T> future : futures) {
+            results.add(future.get());
+        }
+        return results;
+    }
+
+    private void assertNoPinning() {
+        // Stopping delivers every event recorded so far
+        recording.stop();
+        assertThat(pinnedEvents)
+                .withFailMessage(() -> "Virtual threads were pinned:\n" + pinnedEvents.stream()
+                        .map(VirtualThreadPinningTest::describe)
+                        .collect(Collectors.joining("\n\n")))
+                .isEmpty();
+    }
+
+    private static String describe(RecordedEvent event) {
+        String stack = event.getStackTrace() == null ? "  (no stack trace)" : event.getStackTrace().getFrames().stream()
+                .limit(MAX_REPORTED_FRAMES)
+                .map(frame -> "  at " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                        + ":" + frame.getLineNumber())
+                .collect(Collectors.joining("\n"));
+        return "Pinned for " + event.getDuration().toMillis() + " ms:\n" + stack;
+    }
+
+    /**
+     * The agent as the application builds it in virtual-thread mode, with a model that asks
+     * for the details of two movies at once and then answers.
+     */
+    private MovieAgentService agent(TmdbStub tmdb) {
+        ExecutorConfig executors = new ExecutorConfig();
+        ReflectionTestUtils.setField(executors, "tmdbMaxConcurrency", 8);
+        ReflectionTestUtils.setField(executors, "agentToolMaxConcurrency", 16);
+
+        CircuitBreaker breaker = new CircuitBreaker("tmdb", 50, 10, 0.5, Duration.ofSeconds(30),
+                TmdbGateway::isUpstreamFailure, meterRegistry);
+        TmdbGateway gateway = new TmdbGateway(TmdbStub.restTemplate(Duration.ofSeconds(5)), meterRegistry, Tracer.NOOP,
+                breaker, new Bulkhead("tmdb", 32, Duration.ofMillis(250), meterRegistry), "key", tmdb.baseUrl(),
+                Duration.ofHours(6), 1000, Duration.ofMinutes(15), Duration.ofMinutes(2), 100, Duration.ofHours(24));
+        MovieService movies = new MovieService(gateway, executors.virtualTmdbExecutor(Tracer.NOOP), event -> { });
+        MockEnvironment environment = new MockEnvironment();
+        TmdbTool tmdbTool = new TmdbTool(movies, mock(ChatLanguageModel.class), new ToolOutputModes(environment));
+
+        ParallelToolCalls parallelToolCalls = new ParallelToolCalls(
+                executors.virtualAgentToolExecutor(Tracer.NOOP), environment, meterRegistry);
+        AgentToolbox toolbox = new AgentToolbox(mock(MovieReviewTool.class), mock(MovieRecommendationTool.class),
+                tmdbTool, meterRegistry, Tracer.NOOP, environment, parallelToolCalls, new TurnSpans());
+        AgentSessionStore sessions = new AgentSessionStore(meterRegistry, Duration.ofMinutes(30), 1000);
+        MovieAgentService agent = new MovieAgentService(toolbox, new TwoMoviesModel(),
+                mock(StreamingChatLanguageModel.class), new SessionChatMemoryStore(sessions), sessions,
+                new SemanticResponseCache(null, meterRegistry, false, 0.92, 10, Duration.ofHours(1)),
+                parallelToolCalls, Tracer.NOOP, new Bulkhead("agent", CONCURRENT_CALLS, Duration.ZERO, meterRegistry));
+        agent.initialize();
+        return agent;
+    }
+
+    /**
+     * A Firestore whose reads and writes complete UPSTREAM_LATENCY after they are made, on
+     * another thread, like the real client's.
+     */
+    private Firestore lateFirestore() {
+        Firestore firestore = mock(Firestore.class);
+        CollectionReference collection = mock(CollectionReference.class);
+        when(firestore.collection(anyString())).thenReturn(collection);
+        when(collection.document(anyString())).thenAnswer(call -> document(call.getArgument(0)));
+        when(firestore.getAll(any(DocumentReference[].class))).thenAnswer(call -> {
+            List<DocumentSnapshot> snapshots = new ArrayList<>();
+            for (Object reference : call.getArguments()) {
+                snapshots.add(snapshot(((DocumentReference) reference).getId()));
+            }
+            return late(snapshots);
+        });
+        when(firestore.bulkWriter()).thenAnswer(call -> {
+            BulkWriter writer = mock(BulkWriter.class);
+            when(writer.create(any(DocumentReference.class), anyMap())).thenAnswer(write -> late(written()));
+            when(writer.update(any(DocumentReference.class), anyMap(), any(Precondition.class)))
+                    .thenAnswer(write -> late(written()));
+            return writer;
+        });
+        return firestore;
+    }
+
+    private DocumentReference document(String id) {
+        DocumentReference document = mock(DocumentReference.class);
+        when(document.getId()).thenReturn(id);
+        when(document.get()).thenAnswer(call -> late(snapshot(id)));
+        when(document.update(anyMap())).thenAnswer(call -> late(written()));
+        when(document.delete()).thenAnswer(call -> late(written()));
+        return document;
+    }
+
+    private <T> ApiFuture<T> late(T value) {
+        SettableApiFuture<T> future = SettableApiFuture.create();
+        firestoreResponses.schedule(() -> future.set(value), UPSTREAM_LATENCY.toMillis(), TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    private static DocumentSnapshot snapshot(String id) {
+        DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+        when(snapshot.getId()).thenReturn(id);
+        when(snapshot.exists()).thenReturn(true);
+        when(snapshot.toObject(User.class)).thenReturn(User.builder().uid(id).build());
+        when(snapshot.getString("messages")).thenReturn("[]");
+        when(snapshot.getUpdateTime()).thenReturn(Timestamp.now());
+        return snapshot;
+    }
+
+    private static WriteResult written() {
+        WriteResult result = mock(WriteResult.class);
+        when(result.getUpdateTime()).thenReturn(Timestamp.now());
+        return result;
+    }
+
+    private interface IndexedCall<T> {
+        T call(int index) throws Exception;
+    }
+
+    /**
+     * Asks for the details of the movie in the user's message ("movies 10") and the next one
+     * in a single message, then answers "done" once both results are in.
+     */
+    private static final class TwoMoviesModel implements ChatLanguageModel {
+
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages) {
+            return Response.from(AiMessage.from("done"));
+        }
+
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages,
+                                            List<ToolSpecification> toolSpecifications) {
+            ChatMessage last = messages.get(messages.size() - 1);
+            if (!(last instanceof UserMessage user)) {
+                return generate(messages);
+            }
+            int movieId = Integer.parseInt(user.singleText().replaceAll(".*movies (\\d+).*", "$1"));
+            return Response.from(AiMessage.from(details(movieId), details(movieId + 1)));
+        }
+
+        private static ToolExecutionRequest details(int movieId) {
+            return ToolExecutionRequest.builder()
+                    .id("call_" + movieId)
+                    .name("getMovieDetails")
+                    .arguments("{\"movieId\": " + movieId + "}")
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.communifilm.utils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BulkheadTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void rejectsCallsOnceFullForItsMaxWait() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test", 1, Duration.ofMillis(50), meterRegistry);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> holder = CompletableFuture.supplyAsync(() -> bulkhead.execute(() -> {
+            running.countDown();
+            await(release);
+            return "first";
+        }));
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+
+        long started = System.nanoTime();
+        assertThatThrownBy(() -> bulkhead.execute(() -> "second")).isInstanceOf(Bulkhead.FullException.class);
+        assertThat(System.nanoTime() - started).isGreaterThanOrEqualTo(Duration.ofMillis(50).toNanos());
+        assertThat(meterRegistry.counter("bulkhead.rejections", "name", "test").count()).isEqualTo(1);
+        assertThat(available()).isZero();
+
+        release.countDown();
+        assertThat(holder.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+        assertThat(bulkhead.execute(() -> "third")).isEqualTo("third");
+        assertThat(available()).isEqualTo(1);
+    }
+
+    @Test
+    void withoutMaxWaitRejectsAtOnce() {
+        Bulkhead bulkhead = new Bulkhead("test", 2, Duration.ZERO, meterRegistry);
+        bulkhead.acquire();
+        bulkhead.acquire();
+
+        assertThatThrownBy(bulkhead::acquire).isInstanceOf(Bulkhead.FullException.class);
+
+        bulkhead.release();
+        bulkhead.acquire();
+        assertThat(meterRegistry.counter("bulkhead.rejections", "name", "test").count()).isEqualTo(1);
+    }
+
+    @Test
+    void failedCallsGiveTheirSlotBack() {
+        Bulkhead bulkhead = new Bulkhead("test", 1, Duration.ZERO, meterRegistry);
+
+        assertThatThrownBy(() -> bulkhead.execute(() -> {
+            throw new IllegalStateException("failed");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(available()).isEqualTo(1);
+    }
+
+    private double available() {
+        return meterRegistry.get("bulkhead.available").tag("name", "test").gauge().value();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
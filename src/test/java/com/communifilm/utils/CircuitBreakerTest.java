@@ -0,0 +1,126 @@
+package com.communifilm.utils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CircuitBreakerTest {
+
+    private static final RuntimeException FAILURE = new IllegalStateException("upstream down");
+    private static final RuntimeException CLIENT_ERROR = new IllegalArgumentException("bad request");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void opensOnceEnoughCallsFail() {
+        CircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+        succeed(breaker);
+        fail(breaker);
+        fail(breaker);
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        fail(breaker);
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThatThrownBy(() -> breaker.execute(() -> "called")).isInstanceOf(CircuitBreaker.OpenException.class);
+        assertThat(calls("rejected")).isEqualTo(1);
+    }
+
+    @Test
+    void errorsTheUpstreamIsNotBlamedForCountAsSuccesses() {
+        CircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+        for (int i = 0; i < 10; i++) {
+            assertThatThrownBy(() -> breaker.execute(() -> {
+                throw CLIENT_ERROR;
+            })).isSameAs(CLIENT_ERROR);
+        }
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(calls("success")).isEqualTo(10);
+        assertThat(calls("failure")).isZero();
+    }
+
+    @Test
+    void halfOpenTrialSuccessClosesWithAFreshWindow() {
+        CircuitBreaker breaker = opened(Duration.ZERO);
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        // One trial at a time
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        breaker.onSuccess();
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        // The failures that opened it are forgotten
+        fail(breaker);
+        fail(breaker);
+        fail(breaker);
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void halfOpenTrialFailureOpensAgain() {
+        CircuitBreaker breaker = opened(Duration.ZERO);
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        breaker.onError(FAILURE);
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void staysOpenForItsOpenDuration() throws InterruptedException {
+        CircuitBreaker breaker = opened(Duration.ofMillis(100));
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        Thread.sleep(150);
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+    }
+
+    @Test
+    void publishesItsState() {
+        CircuitBreaker breaker = opened(Duration.ofMinutes(1));
+
+        assertThat(meterRegistry.get("circuit.breaker.state").tag("name", "test").tag("state", "open").gauge().value())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("circuit.breaker.state").tag("name", "test").tag("state", "closed").gauge().value())
+                .isZero();
+        // The gauges hold the breaker weakly
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    // Opens after 4 calls when at least half of them failed
+    private CircuitBreaker breaker(Duration openDuration) {
+        return new CircuitBreaker("test", 10, 4, 0.5, openDuration,
+                error -> error != CLIENT_ERROR, meterRegistry);
+    }
+
+    private CircuitBreaker opened(Duration openDuration) {
+        CircuitBreaker breaker = breaker(openDuration);
+        for (int i = 0; i < 4; i++) {
+            fail(breaker);
+        }
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        return breaker;
+    }
+
+    private static void succeed(CircuitBreaker breaker) {
+        assertThat(breaker.execute(() -> "ok")).isEqualTo("ok");
+    }
+
+    private static void fail(CircuitBreaker breaker) {
+        assertThatThrownBy(() -> breaker.execute(() -> {
+            throw FAILURE;
+        })).isSameAs(FAILURE);
+    }
+
+    private double calls(String outcome) {
+        return meterRegistry.counter("circuit.breaker.calls", "name", "test", "outcome", outcome).count();
+    }
+}
@@ -0,0 +1,83 @@
+package com.communifilm.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IntIntHashMapTest {
+
+    // Room for four keys in eight slots before it grows
+    private static final int SLOTS = 8;
+
+    @Test
+    void keysHashedToTheSameSlotProbeOnAndWrapAround() {
+        IntIntHashMap map = new IntIntHashMap(4);
+        // All hash to the last slot, so all but the first wrap around to the front of the table
+        int[] colliding = keysInSlot(SLOTS - 1, 5);
+
+        for (int i = 0; i < 4; i++) {
+            map.put(colliding[i], i);
+        }
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(map.get(colliding[i], -1)).isEqualTo(i);
+        }
+        // Probes past every colliding key to the first free slot
+        assertThat(map.get(colliding[4], -1)).isEqualTo(-1);
+        assertThat(map.size()).isEqualTo(4);
+    }
+
+    @Test
+    void putReplacesTheValueOfAKeyFurtherAlongItsProbe() {
+        IntIntHashMap map = new IntIntHashMap(4);
+        int[] colliding = keysInSlot(3, 3);
+        for (int key : colliding) {
+            map.put(key, 1);
+        }
+
+        map.put(colliding[2], 2);
+
+        assertThat(map.get(colliding[2], -1)).isEqualTo(2);
+        assertThat(map.get(colliding[0], -1)).isEqualTo(1);
+        assertThat(map.size()).isEqualTo(3);
+    }
+
+    @Test
+    void growsPastItsExpectedSizeKeepingEveryEntry() {
+        IntIntHashMap map = new IntIntHashMap(0);
+        int count = 100_000;
+        for (int i = 0; i < count; i++) {
+            // Negative keys, zero and IDs far apart
+            map.put(i * 7919 - count, i);
+        }
+
+        assertThat(map.size()).isEqualTo(count);
+        for (int i = 0; i < count; i++) {
+            assertThat(map.get(i * 7919 - count, -1)).isEqualTo(i);
+        }
+        assertThat(map.get(Integer.MAX_VALUE, -1)).isEqualTo(-1);
+    }
+
+    @Test
+    void rejectsTheKeyThatMarksFreeSlots() {
+        IntIntHashMap map = new IntIntHashMap(4);
+
+        assertThatThrownBy(() -> map.put(Integer.MIN_VALUE, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(map.get(Integer.MIN_VALUE, -1)).isEqualTo(-1);
+        assertThat(map.size()).isZero();
+    }
+
+    // The first keys the map places in the given slot of an eight-slot table
+    private static int[] keysInSlot(int slot, int count) {
+        int[] keys = new int[count];
+        int found = 0;
+        for (int key = 1; found < count; key++) {
+            int h = key * 0x9E3779B9;
+            if (((h ^ (h >>> 16)) & (SLOTS - 1)) == slot) {
+                keys[found++] = key;
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,151 @@
+package com.communifilm.utils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>("test", meterRegistry);
+    private final ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @AfterEach
+    void stopCallers() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersShareOneCall() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(callers.submit(() -> singleFlight.execute("movie:27205", () -> {
+                calls.incrementAndGet();
+                await(release);
+                return "Inception";
+            })));
+        }
+        awaitCount("coalesced", CALLERS - 1);
+
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("Inception");
+        }
+        assertThat(calls).hasValue(1);
+        assertThat(count("executed")).isEqualTo(1);
+        // The call is over, so the next caller makes a new one
+        assertThat(singleFlight.execute("movie:27205", () -> "Inception (2010)")).isEqualTo("Inception (2010)");
+    }
+
+    @Test
+    void failuresReachEveryWaiter() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("TMDB unavailable");
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(callers.submit(() -> singleFlight.execute("movie:27205", () -> {
+                calls.incrementAndGet();
+                await(release);
+                throw failure;
+            })));
+        }
+        awaitCount("coalesced", CALLERS - 1);
+
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .cause().isSameAs(failure);
+        }
+        assertThat(calls).hasValue(1);
+
+        CompletableFuture<String> source = new CompletableFuture<>();
+        CompletableFuture<String> leader = singleFlight.executeAsync("movie:27205", () -> source);
+        CompletableFuture<String> waiter = singleFlight.executeAsync("movie:27205", CompletableFuture::new);
+        source.completeExceptionally(failure);
+        assertThatThrownBy(leader::join).cause().isSameAs(failure);
+        assertThatThrownBy(waiter::join).cause().isSameAs(failure);
+    }
+
+    @Test
+    void forgetDetachesInFlightCalls() {
+        CompletableFuture<String> before = new CompletableFuture<>();
+        CompletableFuture<String> after = new CompletableFuture<>();
+        CompletableFuture<String> leader = singleFlight.executeAsync("user:u1", () -> before);
+        CompletableFuture<String> waiter = singleFlight.executeAsync("user:u1", CompletableFuture::new);
+        CompletableFuture<String> otherKey = singleFlight.executeAsync("user:u2", CompletableFuture::new);
+
+        singleFlight.forget(key -> key.equals("user:u1"));
+
+        CompletableFuture<String> fresh = singleFlight.executeAsync("user:u1", () -> after);
+        assertThat(count("executed")).isEqualTo(3);
+
+        // The detached call completing must not drop the fresh one, which later callers still join
+        before.complete("old profile");
+        CompletableFuture<String> joined = singleFlight.executeAsync("user:u1", CompletableFuture::new);
+        after.complete("new profile");
+
+        assertThat(leader.join()).isEqualTo("old profile");
+        assertThat(waiter.join()).isEqualTo("old profile");
+        assertThat(fresh.join()).isEqualTo("new profile");
+        assertThat(joined.join()).isEqualTo("new profile");
+        assertThat(otherKey).isNotDone();
+    }
+
+    @Test
+    void cancellingOneAsyncCallerLeavesTheOthersWaiting() {
+        CompletableFuture<String> source = new CompletableFuture<>();
+        CompletableFuture<String> leader = singleFlight.executeAsync("movie:27205", () -> source);
+        CompletableFuture<String> waiter = singleFlight.executeAsync("movie:27205", CompletableFuture::new);
+
+        leader.cancel(true);
+        CompletableFuture<String> late = singleFlight.executeAsync("movie:27205", CompletableFuture::new);
+        source.complete("Inception");
+
+        assertThat(leader).isCancelled();
+        assertThat(source).isNotCancelled();
+        assertThat(waiter.join()).isEqualTo("Inception");
+        assertThat(late.join()).isEqualTo("Inception");
+        assertThat(count("executed")).isEqualTo(1);
+    }
+
+    private double count(String result) {
+        return meterRegistry.counter("singleflight.calls", "name", "test", "result", result).count();
+    }
+
+    private void awaitCount(String result, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count(result) < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(count(result)).isEqualTo(expected);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}